@@ -1,4 +1,5 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
+import { PluginListenerHandle } from '@capacitor/core';
 import { HashRouter, useLocation, useNavigate } from 'react-router-dom';
 import MainPage from './pages/MainPage';
 import AbnormalLogPage from './pages/AbnormalLogPage';
@@ -19,9 +20,12 @@ import { Esp32ConfigProvider, useEsp32Config } from './contexts/Esp32ConfigConte
 import { ChatHistoryProvider } from './contexts/ChatHistoryContext';
 import { ROUTES, DEFAULT_ANALYSIS_LOCATION } from './constants';
 import { AnalysisResponse, BehaviorType } from './types';
-import ForegroundService, { addAnalysisResultListener } from './plugins/ForegroundServicePlugin';
+import ForegroundService, { addAnalysisResultsListener, NativeAnalysisEvent, NativeLogEntry } from './plugins/ForegroundServicePlugin';
 import { playNativeTTS } from './services/ttsService';
 
+const NATIVE_LOG_CURSOR_KEY = 'nativeLogCursor';
+const NATIVE_LOG_PAGE_SIZE = 100;
+
 const LoadingScreen: React.FC = () => (
   <div className="fixed inset-0 flex flex-col items-center justify-center bg-gradient-to-br from-sky-400 to-cyan-300 z-[100]">
     <svg className="w-24 h-24 text-white mb-6 animate-pulse" viewBox="0 0 100 100" fill="currentColor">
@@ -48,7 +52,7 @@ const PageComponentMap: { [key: string]: React.ReactElement } = {
 
 
 const AppContent: React.FC = () => {
-  const { logs, addLog } = useBehaviorLogs();
+  const { logs, addLog, importNativeLogs } = useBehaviorLogs();
   const { esp32Url, flaskUrl, isDefaultEsp32Url, isDefaultFlaskUrl } = useEsp32Config();
   const location = useLocation();
   const navigate = useNavigate();
@@ -59,6 +63,8 @@ const AppContent: React.FC = () => {
     const startForegroundService = async () => {
       try {
         await ForegroundService.startForegroundService();
+        // 위치 정보 없는 서버 결과도 웹과 같은 기본 위치로 기록되도록
+        await ForegroundService.configureAlerts({ defaultLocation: DEFAULT_ANALYSIS_LOCATION });
       } catch (error) {
         console.error('포그라운드 서비스 시작 실패:', error);
       }
@@ -67,94 +73,123 @@ const AppContent: React.FC = () => {
     startForegroundService();
   }, []);
 
-  // 네이티브 Android에서 전송되는 분석 결과 리스너
+  // 네이티브 로그 id 커서: 이 id까지는 이미 앱 로그에 반영됨 (실시간 이벤트/저장소 동기화 공통)
+  const nativeCursorRef = useRef<number>(Number(localStorage.getItem(NATIVE_LOG_CURSOR_KEY) || 0));
+  // 실시간 이벤트와 저장소 동기화가 섞이지 않도록 한 줄로 처리
+  const nativeIngestChainRef = useRef<Promise<void>>(Promise.resolve());
+
+  // 네이티브 Android에서 전송되는 분석 결과 처리
   useEffect(() => {
-    const handleNativeAnalysisResult = async (data: any) => {
-      try {
-        console.log('네이티브에서 분석 결과 수신:', data);
-        
-        if (data.behaviorType && data.description) {
-          // BehaviorType enum으로 변환
-          let behaviorType: BehaviorType;
-          switch (data.behaviorType) {
-            case 'Abnormal':
-              behaviorType = BehaviorType.ABNORMAL;
-              break;
-            case 'Dangerous':
-              behaviorType = BehaviorType.DANGEROUS;
-              break;
-            default:
-              behaviorType = BehaviorType.NORMAL;
-              break;
-          }
+    const toBehaviorType = (type: string): BehaviorType => {
+      switch (type) {
+        case 'Abnormal':
+          return BehaviorType.ABNORMAL;
+        case 'Dangerous':
+          return BehaviorType.DANGEROUS;
+        default:
+          return BehaviorType.NORMAL;
+      }
+    };
 
-          // 로그 추가
-          addLog({
-            type: behaviorType,
-            description: data.description,
-            location: data.location || DEFAULT_ANALYSIS_LOCATION,
-            warningMessage: data.warningMessage,
-          });
+    const advanceCursor = (id: number) => {
+      nativeCursorRef.current = id;
+      localStorage.setItem(NATIVE_LOG_CURSOR_KEY, String(id));
+    };
 
-          // 위험 상황이면 TTS 재생
-          if (behaviorType === BehaviorType.DANGEROUS && data.warningMessage) {
-            playNativeTTS(data.warningMessage);
-          }
-        }
-      } catch (error) {
-        console.error('네이티브 분석 결과 처리 오류:', error);
+    const enqueueIngest = (task: () => Promise<void>) => {
+      nativeIngestChainRef.current = nativeIngestChainRef.current
+        .then(task)
+        .catch(error => console.error('네이티브 분석 결과 처리 오류:', error));
+    };
+
+    // 커서 이후의 로컬 로그를 페이지 단위로 가져오고, 가져간 구간은 네이티브에서 삭제
+    const syncFromNativeStore = async () => {
+      let imported = 0;
+      let hasMore = true;
+      while (hasMore) {
+        const page = await ForegroundService.getLocalLogs({ sinceId: nativeCursorRef.current, limit: NATIVE_LOG_PAGE_SIZE });
+        // 페이지 단위로 한 트랜잭션에 저장 (원래 시각 유지, 이미 가져온 id는 건너뜀)
+        imported += await importNativeLogs(page.logs);
+        advanceCursor(page.nextSinceId);
+        hasMore = page.hasMore;
+      }
+
+      if (imported > 0) {
+        console.log('로컬 로그 불러오기:', imported, '개');
       }
+      // 그 사이 새로 저장된 로그는 유지
+      await ForegroundService.clearLocalLogs({ beforeId: nativeCursorRef.current + 1 });
     };
 
-    // 네이티브 이벤트 리스너 등록
-    addAnalysisResultListener(handleNativeAnalysisResult);
+    // 실시간 이벤트도 저장소 기록과 같은 id/시각으로 저장 (나중에 저장소 동기화로 다시 와도 한 번만 셈)
+    const toNativeLogEntry = (event: NativeAnalysisEvent): NativeLogEntry => ({
+      id: event.id,
+      type: event.behaviorType,
+      description: event.description,
+      location: event.location,
+      timestamp: event.timestamp,
+      // 네이티브 시각은 시간대 없는 로컬 ISO 문자열, 못 읽으면 받은 시각으로
+      timestampMs: Date.parse(event.timestamp) || 0,
+    });
 
-    // 앱 시작 시 로컬 로그 불러오기
-    const loadLocalLogs = async () => {
-      try {
-        const result = await ForegroundService.getLocalLogs();
-        if (result.logs && result.logs.length > 0) {
-          console.log('로컬 로그 불러오기:', result.logs.length, '개');
-          
-          // 로컬 로그를 앱 로그에 추가
-          for (const logStr of result.logs) {
-            try {
-              const logData = JSON.parse(logStr);
-              if (logData.type && logData.description) {
-                let behaviorType: BehaviorType;
-                switch (logData.type) {
-                  case 'Abnormal':
-                    behaviorType = BehaviorType.ABNORMAL;
-                    break;
-                  case 'Dangerous':
-                    behaviorType = BehaviorType.DANGEROUS;
-                    break;
-                  default:
-                    behaviorType = BehaviorType.NORMAL;
-                    break;
-                }
-
-                addLog({
-                  type: behaviorType,
-                  description: logData.description,
-                  location: logData.location || DEFAULT_ANALYSIS_LOCATION,
-                });
-              }
-            } catch (parseError) {
-              console.error('로컬 로그 파싱 오류:', parseError);
-            }
-          }
+    const handleNativeAnalysisResults = async (events: NativeAnalysisEvent[]) => {
+      console.log('네이티브에서 분석 결과 수신:', events.length, '건');
+      let batch: NativeLogEntry[] = [];
+      const importBatch = async () => {
+        if (batch.length === 0) return;
+        const entries = batch;
+        batch = [];
+        await importNativeLogs(entries);
+        advanceCursor(entries[entries.length - 1].id);
+      };
 
-          // 로컬 로그 삭제 (중복 방지)
-          await ForegroundService.clearLocalLogs();
+      const startCursor = nativeCursorRef.current;
+      for (const event of events) {
+        if (event.id <= startCursor) {
+          continue; // 이미 반영됨
+        }
+        const cursor = batch.length > 0 ? batch[batch.length - 1].id : nativeCursorRef.current;
+        if (event.id <= cursor) {
+          // 앞서 저장소 동기화로 이미 저장됨 (알림만 처리)
+        } else if (event.firstId > cursor + 1 || event.firstId < event.id) {
+          // 중간 이벤트가 빠졌거나(대기열 초과 등) 같은 내용 여러 건(firstId..id)이 하나로 합쳐져 옴:
+          // 저장소에서 한 건씩 이어받으면 이 이벤트와 이후 이벤트도 포함됨
+          await importBatch();
+          await syncFromNativeStore();
+        } else {
+          batch.push(toNativeLogEntry(event));
+        }
+
+        // 위험 상황이면 TTS 재생
+        if (toBehaviorType(event.behaviorType) === BehaviorType.DANGEROUS && event.warningMessage) {
+          playNativeTTS(event.warningMessage);
         }
-      } catch (error) {
-        console.error('로컬 로그 불러오기 오류:', error);
       }
+      await importBatch();
     };
 
-    loadLocalLogs();
-  }, [addLog]);
+    let listenerHandle: PluginListenerHandle | null = null;
+    let disposed = false;
+
+    // 앱 시작 시 밀린 로컬 로그부터 반영한 뒤 실시간 이벤트 수신
+    enqueueIngest(syncFromNativeStore);
+    addAnalysisResultsListener(data => enqueueIngest(() => handleNativeAnalysisResults(data.events || [])))
+      .then(handle => {
+        if (disposed) {
+          handle.remove();
+          return;
+        }
+        listenerHandle = handle;
+        // 리스너 등록 전에 쌓인 이벤트 요청
+        return ForegroundService.flushAnalysisResults();
+      })
+      .catch(error => console.error('네이티브 이벤트 리스너 등록 오류:', error));
+
+    return () => {
+      disposed = true;
+      listenerHandle?.remove();
+    };
+  }, [importNativeLogs]);
 
   // 최신 로그가 변경될 때마다 포그라운드 서비스 업데이트
   useEffect(() => {
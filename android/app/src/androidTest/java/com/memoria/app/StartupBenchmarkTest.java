@@ -0,0 +1,179 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 시작 시간 측정: MainActivity 실행 → 첫 프레임, → 첫 분석 결과 반영.
+ * Flask 서버 대신 같은 프로세스 안의 작은 HTTP 스텁(/changes만 응답, /analysis_stream은 404라 폴링으로 전환)을 쓴다.
+ * 결과는 instrumentation 상태(startup_first_frame_ms, startup_first_analysis_ms)와 로그로 남는다.
+ *
+ *     ./gradlew :app:connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.memoria.app.StartupBenchmarkTest
+ *
+ * 테스트 프로세스는 이미 떠 있으므로 프로세스 생성 비용은 빠진 값이고, 회귀 확인용 기준으로 본다.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmarkTest {
+
+    private static final String TAG = "StartupBenchmarkTest";
+    private static final long FIRST_FRAME_BUDGET_MS = 5000;
+    private static final long FIRST_ANALYSIS_BUDGET_MS = 15000;
+
+    private static final String CHANGES_BODY = "{\"cursor\": 1, \"bootId\": \"bench\", \"changes\": [{\"source\": \"bench\","
+            + " \"version\": 1, \"result\": {\"behaviorType\": \"Normal\", \"description\": \"시작 시간 측정\","
+            + " \"timestamp\": 1718000000000, \"source\": \"bench\", \"location\": \"거실\"}}]}";
+
+    private Context context;
+    private SharedPreferences prefs;
+    private String savedFlaskUrl;
+    private boolean savedNativeEnabled;
+    private StubServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        prefs = context.getSharedPreferences("memoria_prefs", Context.MODE_PRIVATE);
+        savedFlaskUrl = prefs.getString("flask_url", null);
+        savedNativeEnabled = prefs.getBoolean("native_inference_enabled", false);
+        context.stopService(new Intent(context, ForegroundService.class));
+
+        server = new StubServer();
+        prefs.edit()
+                .putString("flask_url", "http://127.0.0.1:" + server.getPort())
+                .putBoolean("native_inference_enabled", false)
+                .commit();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        context.stopService(new Intent(context, ForegroundService.class));
+        server.close();
+        prefs.edit()
+                .putString("flask_url", savedFlaskUrl)
+                .putBoolean("native_inference_enabled", savedNativeEnabled)
+                .commit();
+    }
+
+    @Test
+    public void reachesFirstFrameAndFirstAnalysisWithinBudget() throws Exception {
+        long launchedAt = SystemClock.elapsedRealtime();
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            long firstFrameMs = awaitSinceLaunch(StartupTrace::getFirstFrameMs, launchedAt, FIRST_FRAME_BUDGET_MS);
+            long firstAnalysisMs = awaitSinceLaunch(StartupTrace::getFirstAnalysisMs, launchedAt, FIRST_ANALYSIS_BUDGET_MS);
+            long serviceReadyMs = StartupTrace.getServiceReadyMs() >= 0
+                    ? StartupTrace.getLaunchElapsedMs() + StartupTrace.getServiceReadyMs() - launchedAt
+                    : -1;
+
+            Bundle status = new Bundle();
+            status.putLong("startup_first_frame_ms", firstFrameMs);
+            status.putLong("startup_service_ready_ms", serviceReadyMs);
+            status.putLong("startup_first_analysis_ms", firstAnalysisMs);
+            InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+            Log.i(TAG, "first_frame_ms=" + firstFrameMs + " service_ready_ms=" + serviceReadyMs
+                    + " first_analysis_ms=" + firstAnalysisMs + " changes_requests=" + server.getChangesRequests());
+
+            // 서비스가 첫 프레임 전에 시작되지 않았는지 (시작 지연 확인)
+            assertTrue("service started before first frame", serviceReadyMs < 0 || serviceReadyMs >= firstFrameMs);
+            // 폴링은 하나만: 첫 결과 직후 /changes 요청이 여러 개 몰리지 않아야 함
+            assertTrue("duplicate polling: " + server.getChangesRequests(), server.getChangesRequests() <= 2);
+        }
+    }
+
+    /** value()가 기록될 때까지 기다려 이번 실행 시각 기준 ms로 바꿔 반환 */
+    private static long awaitSinceLaunch(Mark value, long launchedAt, long budgetMs) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + budgetMs;
+        while (value.get() < 0) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                fail("not reached within " + budgetMs + "ms");
+            }
+            Thread.sleep(10);
+        }
+        return StartupTrace.getLaunchElapsedMs() + value.get() - launchedAt;
+    }
+
+    private interface Mark {
+        long get();
+    }
+
+    /** /changes에는 결과 한 건, 나머지 경로는 404로 답하는 최소 HTTP 서버 (연결마다 한 요청) */
+    private static final class StubServer implements AutoCloseable {
+        private final ServerSocket socket;
+        private final Thread thread;
+        private volatile int changesRequests = 0;
+
+        StubServer() throws IOException {
+            socket = new ServerSocket(0, 16, InetAddress.getByName("127.0.0.1"));
+            thread = new Thread(this::serve, "startup-bench-stub");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        int getChangesRequests() {
+            return changesRequests;
+        }
+
+        private void serve() {
+            while (!socket.isClosed()) {
+                try (Socket client = socket.accept()) {
+                    BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                    String requestLine = in.readLine();
+                    String line;
+                    while ((line = in.readLine()) != null && !line.isEmpty()) {
+                        // 헤더는 읽고 버림
+                    }
+                    String path = requestLine != null ? requestLine.split(" ")[1] : "";
+                    int status = 404;
+                    String body = "{}";
+                    if (path.startsWith("/changes")) {
+                        changesRequests++;
+                        status = 200;
+                        body = CHANGES_BODY;
+                    }
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    OutputStream out = client.getOutputStream();
+                    out.write(("HTTP/1.1 " + status + (status == 200 ? " OK" : " Not Found") + "\r\n"
+                            + "Content-Type: application/json\r\n"
+                            + "Content-Length: " + bytes.length + "\r\n"
+                            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    out.write(bytes);
+                    out.flush();
+                } catch (IOException e) {
+                    // 닫히면 종료
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.memoria.app;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 이상/위험행동 로그 저장소 (SQLite, WAL).
+ * SharedPreferences(memoria_logs)는 apply()마다 XML 전체를 다시 쓰고 전부 메모리에 올리므로
+ * 행 단위로 추가되는 테이블 + 시간/유형 인덱스로 대체한다.
+ * - 추가는 INSERT 한 번 (기존 기록 수와 무관)
+ * - 시간 범위/유형으로 조회
+ * - 보존 기간과 최대 행 수를 넘는 오래된 기록은 주기적으로 삭제
+ * - 처음 열 때 기존 memoria_logs 의 log_ 키를 가져오고 지움
+ */
+public class AnalysisLogStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "AnalysisLogStore";
+    private static final String DB_NAME = "memoria_logs.db";
+    private static final int DB_VERSION = 1;
+
+    static final String TABLE = "analysis_logs";
+
+    static final long RETENTION_MS = 90L * 24 * 60 * 60 * 1000; // 90일
+    static final long MAX_ROWS = 20000;
+    // 추가 N건마다 보존 정책 적용
+    private static final int RETENTION_CHECK_EVERY = 100;
+
+    private static AnalysisLogStore instance;
+
+    private final Context appContext;
+    private int appendsSinceRetention = 0;
+
+    public static class Entry {
+        public final long id;
+        public final long timestampMs;
+        public final String type;
+        public final String description;
+        public final String location;
+        public final String timestamp; // ISO 문자열 (yyyy-MM-dd'T'HH:mm:ss)
+
+        public Entry(long id, long timestampMs, String type, String description, String location, String timestamp) {
+            this.id = id;
+            this.timestampMs = timestampMs;
+            this.type = type;
+            this.description = description;
+            this.location = location;
+            this.timestamp = timestamp;
+        }
+
+        public JSONObject toJson() throws JSONException {
+            JSONObject obj = new JSONObject();
+            obj.put("id", id);
+            obj.put("type", type);
+            obj.put("description", description);
+            obj.put("location", location);
+            obj.put("timestamp", timestamp);
+            obj.put("timestampMs", timestampMs);
+            return obj;
+        }
+    }
+
+    public static synchronized AnalysisLogStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new AnalysisLogStore(context.getApplicationContext());
+            instance.migrateFromSharedPreferences();
+        }
+        return instance;
+    }
+
+    private AnalysisLogStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.appContext = context;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "timestamp_ms INTEGER NOT NULL, "
+                + "type TEXT NOT NULL, "
+                + "description TEXT NOT NULL DEFAULT '', "
+                + "location TEXT NOT NULL DEFAULT '', "
+                + "timestamp TEXT NOT NULL DEFAULT '')");
+        db.execSQL("CREATE INDEX idx_analysis_logs_time ON " + TABLE + " (timestamp_ms)");
+        db.execSQL("CREATE INDEX idx_analysis_logs_type_time ON " + TABLE + " (type, timestamp_ms)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 버전 1만 존재
+    }
+
+    public long append(String type, String description, String location, String timestamp, long timestampMs) {
+        ContentValues values = new ContentValues();
+        values.put("timestamp_ms", timestampMs);
+        values.put("type", type);
+        values.put("description", description != null ? description : "");
+        values.put("location", location != null ? location : "");
+        values.put("timestamp", timestamp != null ? timestamp : "");
+        long id = getWritableDatabase().insert(TABLE, null, values);
+
+        synchronized (this) {
+            if (++appendsSinceRetention >= RETENTION_CHECK_EVERY) {
+                appendsSinceRetention = 0;
+                applyRetention(System.currentTimeMillis());
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 시간 범위 [fromMs, toMs) 의 기록을 오래된 순으로 조회.
+     * @param type null 이면 모든 유형
+     * @param limit 0 이하이면 제한 없음
+     */
+    public List<Entry> queryRange(long fromMs, long toMs, String type, int limit) {
+        String selection = "timestamp_ms >= ? AND timestamp_ms < ?";
+        String[] args;
+        if (type != null) {
+            selection += " AND type = ?";
+            args = new String[]{String.valueOf(fromMs), String.valueOf(toMs), type};
+        } else {
+            args = new String[]{String.valueOf(fromMs), String.valueOf(toMs)};
+        }
+        return query(selection, args, "timestamp_ms ASC, id ASC", limit);
+    }
+
+    /** id가 sinceId 보다 큰 기록을 id 순으로 최대 limit 건 (증분 동기화용 커서 조회) */
+    public List<Entry> queryAfter(long sinceId, int limit) {
+        return query("id > ?", new String[]{String.valueOf(sinceId)}, "id ASC", limit);
+    }
+
+    public long count() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE);
+    }
+
+    public long countAfter(long sinceId) {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE, "id > ?", new String[]{String.valueOf(sinceId)});
+    }
+
+    /** 유형별 건수와 id/시간 범위 */
+    public JSONObject summary() throws JSONException {
+        SQLiteDatabase db = getReadableDatabase();
+        JSONObject result = new JSONObject();
+        Cursor c = db.rawQuery("SELECT COUNT(*), MIN(id), MAX(id), MIN(timestamp_ms), MAX(timestamp_ms) FROM " + TABLE, null);
+        try {
+            if (c.moveToFirst()) {
+                result.put("count", c.getLong(0));
+                result.put("firstId", c.isNull(1) ? 0 : c.getLong(1));
+                result.put("lastId", c.isNull(2) ? 0 : c.getLong(2));
+                result.put("oldestTimestampMs", c.isNull(3) ? 0 : c.getLong(3));
+                result.put("newestTimestampMs", c.isNull(4) ? 0 : c.getLong(4));
+            }
+        } finally {
+            c.close();
+        }
+        JSONObject byType = new JSONObject();
+        c = db.rawQuery("SELECT type, COUNT(*) FROM " + TABLE + " GROUP BY type", null);
+        try {
+            while (c.moveToNext()) {
+                byType.put(c.getString(0), c.getLong(1));
+            }
+        } finally {
+            c.close();
+        }
+        result.put("byType", byType);
+        return result;
+    }
+
+    public void clear() {
+        getWritableDatabase().delete(TABLE, null, null);
+    }
+
+    /** id가 beforeId 보다 작은 기록 삭제 (웹에서 가져간 구간만 정리) */
+    public int deleteBefore(long beforeId) {
+        return getWritableDatabase().delete(TABLE, "id < ?", new String[]{String.valueOf(beforeId)});
+    }
+
+    /** 보존 기간이 지났거나 최대 행 수를 넘는 오래된 기록 삭제 */
+    public int applyRetention(long nowMs) {
+        SQLiteDatabase db = getWritableDatabase();
+        int removed = db.delete(TABLE, "timestamp_ms < ?", new String[]{String.valueOf(nowMs - RETENTION_MS)});
+        removed += db.delete(TABLE, "id <= (SELECT id FROM " + TABLE + " ORDER BY id DESC LIMIT 1 OFFSET ?)",
+                new String[]{String.valueOf(MAX_ROWS)});
+        if (removed > 0) {
+            Log.d(TAG, "Retention removed " + removed + " logs");
+        }
+        return removed;
+    }
+
+    private List<Entry> query(String selection, String[] args, String orderBy, int limit) {
+        List<Entry> result = new ArrayList<>();
+        Cursor c = getReadableDatabase().query(TABLE,
+                new String[]{"id", "timestamp_ms", "type", "description", "location", "timestamp"},
+                selection, args, null, null, orderBy, limit > 0 ? String.valueOf(limit) : null);
+        try {
+            while (c.moveToNext()) {
+                result.add(readEntry(c));
+            }
+        } finally {
+            c.close();
+        }
+        return result;
+    }
+
+    static Entry readEntry(Cursor c) {
+        return new Entry(c.getLong(0), c.getLong(1), c.getString(2), c.getString(3), c.getString(4), c.getString(5));
+    }
+
+    /** 기존 SharedPreferences(memoria_logs) 의 log_<millis> 키를 한 번에 가져오고 삭제 */
+    private void migrateFromSharedPreferences() {
+        SharedPreferences prefs = appContext.getSharedPreferences("memoria_logs", Context.MODE_PRIVATE);
+        Map<String, ?> all = prefs.getAll();
+        if (all.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        SharedPreferences.Editor editor = prefs.edit();
+        int imported = 0;
+        db.beginTransaction();
+        try {
+            // 키의 millis 순서대로 넣어야 id 순서가 시간 순서와 맞음
+            List<String> keys = new ArrayList<>(all.keySet());
+            java.util.Collections.sort(keys);
+            for (String key : keys) {
+                if (!key.startsWith("log_")) {
+                    continue;
+                }
+                editor.remove(key);
+                try {
+                    JSONObject obj = new JSONObject(String.valueOf(all.get(key)));
+                    long millis;
+                    try {
+                        millis = Long.parseLong(key.substring(4));
+                    } catch (NumberFormatException e) {
+                        millis = System.currentTimeMillis();
+                    }
+                    ContentValues values = new ContentValues();
+                    values.put("timestamp_ms", millis);
+                    values.put("type", obj.optString("type", ""));
+                    values.put("description", obj.optString("description", ""));
+                    values.put("location", obj.optString("location", ""));
+                    values.put("timestamp", obj.optString("timestamp", ""));
+                    db.insert(TABLE, null, values);
+                    imported++;
+                } catch (JSONException e) {
+                    Log.e(TAG, "Skipping malformed legacy log " + key, e);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        // DB 커밋이 끝난 뒤에만 기존 키 삭제
+        editor.apply();
+        Log.d(TAG, "Migrated " + imported + " logs from SharedPreferences");
+    }
+}
@@ -0,0 +1,240 @@
+package com.memoria.app;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OutboundEventQueue에 쌓인 이벤트를 Flask /bulk_ingest 로 묶어서 올리는 업로더.
+ * - 전용 단일 스레드에서만 전송 (요청이 겹치지 않음)
+ * - 오래된 순으로 최대 MAX_BATCH_ITEMS 건 / MAX_BATCH_BYTES 씩 gzip으로 압축해 한 번에 전송
+ * - 200 응답을 받은 뒤에만 대기열에서 지움. 서버는 멱등 키로 중복을 거르므로 재전송해도 안전
+ * - 실패하면 지수 백오프로 재시도, 네트워크가 돌아오면(requestFlush) 바로 재시도
+ */
+public class EventUploader {
+
+    private static final String TAG = "EventUploader";
+
+    static final int MAX_BATCH_ITEMS = 200;
+    static final long MAX_BATCH_BYTES = 256 * 1024;
+    static final long MIN_BACKOFF_MS = 5000;
+    static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    // 이 횟수만큼 거부된 이벤트는 형식 문제로 보고 버림 (대기열이 막히지 않도록)
+    static final int MAX_ATTEMPTS = 20;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    private final OutboundEventQueue queue;
+    private final AnalysisStreamClient.UrlProvider urlProvider;
+    private final String deviceId;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushPending = new AtomicBoolean(false);
+
+    // 업로드 스레드에서만 쓰고, 상태 조회용으로 volatile
+    private volatile long backoffMs = MIN_BACKOFF_MS;
+    private volatile boolean lastAttemptFailed = false;
+    private volatile String lastError = "";
+    private volatile long lastUploadAtMs = 0;
+    private volatile long uploadedCount = 0;
+    private volatile long batchCount = 0;
+    private volatile long failedCount = 0;
+    private volatile long droppedCount = 0;
+    private volatile long compressedBytesSent = 0;
+
+    public EventUploader(OutboundEventQueue queue, AnalysisStreamClient.UrlProvider urlProvider, String deviceId) {
+        this.queue = queue;
+        this.urlProvider = urlProvider;
+        this.deviceId = deviceId;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "memoria-event-upload");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 대기열을 비우도록 예약 (이미 예약돼 있으면 무시) */
+    public void requestFlush() {
+        if (!flushPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // shutdown 이후 호출
+            flushPending.set(false);
+        }
+    }
+
+    /** 서버 응답을 받았음: 직전 업로드가 실패했다면 백오프를 기다리지 않고 재시도 */
+    public void onServerReachable() {
+        if (lastAttemptFailed) {
+            requestFlush();
+        }
+    }
+
+    private void flush() {
+        flushPending.set(false);
+        String baseUrl = urlProvider.getBaseUrl();
+        if (baseUrl == null) {
+            // 주소가 설정되면 다음 이벤트/네트워크 변경 때 다시 시도
+            return;
+        }
+        while (true) {
+            List<OutboundEventQueue.Item> batch = queue.peekBatch(MAX_BATCH_ITEMS, MAX_BATCH_BYTES);
+            if (batch.isEmpty()) {
+                backoffMs = MIN_BACKOFF_MS;
+                lastAttemptFailed = false;
+                return;
+            }
+            try {
+                byte[] body = encodeBatch(deviceId, batch);
+                int code = post(baseUrl + "/bulk_ingest", body);
+                if (code == HttpURLConnection.HTTP_OK) {
+                    queue.remove(batch);
+                    uploadedCount += batch.size();
+                    batchCount++;
+                    compressedBytesSent += body.length;
+                    lastUploadAtMs = System.currentTimeMillis();
+                    continue;
+                }
+                onBatchFailed(batch, "응답 코드: " + code);
+            } catch (IOException e) {
+                onBatchFailed(batch, String.valueOf(e.getMessage()));
+            }
+            return;
+        }
+    }
+
+    private void onBatchFailed(List<OutboundEventQueue.Item> batch, String reason) {
+        failedCount++;
+        lastError = reason;
+        lastAttemptFailed = true;
+        queue.markAttempted(batch);
+        List<OutboundEventQueue.Item> exhausted = new ArrayList<>();
+        for (OutboundEventQueue.Item item : batch) {
+            if (item.attempts + 1 >= MAX_ATTEMPTS) {
+                exhausted.add(item);
+            }
+        }
+        if (!exhausted.isEmpty()) {
+            queue.remove(exhausted);
+            droppedCount += exhausted.size();
+            Log.e(TAG, "Dropped " + exhausted.size() + " events after " + MAX_ATTEMPTS + " attempts");
+        }
+        long delay = backoffMs;
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        Log.d(TAG, "Upload failed (" + reason + "), retrying in " + delay + "ms");
+        try {
+            executor.schedule(this::requestFlush, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    /**
+     * {"deviceId": "...", "events": [{"key": "<멱등 키>", "event": {...}}, ...]} 을 gzip으로 압축.
+     * payload는 이미 JSON 객체 문자열이므로 다시 파싱하지 않고 그대로 이어 붙임.
+     */
+    static byte[] encodeBatch(String deviceId, List<OutboundEventQueue.Item> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"deviceId\":").append(org.json.JSONObject.quote(deviceId)).append(",\"events\":[");
+        gzip.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < batch.size(); i++) {
+            OutboundEventQueue.Item item = batch.get(i);
+            sb.setLength(0);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"key\":").append(org.json.JSONObject.quote(item.idempotencyKey))
+                    .append(",\"event\":").append(item.payload).append('}');
+            gzip.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        gzip.write("]}".getBytes(StandardCharsets.UTF_8));
+        gzip.close();
+        return bytes.toByteArray();
+    }
+
+    private static int post(String urlStr, byte[] gzippedBody) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(gzippedBody.length);
+            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            conn.setRequestProperty("Content-Encoding", "gzip");
+            OutputStream out = conn.getOutputStream();
+            try {
+                out.write(gzippedBody);
+            } finally {
+                out.close();
+            }
+            int code = conn.getResponseCode();
+            // 본문을 비워 keep-alive 연결을 재사용
+            InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream();
+            if (in != null) {
+                byte[] buf = new byte[512];
+                while (in.read(buf) != -1) {
+                    // 버림
+                }
+                in.close();
+            }
+            return code;
+        } catch (IOException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    public long getUploadedCount() {
+        return uploadedCount;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getCompressedBytesSent() {
+        return compressedBytesSent;
+    }
+
+    public long getLastUploadAtMs() {
+        return lastUploadAtMs;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public boolean isLastAttemptFailed() {
+        return lastAttemptFailed;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
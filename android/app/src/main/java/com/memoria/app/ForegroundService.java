@@ -5,21 +5,24 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.ServiceInfo;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.PowerManager;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import android.app.PendingIntent;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-
 import org.json.JSONObject;
 import android.content.SharedPreferences;
 import com.getcapacitor.Plugin;
@@ -31,16 +34,333 @@ public class ForegroundService extends Service {
     private static final int NOTIFICATION_ID = 1;
     private static final String NOTIFICATION_NAME = "Memoria";
     private static final String CHANNEL_ID = "memoria_channel_id";
+    // 이상/위험 알림 전용 채널 (상태 표시 채널과 달리 소리/진동/헤즈업)
+    private static final String ALERT_CHANNEL_ID = "memoria_alert_channel_id";
+    private static final String ALERT_CHANNEL_NAME = "Memoria 위험 알림";
+    // 위치별 알림 id = ALERT_NOTIFICATION_BASE_ID + 위치 해시 (방마다 따로 표시/확인)
+    private static final int ALERT_NOTIFICATION_BASE_ID = 1000;
+    public static final String ACTION_ACK_ALERT = "com.memoria.app.ACTION_ACK_ALERT";
+    // 디버그 빌드에서 상태 알림의 "지표" 버튼으로 지표 요약 알림 표시
+    public static final String ACTION_SHOW_METRICS = "com.memoria.app.ACTION_SHOW_METRICS";
+    private static final int METRICS_NOTIFICATION_ID = 2;
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+
+    private static ForegroundService instance;
 
     private final Handler handler = new Handler();
-    private final int interval = 10000; // 10초
+    // 채널 생성, 설정 읽기, 연결 예열, 알림 문구 구성은 이 스레드에서 순서대로 (메인 스레드를 막지 않도록)
+    private HandlerThread backgroundThread;
+    private Handler backgroundHandler;
+    // 결과/배터리/Doze 상태에 따라 폴링 간격 조절 (기본 10초)
+    private final AdaptivePollScheduler pollScheduler = new AdaptivePollScheduler();
+    private volatile long lastPollAtMs = 0;
+
+    private volatile boolean isForegroundStarted = false;
+    // 조회 전용 단일 스레드 + 마지막 결과 보관 (중복 방지)
+    private final FlaskFetchEngine fetchEngine = new FlaskFetchEngine();
+    // 조회 응답 파서 (조회 엔진 스레드에서만 사용, 버퍼 재사용)
+    private final StreamingJsonReader jsonReader = new StreamingJsonReader();
+    // (유형, 설명, 위치) 기준 중복 억제 + Dangerous 지속 시 재알림
+    private final AlertDispatcher alertDispatcher = new AlertDispatcher();
+    private final Runnable escalationRunnable = this::dispatchEscalations;
+    // 중복 억제, /changes 커서, 알림 판단, 기록 저장 (Android 의존 없는 부분은 monitoring-core)
+    private final ResultProcessor resultProcessor = new ResultProcessor(
+            fetchEngine, alertDispatcher, pollScheduler, metrics,
+            new ResultProcessor.Output() {
+                // 알림 실패가 결과 처리(로그 저장/웹뷰 전달)를 막지 않도록 여기서 잡음
+                @Override
+                public void showAlert(AlertDispatcher.Alert alert) {
+                    try {
+                        showAlertNotification(alert);
+                        scheduleEscalationCheck();
+                    } catch (RuntimeException e) {
+                        Log.e("ForegroundService", "Failed to show alert notification", e);
+                    }
+                }
+
+                @Override
+                public void showStatus(String notificationText) {
+                    StartupTrace.markFirstAnalysis();
+                    try {
+                        postStatusNotification(notificationText, false);
+                    } catch (RuntimeException e) {
+                        Log.e("ForegroundService", "Failed to update status notification", e);
+                    }
+                }
+
+                @Override
+                public void onLogged(long id, String behaviorType, String description, String isoTime, String location) {
+                    // 로컬 저장소에 먼저 저장해 받은 id로 웹뷰 전달 대기열에 넣어 JS 쪽에서 중복 없이 한 번만 반영되게 함
+                    ForegroundServicePlugin.enqueueAnalysisResult(id, behaviorType, description, isoTime, location);
+                }
+            },
+            this::saveAnalysisResultLocally);
+
+    // 상태 알림은 빌더를 한 번만 만들고 내용만 바꿔 재사용 (메인 스레드 밖에서도 호출되므로 잠금)
+    private final Object statusLock = new Object();
+    private NotificationCompat.Builder statusBuilder;
+    private String lastStatusText;
+    private boolean lastStatusHasSetupAction = false;
+    private boolean statusActionsReady = false;
+    // 구버전 서버(/changes 없음)면 /latest_analysis 로 폴링
+    private volatile boolean changesUnsupported = false;
+
+    // Flask 서버의 SSE 스트림 구독 (연결이 살아있는 동안은 폴링하지 않음)
+    private AnalysisStreamClient streamClient;
+    // ESP32 스트림을 직접 읽어 온디바이스로 분석 (Flask 서버 없이 동작)
+    private NativeMonitorPipeline nativePipeline;
+    private boolean isPolling = false;
+    private final Runnable pollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            lastPollAtMs = System.currentTimeMillis();
+            fetchFlaskAnalysis();
+            // 응답이 오면 결과에 맞춰 다시 예약됨 (reschedulePolling)
+            handler.postDelayed(this, pollScheduler.nextIntervalMs(lastPollAtMs));
+        }
+    };
 
-    private boolean isForegroundStarted = false;
-    private String lastAnalysisResult = ""; // 중복 방지를 위한 마지막 결과 저장
+    // 온디바이스로 감지한 이벤트를 서버로 올리는 대기열/업로더 (서버가 꺼져 있으면 디스크에 보관)
+    private volatile EventUploader eventUploader;
+    private volatile String deviceId;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    private final BroadcastReceiver powerStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            updatePowerState();
+        }
+    };
+
+    public static ForegroundService getInstance() {
+        return instance;
+    }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        instance = this;
+        backgroundThread = new HandlerThread("memoria-service-bg");
+        backgroundThread.start();
+        backgroundHandler = new Handler(backgroundThread.getLooper());
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+        registerReceiver(powerStateReceiver, filter);
+
+        registerMetricsGauges();
+        // onStartCommand 작업보다 먼저 실행되도록 가장 먼저 예약
+        backgroundHandler.post(this::setUpInBackground);
+    }
+
+    /** 시작 준비: 알림 채널, 저장된 설정(SharedPreferences 첫 로딩 포함), 업로더, Flask 연결 예열 */
+    private void setUpInBackground() {
+        long startNanos = System.nanoTime();
+        createNotificationChannel();
+        applyPollingConfig();
+        applyAlertConfig();
+        updatePowerState();
+        startEventUploader();
+        warmUpFlaskConnection();
+        metrics.histogram("service_setup_ms").recordSince(startNanos);
+        StartupTrace.markServiceReady();
+        handler.post(this::startMonitoring);
+    }
+
+    private void warmUpFlaskConnection() {
+        String baseUrl = getFlaskUrl();
+        if (baseUrl != null) {
+            fetchEngine.warmUp(baseUrl + "/latest_analysis");
+        }
+    }
+
+    /**
+     * 스트림 구독/온디바이스 분석 시작 (메인 스레드). 이미 시작된 것은 다시 시작하지 않으므로
+     * onStartCommand가 여러 번 와도 스트림/폴링은 하나만 돈다.
+     */
+    private void startMonitoring() {
+        if (instance != this) {
+            return;
+        }
+        startNativePipelineIfEnabled();
+        // 온디바이스 분석만 쓰는 경우 Flask 주소가 없어도 "주소 미설정"으로 덮어쓰지 않음
+        if (nativePipeline == null || getFlaskUrl() != null) {
+            startFlaskStreaming();
+        }
+    }
+
+    private void registerMetricsGauges() {
+        Context context = getApplicationContext();
+        metrics.gauge("log_store_rows", () -> AnalysisLogStore.getInstance(context).count());
+        metrics.gauge("outbox_pending", () -> OutboundEventQueue.getInstance(context).count());
+        metrics.gauge("outbox_bytes", () -> OutboundEventQueue.getInstance(context).totalBytes());
+        metrics.gauge("bridge_pending_events", ForegroundServicePlugin::getPendingEventCount);
+        metrics.gauge("stream_connected", () -> isStreamConnected() ? 1 : 0);
+        metrics.gauge("poll_interval_ms", () -> pollScheduler.nextIntervalMs(System.currentTimeMillis()));
+        metrics.gauge("alerts_suppressed", alertDispatcher::getSuppressedCount);
+        metrics.gauge("alerts_active_danger", alertDispatcher::getActiveDangerCount);
+        metrics.gauge("sources_known", fetchEngine::getSourceCount);
+        metrics.gauge("native_stream_fps", () -> nativePipeline != null ? Math.round(nativePipeline.getStreamFps()) : 0);
+    }
+
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private void showMetricsNotification() {
+        String summary = metrics.formatSummary();
+        Notification noti = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("Memoria 지표 (가동 " + (metrics.getUptimeMs() / 60000) + "분)")
+                .setContentText(summary.isEmpty() ? "기록 없음" : summary.split("\n", 2)[0])
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(summary))
+                .setOnlyAlertOnce(true)
+                .build();
+        NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        nm.notify(METRICS_NOTIFICATION_ID, noti);
+    }
+
+    private void startEventUploader() {
+        SharedPreferences prefs = getSharedPreferences("memoria_prefs", MODE_PRIVATE);
+        deviceId = prefs.getString("device_id", null);
+        if (deviceId == null) {
+            deviceId = java.util.UUID.randomUUID().toString();
+            prefs.edit().putString("device_id", deviceId).apply();
+        }
+        eventUploader = new EventUploader(OutboundEventQueue.getInstance(this), this::getFlaskUrl, deviceId);
+
+        // 네트워크가 돌아오면 쌓인 이벤트를 바로 올림
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    eventUploader.requestFlush();
+                }
+            };
+            try {
+                cm.registerDefaultNetworkCallback(networkCallback);
+            } catch (RuntimeException e) {
+                Log.e("ForegroundService", "Failed to register network callback", e);
+                networkCallback = null;
+            }
+        }
+        eventUploader.requestFlush();
+    }
+
+    /** 온디바이스 분석 결과를 서버 업로드 대기열에 넣음 (멱등 키는 이벤트마다 한 번만 생성) */
+    private void enqueueOutboundEvent(AnalysisResult result) {
+        try {
+            JSONObject event = new JSONObject();
+            event.put("behaviorType", result.behaviorType);
+            event.put("description", result.description);
+            event.put("timestamp", result.timestamp);
+            event.put("location", result.location);
+            event.put("source", result.source);
+            String key = deviceId + "-" + java.util.UUID.randomUUID();
+            OutboundEventQueue.getInstance(this).enqueue(key, event.toString(), System.currentTimeMillis());
+            eventUploader.requestFlush();
+        } catch (Exception e) {
+            Log.e("ForegroundService", "Failed to enqueue outbound event", e);
+        }
+    }
+
+    public EventUploader getEventUploader() {
+        return eventUploader;
+    }
+
+    /** ForegroundServicePlugin.configurePolling()으로 저장된 설정 적용 */
+    public void applyPollingConfig() {
+        SharedPreferences prefs = getSharedPreferences("memoria_prefs", MODE_PRIVATE);
+        try {
+            pollScheduler.configure(
+                    prefs.getLong("poll_min_interval_ms", AdaptivePollScheduler.DEFAULT_MIN_INTERVAL_MS),
+                    prefs.getLong("poll_base_interval_ms", AdaptivePollScheduler.DEFAULT_BASE_INTERVAL_MS),
+                    prefs.getLong("poll_max_interval_ms", AdaptivePollScheduler.DEFAULT_MAX_INTERVAL_MS),
+                    prefs.getLong("poll_alert_hold_ms", AdaptivePollScheduler.DEFAULT_ALERT_HOLD_MS)
+            );
+        } catch (IllegalArgumentException e) {
+            Log.e("ForegroundService", "Invalid polling config, keeping defaults", e);
+        }
+        reschedulePolling();
+    }
+
+    /** ForegroundServicePlugin.configureAlerts()으로 저장된 설정 적용 */
+    public void applyAlertConfig() {
+        SharedPreferences prefs = getSharedPreferences("memoria_prefs", MODE_PRIVATE);
+        try {
+            alertDispatcher.configure(
+                    prefs.getLong("alert_dedupe_window_ms", AlertDispatcher.DEFAULT_DEDUPE_WINDOW_MS),
+                    prefs.getLong("alert_escalation_interval_ms", AlertDispatcher.DEFAULT_ESCALATION_INTERVAL_MS)
+            );
+        } catch (IllegalArgumentException e) {
+            Log.e("ForegroundService", "Invalid alert config, keeping defaults", e);
+        }
+        try {
+            resultProcessor.setDefaultLocation(prefs.getString("default_location", ResultProcessor.DEFAULT_LOCATION));
+        } catch (IllegalArgumentException e) {
+            Log.e("ForegroundService", "Invalid default location, keeping " + resultProcessor.getDefaultLocation(), e);
+        }
+        scheduleEscalationCheck();
+    }
+
+    /** location/source 없는 분석 결과를 둘 위치 */
+    public String getDefaultLocation() {
+        return resultProcessor.getDefaultLocation();
+    }
+
+    public AlertDispatcher getAlertDispatcher() {
+        return alertDispatcher;
+    }
+
+    private void updatePowerState() {
+        PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (pm == null) {
+            return;
+        }
+        pollScheduler.setPowerState(pm.isPowerSaveMode(), pm.isDeviceIdleMode());
+        Log.d("ForegroundService", "Power state: powerSave=" + pm.isPowerSaveMode() + ", idle=" + pm.isDeviceIdleMode());
+        reschedulePolling();
+    }
+
+    /** 조회 결과가 반영된 새 간격으로 다음 폴링을 다시 예약 */
+    private void reschedulePolling() {
+        handler.post(() -> {
+            if (!isPolling) {
+                return;
+            }
+            handler.removeCallbacks(pollRunnable);
+            long now = System.currentTimeMillis();
+            long delay = Math.max(0, lastPollAtMs + pollScheduler.nextIntervalMs(now) - now);
+            handler.postDelayed(pollRunnable, delay);
+        });
+    }
+
+    public AdaptivePollScheduler getPollScheduler() {
+        return pollScheduler;
+    }
+
+    /** 결과를 받은 카메라/방(source) 수 */
+    public int getKnownSourceCount() {
+        return fetchEngine.getSourceCount();
+    }
+
+    public long getChangesCursor() {
+        return resultProcessor.getChangesCursor();
+    }
+
+    public boolean isPolling() {
+        return isPolling;
+    }
+
+    public boolean isStreamConnected() {
+        return streamClient != null && streamClient.isConnected();
+    }
+
+    public long getLastPollAtMs() {
+        return lastPollAtMs;
     }
 
     @SuppressLint("ObsoleteSdkInt")
@@ -57,16 +377,172 @@ public class ForegroundService extends Service {
             notiChannel.setSound(null, null);
             notiChannel.enableLights(false);
 
+            // 위험 알림 채널: 방해 금지 모드를 넘어서 소리/진동으로 즉시 알림
+            NotificationChannel alertChannel = new NotificationChannel(
+                    ALERT_CHANNEL_ID,
+                    ALERT_CHANNEL_NAME,
+                    NotificationManager.IMPORTANCE_HIGH
+            );
+            alertChannel.setDescription("낙상 등 이상/위험 행동이 감지되면 알립니다");
+            alertChannel.enableVibration(true);
+            alertChannel.setVibrationPattern(new long[]{0L, 500L, 250L, 500L});
+            alertChannel.enableLights(true);
+            alertChannel.setBypassDnd(true);
+            alertChannel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
             NotificationManager notificationManager = getSystemService(NotificationManager.class);
             notificationManager.createNotificationChannel(notiChannel);
+            notificationManager.createNotificationChannel(alertChannel);
+        }
+    }
+
+    private static int alertNotificationId(String location) {
+        return ALERT_NOTIFICATION_BASE_ID + (location.hashCode() & 0xFFFF);
+    }
+
+    /** 위험 알림: 상태 알림 갱신/로그 저장보다 먼저, 별도 채널로 바로 띄움 */
+    private void showAlertNotification(AlertDispatcher.Alert alert) {
+        String title = alert.isEscalation()
+                ? "[" + alert.location + "] 위험 상태 지속 (" + alert.escalationLevel + "차 재알림)"
+                : "[" + alert.location + "] " + ("Dangerous".equals(alert.behaviorType) ? "위험 행동 감지" : "이상 행동 감지");
+        String since = new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date(alert.firstSeenAtMs));
+        String text = alert.description.isEmpty() ? alert.behaviorType : alert.description;
+        String bigText = text + "\n처음 감지: " + since;
+
+        Intent openIntent = new Intent(this, MainActivity.class);
+        openIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent openPending = PendingIntent.getActivity(
+                this, 0, openIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, ALERT_CHANNEL_ID)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(bigText))
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setDefaults(NotificationCompat.DEFAULT_ALL)
+                .setWhen(System.currentTimeMillis())
+                .setAutoCancel(true)
+                .setContentIntent(openPending);
+
+        if ("Dangerous".equals(alert.behaviorType)) {
+            Intent ackIntent = new Intent(this, ForegroundService.class);
+            ackIntent.setAction(ACTION_ACK_ALERT);
+            ackIntent.putExtra("location", alert.location);
+            PendingIntent ackPending = PendingIntent.getService(
+                    this, alertNotificationId(alert.location), ackIntent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            builder.addAction(android.R.drawable.ic_menu_close_clear_cancel, "확인함", ackPending);
+        }
+
+        NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        nm.notify(alertNotificationId(alert.location), builder.build());
+        metrics.counter(alert.isEscalation() ? "alerts_escalated" : "alerts_sent").inc();
+        Log.d("ForegroundService", "Alert dispatched: " + title + " - " + text);
+    }
+
+    /** 진행 중인 위험 상태가 있으면 다음 재알림 시각에 맞춰 확인 예약 */
+    private void scheduleEscalationCheck() {
+        handler.post(() -> {
+            handler.removeCallbacks(escalationRunnable);
+            long wait = alertDispatcher.millisUntilNextEscalation(System.currentTimeMillis());
+            if (wait >= 0) {
+                handler.postDelayed(escalationRunnable, wait);
+            }
+        });
+    }
+
+    private void dispatchEscalations() {
+        for (AlertDispatcher.Alert alert : alertDispatcher.pollEscalations(System.currentTimeMillis())) {
+            showAlertNotification(alert);
+        }
+        scheduleEscalationCheck();
+    }
+
+    /**
+     * 상태 알림(포그라운드 알림)을 갱신한다. 빌더는 재사용하고, 내용이 같으면 다시 notify 하지 않음.
+     * @return 새로 만든 Notification (내용이 같아 건너뛰었으면 null)
+     */
+    private Notification updateStatusNotification(String notificationText, boolean showSetupAction) {
+        synchronized (statusLock) {
+            if (statusBuilder == null) {
+                statusBuilder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                        .setContentTitle("Memoria 모니터링 진행중...")
+                        .setSmallIcon(R.mipmap.ic_launcher)
+                        .setCategory(NotificationCompat.CATEGORY_STATUS)
+                        .setOnlyAlertOnce(true)
+                        .setOngoing(true);
+            }
+            if (isForegroundStarted && notificationText.equals(lastStatusText) && showSetupAction == lastStatusHasSetupAction) {
+                return null;
+            }
+            statusBuilder
+                    .setContentText(notificationText)
+                    .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationText));
+
+            if (!statusActionsReady || showSetupAction != lastStatusHasSetupAction) {
+                statusBuilder.clearActions();
+                if (showSetupAction) {
+                    Intent settingsIntent = new Intent(this, Esp32NativeSettingsActivity.class);
+                    settingsIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    PendingIntent pendingIntent = PendingIntent.getActivity(
+                        this, 0, settingsIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+                    );
+                    statusBuilder.addAction(
+                        android.R.drawable.ic_menu_edit,
+                        "주소 설정",
+                        pendingIntent
+                    );
+                }
+                if (isDebuggable()) {
+                    Intent metricsIntent = new Intent(this, ForegroundService.class);
+                    metricsIntent.setAction(ACTION_SHOW_METRICS);
+                    statusBuilder.addAction(
+                        android.R.drawable.ic_menu_info_details,
+                        "지표",
+                        PendingIntent.getService(this, METRICS_NOTIFICATION_ID, metricsIntent,
+                                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE)
+                    );
+                }
+                statusActionsReady = true;
+            }
+            lastStatusText = notificationText;
+            lastStatusHasSetupAction = showSetupAction;
+            return statusBuilder.build();
         }
     }
 
-    @SuppressLint("ObsoleteSdkInt")
     @Override
     public int onStartCommand(Intent intent, int flag, int startId) {
-        createNotificationChannel();
-        startFlaskPolling();
+        // 채널/설정 준비(setUpInBackground) 뒤에 순서대로 처리. startForeground는 어느 스레드에서 불러도 됨
+        backgroundHandler.post(() -> handleStartCommand(intent));
+        return START_STICKY;
+    }
+
+    @SuppressLint("ObsoleteSdkInt")
+    private void handleStartCommand(Intent intent) {
+        if (intent != null && ACTION_SHOW_METRICS.equals(intent.getAction())) {
+            showMetricsNotification();
+            if (isForegroundStarted) {
+                return;
+            }
+        }
+        if (intent != null && ACTION_ACK_ALERT.equals(intent.getAction())) {
+            String ackLocation = intent.getStringExtra("location");
+            if (ackLocation != null) {
+                alertDispatcher.acknowledge(ackLocation);
+                NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+                nm.cancel(alertNotificationId(ackLocation));
+                scheduleEscalationCheck();
+            }
+            if (isForegroundStarted) {
+                return;
+            }
+        }
+        // 처음 시작 후 Flask 주소/온디바이스 설정이 바뀌었을 수 있으므로 빠진 것만 시작 (이미 도는 것은 그대로)
+        handler.post(this::startMonitoring);
 
         // intent에서 BehaviorLog 데이터 가져오기
         String behaviorType = "모니터링 중...";
@@ -114,43 +590,147 @@ public class ForegroundService extends Service {
             notificationText = currentTime + "\n" + behaviorType;
         }
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Memoria 모니터링 진행중...")
-                .setContentText(notificationText)
-                .setSmallIcon(R.mipmap.ic_launcher)
-                .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationText));
-
         // 주소 미설정 시 "주소 설정" 버튼 추가
-        if ("주소 미설정".equals(behaviorType)) {
-            Intent settingsIntent = new Intent(this, Esp32NativeSettingsActivity.class);
-            settingsIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, settingsIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            builder.addAction(
-                android.R.drawable.ic_menu_edit,
-                "주소 설정",
-                pendingIntent
-            );
+        Notification noti = updateStatusNotification(notificationText, "주소 미설정".equals(behaviorType));
+
+        if(noti != null && Build.VERSION_CODES.O <= Build.VERSION.SDK_INT) {
+            startForeground(NOTIFICATION_ID, noti);
+            isForegroundStarted = true;
         }
+    }
 
-        Notification noti = builder.build();
+    private void startFlaskStreaming() {
+        if (streamClient != null) {
+            return;
+        }
+        streamClient = new AnalysisStreamClient(this::getFlaskUrl, new AnalysisStreamClient.Listener() {
+            @Override
+            public void onConnected() {
+                Log.d("ForegroundService", "Analysis stream connected, polling paused");
+                handler.post(() -> stopFlaskPolling());
+            }
 
-        if(Build.VERSION_CODES.O <= Build.VERSION.SDK_INT) {
-            startForeground(NOTIFICATION_ID, noti);
+            @Override
+            public void onDisconnected(String reason) {
+                metrics.counter("stream_disconnects").inc();
+                Log.d("ForegroundService", "Analysis stream disconnected: " + reason);
+                handler.post(() -> startFlaskPolling());
+            }
+
+            @Override
+            public void onUnsupported(int responseCode) {
+                Log.d("ForegroundService", "Analysis stream not supported (" + responseCode + "), falling back to polling");
+                handler.post(() -> startFlaskPolling());
+            }
+
+            @Override
+            public void onAnalysis(String json) {
+                metrics.counter("stream_events").inc();
+                try {
+                    handleAnalysisResponse(AnalysisResult.parse(json));
+                } catch (java.io.IOException e) {
+                    Log.e("ForegroundService", "Invalid SSE analysis payload", e);
+                }
+            }
+        });
+        streamClient.start();
+    }
+
+    /** ForegroundServicePlugin.configureNativeInference()로 바뀐 설정으로 파이프라인 재시작 */
+    public void applyNativeInferenceConfig() {
+        stopNativePipeline();
+        startNativePipelineIfEnabled();
+        if (nativePipeline == null) {
+            // 온디바이스 분석을 끄면 Flask 경로로 돌아감
+            startFlaskStreaming();
         }
+    }
 
-        return START_STICKY;
+    private void startNativePipelineIfEnabled() {
+        if (nativePipeline != null) {
+            return;
+        }
+        SharedPreferences prefs = getSharedPreferences("memoria_prefs", MODE_PRIVATE);
+        if (!prefs.getBoolean("native_inference_enabled", false)) {
+            return;
+        }
+        String streamUrl = NativeMonitorPipeline.toStreamUrl(prefs.getString("esp32_url", null));
+        if (streamUrl == null) {
+            Log.d("ForegroundService", "Native inference enabled but esp32_url is not set");
+            return;
+        }
+        long intervalMs = prefs.getLong("native_inference_interval_ms", NativeMonitorPipeline.DEFAULT_ANALYSIS_INTERVAL_MS);
+        float minScore = prefs.getFloat("native_inference_min_score", 0.5f);
+        String location = prefs.getString("native_location", ResultProcessor.DEFAULT_LOCATION);
+        Context context = getApplicationContext();
+
+        MotionGate motionGate = null;
+        if (prefs.getBoolean("native_motion_gate_enabled", true)) {
+            try {
+                motionGate = new MotionGate(
+                        prefs.getInt("native_motion_pixel_delta", MotionGate.DEFAULT_PIXEL_DELTA),
+                        prefs.getFloat("native_motion_change_ratio", MotionGate.DEFAULT_CHANGE_RATIO),
+                        prefs.getLong("native_motion_heartbeat_ms", MotionGate.DEFAULT_HEARTBEAT_MS));
+            } catch (IllegalArgumentException e) {
+                Log.e("ForegroundService", "Invalid motion gate config, using defaults", e);
+                motionGate = new MotionGate();
+            }
+        }
+
+        nativePipeline = new NativeMonitorPipeline(streamUrl, intervalMs, motionGate,
+                () -> new TfLiteFrameDetector(context, minScore, 2),
+                new NativeMonitorPipeline.Listener() {
+                    @Override
+                    public void onStateChanged(String behaviorType, String description, long timestampMs) {
+                        AnalysisResult result = new AnalysisResult(
+                                behaviorType, description, String.valueOf(timestampMs), location, "native");
+                        updateNotificationWithAnalysis(result);
+                        enqueueOutboundEvent(result);
+                    }
+
+                    @Override
+                    public void onStreamError(String reason) {
+                        Log.d("ForegroundService", "Native pipeline stream error: " + reason);
+                    }
+                });
+        nativePipeline.start();
+        Log.d("ForegroundService", "Native inference started: " + streamUrl + " every " + intervalMs + "ms");
+    }
+
+    private void stopNativePipeline() {
+        if (nativePipeline != null) {
+            nativePipeline.stop();
+            nativePipeline = null;
+        }
+    }
+
+    public NativeMonitorPipeline getNativePipeline() {
+        return nativePipeline;
     }
 
     private void startFlaskPolling() {
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                fetchFlaskAnalysis();
-                handler.postDelayed(this, interval);
+        if (isPolling) {
+            return;
+        }
+        isPolling = true;
+        // 스트림이 끊긴 직후이므로 첫 조회는 바로 수행
+        pollNow();
+    }
+
+    /** 예약된 조회를 지우고 바로 한 번 조회 (pollRunnable이 핸들러에 둘 이상 쌓이지 않도록) */
+    private void pollNow() {
+        handler.post(() -> {
+            if (!isPolling) {
+                return;
             }
-        }, interval);
+            handler.removeCallbacks(pollRunnable);
+            handler.post(pollRunnable);
+        });
+    }
+
+    private void stopFlaskPolling() {
+        isPolling = false;
+        handler.removeCallbacks(pollRunnable);
     }
 
     private String getFlaskUrl() {
@@ -164,136 +744,171 @@ public class ForegroundService extends Service {
     }
 
     private void fetchFlaskAnalysis() {
-        new Thread(() -> {
-            try {
-                String baseUrl = getFlaskUrl();
-                Log.d("ForegroundService", "fetchFlaskAnalysis() - baseUrl: " + baseUrl);
-                if (baseUrl == null) {
-                    updateNotificationWithAnalysis("{\"behaviorType\":\"주소 미설정\",\"description\":\"Flask 주소를 앱에서 설정하세요.\",\"timestamp\":\"\"}");
-                    return;
-                }
-                Log.d("ForegroundService", "Polling Flask: " + baseUrl + "/latest_analysis");
-                URL url = new URL(baseUrl + "/latest_analysis");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(2000);
-                conn.setReadTimeout(2000);
-
-                int responseCode = conn.getResponseCode();
+        String baseUrl = getFlaskUrl();
+        Log.d("ForegroundService", "fetchFlaskAnalysis() - baseUrl: " + baseUrl);
+        if (baseUrl == null) {
+            showMonitorError(MonitorError.notConfigured());
+            return;
+        }
+        final boolean useChanges = !changesUnsupported;
+        String url = useChanges
+                ? baseUrl + "/changes?since=" + resultProcessor.getChangesCursor()
+                : baseUrl + "/latest_analysis";
+        Log.d("ForegroundService", "Polling Flask: " + url);
+        final long startNanos = System.nanoTime();
+        boolean scheduled = fetchEngine.fetch(url, new FlaskFetchEngine.StreamCallback() {
+            @Override
+            public void onResponse(int responseCode, java.io.InputStream body) {
                 Log.d("ForegroundService", "Flask response code: " + responseCode);
+                // 응답 헤더까지의 지연 (본문 파싱 포함 전)
+                metrics.histogram("poll_latency_ms").recordSince(startNanos);
+                metrics.counter("poll_http_status_" + responseCode).inc();
                 if (responseCode == 200) {
-                    BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                    String inputLine;
-                    StringBuilder response = new StringBuilder();
-                    while ((inputLine = in.readLine()) != null) {
-                        response.append(inputLine);
-                    }
-                    in.close();
-                    String responseStr = response.toString();
-                    Log.d("ForegroundService", "Flask response: " + responseStr);
-                    
-                    // 중복 방지: 동일한 결과는 처리하지 않음
-                    if (!responseStr.equals(lastAnalysisResult)) {
-                        lastAnalysisResult = responseStr;
-                        updateNotificationWithAnalysis(responseStr);
+                    // 본문을 String/JSONObject로 만들지 않고 스트림에서 필요한 필드만 읽음 (엔진 스레드 전용 리더 재사용)
+                    try {
+                        jsonReader.reset(body);
+                        if (useChanges) {
+                            handleChangesResponse(AnalysisResult.readChanges(jsonReader));
+                        } else {
+                            handleAnalysisResponse(AnalysisResult.read(jsonReader));
+                        }
+                    } catch (java.io.IOException e) {
+                        Log.e("ForegroundService", "Invalid Flask response", e);
+                        metrics.counter("poll_invalid_responses").inc();
+                        pollScheduler.onFailure();
+                        showMonitorError(MonitorError.invalidResponse(e));
+                        reschedulePolling();
                     }
+                } else if (useChanges && responseCode == 404) {
+                    Log.d("ForegroundService", "Flask server has no /changes, falling back to /latest_analysis");
+                    changesUnsupported = true;
+                    pollNow();
                 } else {
-                    updateNotificationWithAnalysis("{\"behaviorType\":\"Flask 연결 실패\",\"description\":\"응답 코드: " + responseCode + "\",\"timestamp\":\"\"}");
+                    pollScheduler.onFailure();
+                    showMonitorError(MonitorError.httpError(responseCode));
+                    reschedulePolling();
                 }
-            } catch (Exception e) {
-                Log.e("ForegroundService", "Flask fetch error", e);
-                updateNotificationWithAnalysis("{\"behaviorType\":\"Flask 연결 실패\",\"description\":\"" + e.getMessage() + "\",\"timestamp\":\"\"}");
             }
-        }).start();
-    }
-
-    private void updateNotificationWithAnalysis(String json) {
-        try {
-            JSONObject obj = new JSONObject(json);
-            String behaviorType = obj.optString("behaviorType", "모니터링 중...");
-            String description = obj.optString("description", "");
-            String timestamp = obj.optString("timestamp", "");
 
-            // 시간 포맷 변환 (millis → HH:mm:ss)
-            String currentTime;
-            try {
-                long millis = Long.parseLong(timestamp);
-                java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.getDefault());
-                currentTime = sdf.format(new java.util.Date(millis));
-            } catch (Exception e) {
-                currentTime = new java.text.SimpleDateFormat("HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
+            @Override
+            public void onNotModified() {
+                metrics.histogram("poll_latency_ms").recordSince(startNanos);
+                metrics.counter("poll_http_status_304").inc();
+                // 변경 없음: 본문 읽기/JSON 파싱 없이 간격만 조정
+                pollScheduler.onUnchanged();
+                reschedulePolling();
             }
 
-            // 알림 텍스트 구성
-            String notificationText = "마지막 분석: " + currentTime;
-            if (!description.isEmpty()) {
-                notificationText += "\n" + behaviorType + ": " + description;
-            } else {
-                notificationText += "\n" + behaviorType;
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("ForegroundService", "Flask fetch error", e);
+                metrics.counter("poll_failures").inc();
+                pollScheduler.onFailure();
+                showMonitorError(MonitorError.networkError(e));
+                reschedulePolling();
             }
+        });
+        if (!scheduled) {
+            metrics.counter("poll_skipped_in_flight").inc();
+            Log.d("ForegroundService", "Previous fetch still in flight, skipping this tick");
+        }
+    }
 
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                    .setContentTitle("Memoria 모니터링 진행중...")
-                    .setContentText(notificationText)
-                    .setSmallIcon(R.mipmap.ic_launcher)
-                    .setStyle(new NotificationCompat.BigTextStyle().bigText(notificationText));
+    private void handleAnalysisResponse(AnalysisResult result) {
+        Log.d("ForegroundService", "Flask result: " + result);
+        eventUploader.onServerReachable();
+        if (resultProcessor.publish(result)) {
+            pollScheduler.onChanged();
+        } else {
+            pollScheduler.onUnchanged();
+        }
+        reschedulePolling();
+    }
 
-            if ("주소 미설정".equals(behaviorType)) {
-                Intent settingsIntent = new Intent(this, Esp32NativeSettingsActivity.class);
-                settingsIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                PendingIntent pendingIntent = PendingIntent.getActivity(
-                    this, 0, settingsIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                );
-                builder.addAction(
-                    android.R.drawable.ic_menu_edit,
-                    "주소 설정",
-                    pendingIntent
-                );
-            }
-            Notification noti = builder.build();
+    private void handleChangesResponse(AnalysisResult.Changes changes) {
+        eventUploader.onServerReachable();
+        ResultProcessor.ChangesOutcome outcome = resultProcessor.applyChanges(changes);
+        if (outcome == ResultProcessor.ChangesOutcome.SERVER_RESTARTED) {
+            Log.d("ForegroundService", "Flask event store changed (bootId), resetting changes cursor");
+            pollNow();
+            return;
+        }
+        if (outcome == ResultProcessor.ChangesOutcome.CHANGED) {
+            pollScheduler.onChanged();
+        } else {
+            pollScheduler.onUnchanged();
+        }
+        reschedulePolling();
+    }
 
-            NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-            nm.notify(NOTIFICATION_ID, noti);
+    /** 상태 알림(포그라운드 알림)을 갱신하고, 처음이면 포그라운드로 전환 */
+    private void postStatusNotification(String notificationText, boolean showSetupAction) {
+        Notification noti = updateStatusNotification(notificationText, showSetupAction);
+        if (noti == null) {
+            return;
+        }
+        NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        nm.notify(NOTIFICATION_ID, noti);
 
-            if (!isForegroundStarted) {
-                startForeground(NOTIFICATION_ID, noti);
-                isForegroundStarted = true;
-            }
+        if (!isForegroundStarted) {
+            startForeground(NOTIFICATION_ID, noti);
+            isForegroundStarted = true;
+        }
+    }
 
-            // 이상/위험행동이면 JS로 이벤트 전송하여 앱 로그에 저장
-            if ("Abnormal".equals(behaviorType) || "Dangerous".equals(behaviorType)) {
-                // 현재 시간을 ISO 형식으로 변환
-                String isoTime = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
-                
-                ForegroundServicePlugin plugin = ForegroundServicePlugin.getInstance();
-                if (plugin != null) {
-                    plugin.sendAnalysisResultToJS(behaviorType, description, isoTime, "거실");
-                }
-                
-                // 로컬 저장소에도 저장 (앱이 꺼져있어도)
-                saveAnalysisResultLocally(behaviorType, description, isoTime, "거실");
-            }
+    /** 오류 상태는 알림에만 표시 (알림 디스패처/로그 저장 대상 아님) */
+    private void showMonitorError(MonitorError error) {
+        String notificationText = "마지막 분석: " + ResultProcessor.formatClock("") + "\n" + error.title() + ": " + error.detail;
+        postStatusNotification(notificationText, error.kind == MonitorError.Kind.NOT_CONFIGURED);
+    }
+
+    /** 중복 확인 없이 바로 처리 (온디바이스 분석 상태 변화) */
+    private void updateNotificationWithAnalysis(AnalysisResult result) {
+        try {
+            resultProcessor.handle(result);
         } catch (Exception e) {
             Log.e("ForegroundService", "updateNotificationWithAnalysis error", e);
         }
     }
 
-    private void saveAnalysisResultLocally(String behaviorType, String description, String timestamp, String location) {
+    private long saveAnalysisResultLocally(String behaviorType, String description, String location, String timestamp, long timestampMs) {
         try {
-            SharedPreferences prefs = getSharedPreferences("memoria_logs", MODE_PRIVATE);
-            String key = "log_" + System.currentTimeMillis();
-            
-            JSONObject logEntry = new JSONObject();
-            logEntry.put("id", key);
-            logEntry.put("type", behaviorType);
-            logEntry.put("description", description);
-            logEntry.put("location", location);
-            logEntry.put("timestamp", timestamp);
-            
-            prefs.edit().putString(key, logEntry.toString()).apply();
-            Log.d("ForegroundService", "Saved analysis result locally: " + logEntry.toString());
+            long id = AnalysisLogStore.getInstance(this)
+                    .append(behaviorType, description, location, timestamp, timestampMs);
+            Log.d("ForegroundService", "Saved analysis result locally: id=" + id + ", " + behaviorType + ": " + description);
+            return id;
         } catch (Exception e) {
             Log.e("ForegroundService", "Failed to save analysis result locally", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        instance = null;
+        unregisterReceiver(powerStateReceiver);
+        stopFlaskPolling();
+        stopNativePipeline();
+        handler.removeCallbacks(escalationRunnable);
+        // 업로더/네트워크 콜백은 setUpInBackground에서 만들므로 같은 스레드에서 그 뒤에 정리
+        backgroundHandler.post(this::tearDownInBackground);
+        backgroundThread.quitSafely();
+        if (streamClient != null) {
+            streamClient.stop();
+            streamClient = null;
+        }
+        fetchEngine.shutdown();
+        super.onDestroy();
+    }
+
+    private void tearDownInBackground() {
+        if (networkCallback != null) {
+            ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+            cm.unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+        }
+        if (eventUploader != null) {
+            eventUploader.shutdown();
         }
     }
 
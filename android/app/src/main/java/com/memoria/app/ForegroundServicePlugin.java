@@ -3,6 +3,7 @@ package com.memoria.app;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -15,6 +16,12 @@ public class ForegroundServicePlugin extends Plugin {
 
     private static ForegroundServicePlugin instance;
 
+    // 웹뷰로 아직 전달하지 못한 분석 이벤트 (프로세스 전역, 플러그인 인스턴스와 무관)
+    private static final java.util.ArrayDeque<PendingEvent> pendingEvents = new java.util.ArrayDeque<>();
+    private static final int MAX_PENDING_EVENTS = 200;
+
+    private volatile boolean webViewActive = false;
+
     public ForegroundServicePlugin() {
         instance = this;
     }
@@ -75,56 +82,441 @@ public class ForegroundServicePlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void configurePolling(PluginCall call) {
+        try {
+            SharedPreferences prefs = getContext().getSharedPreferences("memoria_prefs", Context.MODE_PRIVATE);
+            long minMs = call.getLong("minIntervalMs", prefs.getLong("poll_min_interval_ms", AdaptivePollScheduler.DEFAULT_MIN_INTERVAL_MS));
+            long baseMs = call.getLong("baseIntervalMs", prefs.getLong("poll_base_interval_ms", AdaptivePollScheduler.DEFAULT_BASE_INTERVAL_MS));
+            long maxMs = call.getLong("maxIntervalMs", prefs.getLong("poll_max_interval_ms", AdaptivePollScheduler.DEFAULT_MAX_INTERVAL_MS));
+            long alertHoldMs = call.getLong("alertHoldMs", prefs.getLong("poll_alert_hold_ms", AdaptivePollScheduler.DEFAULT_ALERT_HOLD_MS));
+
+            // 저장 전에 값 검증
+            new AdaptivePollScheduler().configure(minMs, baseMs, maxMs, alertHoldMs);
+
+            prefs.edit()
+                    .putLong("poll_min_interval_ms", minMs)
+                    .putLong("poll_base_interval_ms", baseMs)
+                    .putLong("poll_max_interval_ms", maxMs)
+                    .putLong("poll_alert_hold_ms", alertHoldMs)
+                    .apply();
+
+            ForegroundService service = ForegroundService.getInstance();
+            if (service != null) {
+                service.applyPollingConfig();
+            }
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("폴링 설정 값이 올바르지 않음", e);
+        }
+    }
+
+    @PluginMethod
+    public void configureAlerts(PluginCall call) {
+        try {
+            SharedPreferences prefs = getContext().getSharedPreferences("memoria_prefs", Context.MODE_PRIVATE);
+            long dedupeWindowMs = call.getLong("dedupeWindowMs", prefs.getLong("alert_dedupe_window_ms", AlertDispatcher.DEFAULT_DEDUPE_WINDOW_MS));
+            long escalationIntervalMs = call.getLong("escalationIntervalMs", prefs.getLong("alert_escalation_interval_ms", AlertDispatcher.DEFAULT_ESCALATION_INTERVAL_MS));
+            String defaultLocation = call.getString("defaultLocation", prefs.getString("default_location", ResultProcessor.DEFAULT_LOCATION));
+
+            // 저장 전에 값 검증
+            new AlertDispatcher(dedupeWindowMs, escalationIntervalMs);
+            if (defaultLocation == null || defaultLocation.trim().isEmpty()) {
+                throw new IllegalArgumentException("defaultLocation must not be empty");
+            }
+
+            prefs.edit()
+                    .putLong("alert_dedupe_window_ms", dedupeWindowMs)
+                    .putLong("alert_escalation_interval_ms", escalationIntervalMs)
+                    .putString("default_location", defaultLocation.trim())
+                    .apply();
+
+            ForegroundService service = ForegroundService.getInstance();
+            if (service != null) {
+                service.applyAlertConfig();
+            }
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("알림 설정 값이 올바르지 않음", e);
+        }
+    }
+
+    @PluginMethod
+    public void getAlertStatus(PluginCall call) {
+        ForegroundService service = ForegroundService.getInstance();
+        if (service == null) {
+            call.reject("포그라운드 서비스가 실행 중이 아님");
+            return;
+        }
+        AlertDispatcher dispatcher = service.getAlertDispatcher();
+        JSObject result = new JSObject();
+        result.put("dedupeWindowMs", dispatcher.getDedupeWindowMs());
+        result.put("escalationIntervalMs", dispatcher.getEscalationIntervalMs());
+        result.put("defaultLocation", service.getDefaultLocation());
+        result.put("activeDangerCount", dispatcher.getActiveDangerCount());
+        result.put("sent", dispatcher.getSentCount());
+        result.put("suppressed", dispatcher.getSuppressedCount());
+        result.put("escalated", dispatcher.getEscalatedCount());
+        call.resolve(result);
+    }
+
+    /** 웹뷰 전달 대기 중인 이벤트 수 (지표용) */
+    static int getPendingEventCount() {
+        synchronized (pendingEvents) {
+            return pendingEvents.size();
+        }
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        JSObject counters = new JSObject();
+        for (java.util.Map.Entry<String, Long> e : metrics.counterValues().entrySet()) {
+            counters.put(e.getKey(), e.getValue());
+        }
+        JSObject gauges = new JSObject();
+        for (java.util.Map.Entry<String, Long> e : metrics.gaugeValues().entrySet()) {
+            gauges.put(e.getKey(), e.getValue());
+        }
+        JSObject histograms = new JSObject();
+        for (java.util.Map.Entry<String, MetricsRegistry.Histogram> e : metrics.histograms().entrySet()) {
+            MetricsRegistry.Histogram h = e.getValue();
+            JSObject obj = new JSObject();
+            obj.put("count", h.getCount());
+            obj.put("sumMs", h.getSumMs());
+            obj.put("maxMs", h.getMaxMs());
+            obj.put("p50Ms", h.percentile(0.5));
+            obj.put("p95Ms", h.percentile(0.95));
+            obj.put("p99Ms", h.percentile(0.99));
+            JSArray bounds = new JSArray();
+            for (long b : h.getBounds()) {
+                bounds.put(b);
+            }
+            JSArray buckets = new JSArray();
+            for (long n : h.getBucketCounts()) {
+                buckets.put(n);
+            }
+            obj.put("boundsMs", bounds);
+            obj.put("buckets", buckets);
+            histograms.put(e.getKey(), obj);
+        }
+        JSObject result = new JSObject();
+        result.put("uptimeMs", metrics.getUptimeMs());
+        result.put("counters", counters);
+        result.put("gauges", gauges);
+        result.put("histograms", histograms);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getSyncStatus(PluginCall call) {
+        ForegroundService service = ForegroundService.getInstance();
+        EventUploader uploader = service != null ? service.getEventUploader() : null;
+        OutboundEventQueue queue = OutboundEventQueue.getInstance(getContext());
+        JSObject result = new JSObject();
+        result.put("pending", queue.count());
+        result.put("pendingBytes", queue.totalBytes());
+        result.put("evicted", queue.getEvictedCount());
+        result.put("uploaded", uploader != null ? uploader.getUploadedCount() : 0);
+        result.put("batches", uploader != null ? uploader.getBatchCount() : 0);
+        result.put("failedBatches", uploader != null ? uploader.getFailedCount() : 0);
+        result.put("dropped", uploader != null ? uploader.getDroppedCount() : 0);
+        result.put("compressedBytesSent", uploader != null ? uploader.getCompressedBytesSent() : 0);
+        result.put("lastUploadAt", uploader != null ? uploader.getLastUploadAtMs() : 0);
+        result.put("lastError", uploader != null ? uploader.getLastError() : "");
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void configureNativeInference(PluginCall call) {
+        SharedPreferences prefs = getContext().getSharedPreferences("memoria_prefs", Context.MODE_PRIVATE);
+        boolean enabled = call.getBoolean("enabled", prefs.getBoolean("native_inference_enabled", false));
+        String esp32Url = call.getString("esp32Url", prefs.getString("esp32_url", ""));
+        long intervalMs = call.getLong("intervalMs", prefs.getLong("native_inference_interval_ms", NativeMonitorPipeline.DEFAULT_ANALYSIS_INTERVAL_MS));
+        float minScore = call.getFloat("minScore", prefs.getFloat("native_inference_min_score", 0.5f));
+        boolean motionGate = call.getBoolean("motionGate", prefs.getBoolean("native_motion_gate_enabled", true));
+        float motionChangeRatio = call.getFloat("motionChangeRatio", prefs.getFloat("native_motion_change_ratio", MotionGate.DEFAULT_CHANGE_RATIO));
+        long motionHeartbeatMs = call.getLong("motionHeartbeatMs", prefs.getLong("native_motion_heartbeat_ms", MotionGate.DEFAULT_HEARTBEAT_MS));
+        String location = call.getString("location", prefs.getString("native_location", ResultProcessor.DEFAULT_LOCATION));
+
+        try {
+            // 저장 전에 값 검증
+            new MotionGate(MotionGate.DEFAULT_PIXEL_DELTA, motionChangeRatio, motionHeartbeatMs);
+        } catch (IllegalArgumentException e) {
+            call.reject("움직임 게이트 설정 값이 올바르지 않음", e);
+            return;
+        }
+        if (enabled && NativeMonitorPipeline.toStreamUrl(esp32Url) == null) {
+            call.reject("ESP32 주소가 올바르지 않음");
+            return;
+        }
+        if (intervalMs < 100 || minScore <= 0f || minScore >= 1f || location == null || location.trim().isEmpty()) {
+            call.reject("온디바이스 분석 설정 값이 올바르지 않음");
+            return;
+        }
+
+        prefs.edit()
+                .putBoolean("native_inference_enabled", enabled)
+                .putString("esp32_url", esp32Url)
+                .putLong("native_inference_interval_ms", intervalMs)
+                .putFloat("native_inference_min_score", minScore)
+                .putBoolean("native_motion_gate_enabled", motionGate)
+                .putFloat("native_motion_change_ratio", motionChangeRatio)
+                .putLong("native_motion_heartbeat_ms", motionHeartbeatMs)
+                .putString("native_location", location.trim())
+                .apply();
+        Log.d("ForegroundServicePlugin", "configureNativeInference: enabled=" + enabled + ", esp32Url=" + esp32Url);
+
+        ForegroundService service = ForegroundService.getInstance();
+        if (service != null) {
+            service.applyNativeInferenceConfig();
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getNativeInferenceStatus(PluginCall call) {
+        ForegroundService service = ForegroundService.getInstance();
+        NativeMonitorPipeline pipeline = service != null ? service.getNativePipeline() : null;
+        SharedPreferences prefs = getContext().getSharedPreferences("memoria_prefs", Context.MODE_PRIVATE);
+        JSObject result = new JSObject();
+        result.put("enabled", prefs.getBoolean("native_inference_enabled", false));
+        result.put("esp32Url", prefs.getString("esp32_url", ""));
+        result.put("intervalMs", prefs.getLong("native_inference_interval_ms", NativeMonitorPipeline.DEFAULT_ANALYSIS_INTERVAL_MS));
+        result.put("location", prefs.getString("native_location", ResultProcessor.DEFAULT_LOCATION));
+        result.put("running", pipeline != null && pipeline.isRunning());
+        result.put("receivedFrames", pipeline != null ? pipeline.getReceivedFrames() : 0);
+        result.put("analyzedFrames", pipeline != null ? pipeline.getAnalyzedFrames() : 0);
+        result.put("droppedFrames", pipeline != null ? pipeline.getDroppedFrames() : 0);
+        result.put("streamFps", pipeline != null ? pipeline.getStreamFps() : 0);
+        result.put("streamBytesPerSecond", pipeline != null ? pipeline.getStreamBytesPerSecond() : 0);
+        MotionGate gate = pipeline != null ? pipeline.getMotionGate() : null;
+        result.put("motionGateEnabled", gate != null);
+        result.put("motionAnalyzed", gate != null ? gate.getAnalyzedCount() : 0);
+        result.put("motionSkipped", gate != null ? gate.getSkippedCount() : 0);
+        result.put("motionLastChange", gate != null ? gate.getLastChange() : 0);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getPollingStatus(PluginCall call) {
+        ForegroundService service = ForegroundService.getInstance();
+        if (service == null) {
+            call.reject("포그라운드 서비스가 실행 중이 아님");
+            return;
+        }
+        AdaptivePollScheduler scheduler = service.getPollScheduler();
+        long now = System.currentTimeMillis();
+
+        JSObject result = new JSObject();
+        result.put("streamConnected", service.isStreamConnected());
+        result.put("polling", service.isPolling());
+        result.put("currentIntervalMs", scheduler.nextIntervalMs(now));
+        result.put("reason", scheduler.currentReason(now));
+        result.put("powerSaveMode", scheduler.isPowerSaveMode());
+        result.put("deviceIdle", scheduler.isDeviceIdle());
+        result.put("lastPollAt", service.getLastPollAtMs());
+        result.put("minIntervalMs", scheduler.getMinIntervalMs());
+        result.put("baseIntervalMs", scheduler.getBaseIntervalMs());
+        result.put("maxIntervalMs", scheduler.getMaxIntervalMs());
+        result.put("alertHoldMs", scheduler.getAlertHoldMs());
+        result.put("sourceCount", service.getKnownSourceCount());
+        result.put("changesCursor", service.getChangesCursor());
+        call.resolve(result);
+    }
+
+    // 한 번에 브리지로 넘기는 최대 로그 수
+    private static final int MAX_LOG_PAGE_SIZE = 500;
+    private static final int DEFAULT_LOG_PAGE_SIZE = 100;
+
     @PluginMethod
     public void getLocalLogs(PluginCall call) {
         try {
-            SharedPreferences prefs = getContext().getSharedPreferences("memoria_logs", Context.MODE_PRIVATE);
-            JSObject result = new JSObject();
-            
-            // 모든 로그 키 가져오기
-            java.util.Map<String, ?> allPrefs = prefs.getAll();
-            java.util.List<String> logs = new java.util.ArrayList<>();
-            
-            for (java.util.Map.Entry<String, ?> entry : allPrefs.entrySet()) {
-                if (entry.getKey().startsWith("log_")) {
-                    logs.add(entry.getValue().toString());
-                }
+            long sinceId = call.getLong("sinceId", 0L);
+            int limit = Math.max(1, Math.min(call.getInt("limit", DEFAULT_LOG_PAGE_SIZE), MAX_LOG_PAGE_SIZE));
+
+            // 한 건 더 읽어서 다음 페이지 존재 여부 판단
+            java.util.List<AnalysisLogStore.Entry> entries = AnalysisLogStore.getInstance(getContext()).queryAfter(sinceId, limit + 1);
+            boolean hasMore = entries.size() > limit;
+            if (hasMore) {
+                entries = entries.subList(0, limit);
+            }
+
+            JSArray logs = new JSArray();
+            long nextSinceId = sinceId;
+            for (AnalysisLogStore.Entry entry : entries) {
+                logs.put(entry.toJson());
+                nextSinceId = entry.id;
             }
-            
+
+            JSObject result = new JSObject();
             result.put("logs", logs);
+            result.put("nextSinceId", nextSinceId);
+            result.put("hasMore", hasMore);
             call.resolve(result);
         } catch (Exception e) {
             call.reject("로컬 로그 가져오기 실패", e);
         }
     }
 
+    @PluginMethod
+    public void getLogCount(PluginCall call) {
+        try {
+            AnalysisLogStore store = AnalysisLogStore.getInstance(getContext());
+            Long sinceId = call.getLong("sinceId");
+            JSObject result = new JSObject();
+            result.put("count", sinceId != null ? store.countAfter(sinceId) : store.count());
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("로컬 로그 개수 조회 실패", e);
+        }
+    }
+
+    @PluginMethod
+    public void getLogSummary(PluginCall call) {
+        try {
+            call.resolve(JSObject.fromJSONObject(AnalysisLogStore.getInstance(getContext()).summary()));
+        } catch (Exception e) {
+            call.reject("로컬 로그 요약 조회 실패", e);
+        }
+    }
+
     @PluginMethod
     public void clearLocalLogs(PluginCall call) {
         try {
-            SharedPreferences prefs = getContext().getSharedPreferences("memoria_logs", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            
-            // 모든 로그 키 삭제
-            java.util.Map<String, ?> allPrefs = prefs.getAll();
-            for (String key : allPrefs.keySet()) {
-                if (key.startsWith("log_")) {
-                    editor.remove(key);
-                }
+            AnalysisLogStore store = AnalysisLogStore.getInstance(getContext());
+            Long beforeId = call.getLong("beforeId");
+            JSObject result = new JSObject();
+            if (beforeId != null) {
+                result.put("removed", store.deleteBefore(beforeId));
+            } else {
+                store.clear();
             }
-            editor.apply();
-            
-            call.resolve();
+            call.resolve(result);
         } catch (Exception e) {
             call.reject("로컬 로그 삭제 실패", e);
         }
     }
 
-    public void sendAnalysisResultToJS(String behaviorType, String description, String timestamp, String location) {
+    @PluginMethod
+    public void flushAnalysisResults(PluginCall call) {
+        // JS가 analysisResults 리스너를 등록한 직후 호출해 그동안 쌓인 이벤트를 받음
+        flushPendingEvents();
+        call.resolve();
+    }
+
+    @Override
+    public void load() {
+        webViewActive = true;
+        flushPendingEvents();
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        webViewActive = true;
+        flushPendingEvents();
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        // 백그라운드 동안은 브리지 호출 없이 대기열에만 쌓음
+        webViewActive = false;
+    }
+
+    /**
+     * 서비스에서 감지한 이상/위험 이벤트를 웹뷰 전달 대기열에 넣는다.
+     * 플러그인 인스턴스가 없거나 웹뷰가 백그라운드여도 호출 가능하며,
+     * 직전 대기 이벤트와 내용(type, description, location)이 같으면 하나로 합친다.
+     * @param id AnalysisLogStore 로그 id (JS 쪽 중복 제거 기준)
+     */
+    public static void enqueueAnalysisResult(long id, String behaviorType, String description, String timestamp, String location) {
+        MetricsRegistry.getInstance().counter("bridge_events_enqueued").inc();
+        synchronized (pendingEvents) {
+            PendingEvent last = pendingEvents.peekLast();
+            if (last != null && last.sameContent(behaviorType, description, location)) {
+                last.merge(id, timestamp);
+                MetricsRegistry.getInstance().counter("bridge_events_merged").inc();
+            } else {
+                pendingEvents.addLast(new PendingEvent(id, behaviorType, description, timestamp, location));
+                // 넘치는 오래된 이벤트는 버려도 로그 저장소 동기화(getLocalLogs)로 복구됨
+                while (pendingEvents.size() > MAX_PENDING_EVENTS) {
+                    pendingEvents.pollFirst();
+                }
+            }
+        }
+        ForegroundServicePlugin plugin = instance;
+        if (plugin != null) {
+            plugin.flushPendingEvents();
+        }
+    }
+
+    private void flushPendingEvents() {
+        if (!webViewActive || !hasListeners("analysisResults")) {
+            return;
+        }
+        JSArray events = new JSArray();
+        synchronized (pendingEvents) {
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+            for (PendingEvent event : pendingEvents) {
+                events.put(event.toJSObject());
+            }
+            pendingEvents.clear();
+        }
         JSObject data = new JSObject();
-        data.put("behaviorType", behaviorType);
-        data.put("description", description);
-        data.put("timestamp", timestamp);
-        data.put("location", location);
-        notifyListeners("analysisResult", data);
+        data.put("events", events);
+        long start = System.nanoTime();
+        notifyListeners("analysisResults", data);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.histogram("bridge_delivery_ms").recordSince(start);
+        metrics.counter("bridge_deliveries").inc();
+        metrics.counter("bridge_events_delivered").add(events.length());
+        Log.d("ForegroundServicePlugin", "Delivered " + events.length() + " analysis events to JS");
+    }
+
+    private static class PendingEvent {
+        final long firstId;
+        long id;
+        final String behaviorType;
+        final String description;
+        final String location;
+        String timestamp;
+        int repeatCount = 1;
+
+        PendingEvent(long id, String behaviorType, String description, String timestamp, String location) {
+            this.firstId = id;
+            this.id = id;
+            this.behaviorType = behaviorType;
+            this.description = description;
+            this.timestamp = timestamp;
+            this.location = location;
+        }
+
+        boolean sameContent(String behaviorType, String description, String location) {
+            return this.behaviorType.equals(behaviorType)
+                    && this.description.equals(description)
+                    && this.location.equals(location);
+        }
+
+        void merge(long id, String timestamp) {
+            this.id = Math.max(this.id, id);
+            this.timestamp = timestamp;
+            repeatCount++;
+        }
+
+        JSObject toJSObject() {
+            JSObject obj = new JSObject();
+            obj.put("id", id);
+            obj.put("firstId", firstId);
+            obj.put("behaviorType", behaviorType);
+            obj.put("description", description);
+            obj.put("timestamp", timestamp);
+            obj.put("location", location);
+            obj.put("repeatCount", repeatCount);
+            return obj;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package com.memoria.app;
+
+import android.graphics.Bitmap;
+
+/**
+ * 카메라 프레임 한 장에서 사람을 찾는 온디바이스 검출기.
+ * 구현체는 한 스레드(NativeMonitorPipeline)에서만 호출된다고 가정한다.
+ */
+public interface FrameDetector {
+
+    /** 가장 확실한 사람 한 명의 검출 결과 (좌표는 0~1 정규화) */
+    class Detection {
+        public static final Detection NONE = new Detection(false, 0f, 0f, 0f, 0f, 0f);
+
+        public final boolean personFound;
+        public final float score;
+        public final float left;
+        public final float top;
+        public final float right;
+        public final float bottom;
+
+        public Detection(boolean personFound, float score, float left, float top, float right, float bottom) {
+            this.personFound = personFound;
+            this.score = score;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        /** 가로/세로 비율 (누워 있으면 1보다 큼) */
+        public float aspectRatio() {
+            float height = bottom - top;
+            return height > 0 ? (right - left) / height : 0f;
+        }
+    }
+
+    Detection detect(Bitmap frame);
+
+    void close();
+}
@@ -3,6 +3,8 @@ package com.memoria.app;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import com.getcapacitor.BridgeActivity;
 import com.getcapacitor.JSObject;
 import com.memoria.app.ForegroundServicePlugin;
@@ -10,20 +12,53 @@ import com.memoria.app.ForegroundServicePlugin;
 public class MainActivity extends BridgeActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        StartupTrace.markLaunch();
 
-        // 커스텀 플러그인 등록
+        // 커스텀 플러그인 등록 (브리지가 만들어지는 super.onCreate 전에 해야 함)
         registerPlugin(ForegroundServicePlugin.class);
+        super.onCreate(savedInstanceState);
+
+        // 포그라운드 서비스는 첫 프레임을 그린 뒤 시작 (웹뷰 준비와 메인 스레드를 다투지 않도록)
+        runAfterFirstFrame(this::startMonitoringService);
+
+        handleIntent(getIntent());
+    }
 
-        // 앱 시작 시 포그라운드 서비스 실행
+    private void runAfterFirstFrame(Runnable action) {
+        View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean fired = false;
+
+            @Override
+            public void onDraw() {
+                if (fired) {
+                    return;
+                }
+                fired = true;
+                StartupTrace.markFirstFrame();
+                // onDraw 안에서는 리스너를 뗄 수 없으므로 다음 메시지에서 처리
+                decorView.post(() -> {
+                    ViewTreeObserver observer = decorView.getViewTreeObserver();
+                    if (observer.isAlive()) {
+                        observer.removeOnDrawListener(this);
+                    }
+                    action.run();
+                });
+            }
+        });
+    }
+
+    private void startMonitoringService() {
+        // 이미 실행 중이면 다시 시작하지 않음 (화면 재생성 시 onStartCommand 반복 방지)
+        if (ForegroundService.getInstance() != null) {
+            return;
+        }
         Intent serviceIntent = new Intent(this, ForegroundService.class);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             startForegroundService(serviceIntent);
         } else {
             startService(serviceIntent);
         }
-
-        handleIntent(getIntent());
     }
 
     @Override
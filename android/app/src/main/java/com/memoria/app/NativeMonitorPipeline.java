@@ -0,0 +1,379 @@
+package com.memoria.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * ESP32 MJPEG 스트림을 직접 읽어 온디바이스로 분석하는 파이프라인.
+ * 브라우저 캔버스 → base64 → Flask/Gemini 경로 없이 서비스 안에서
+ * 스트림 수신(전용 스레드) → JPEG 디코딩(비트맵 재사용) → 사람/낙상 검출 → 상태 변화 알림까지 처리한다.
+ * - 수신 스레드는 최신 프레임만 남기고, 분석 간격보다 빨리 들어온 프레임은 디코딩 없이 버림
+ * - 움직임 게이트(MotionGate)로 장면 변화가 없는 프레임은 추론하지 않음
+ * - 상태(정상/사람 없음/낙상 의심)가 바뀔 때만 Listener 호출
+ * - 연결이 끊기면 지수 백오프로 재연결
+ */
+public class NativeMonitorPipeline {
+
+    public interface Listener {
+        /** 분석 상태가 바뀜 (behaviorType 은 Normal/Abnormal/Dangerous) */
+        void onStateChanged(String behaviorType, String description, long timestampMs);
+
+        /** 스트림 연결 실패 또는 끊김 */
+        void onStreamError(String reason);
+    }
+
+    public interface DetectorFactory {
+        /** 파이프라인 스레드에서 한 번 호출됨 (모델 로딩) */
+        FrameDetector create() throws IOException;
+    }
+
+    private static final String TAG = "NativeMonitorPipeline";
+
+    static final long DEFAULT_ANALYSIS_INTERVAL_MS = 1000;
+    static final long MIN_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 30000;
+    // 이만큼 유지된 연결은 정상이었던 것으로 보고, 끊겨도 재연결 대기를 처음부터 시작
+    static final long HEALTHY_STREAM_MS = 60000;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    // 사람 박스의 가로/세로 비율이 이 값 이상이면 누운 자세로 봄
+    static final float FALL_ASPECT_RATIO = 1.3f;
+    // 누운 자세가 연속 N번 분석되면 낙상 의심으로 확정 (순간적인 오검출 방지)
+    static final int FALL_CONFIRM_FRAMES = 3;
+    // 검출기 입력(300x300)보다 작아지지 않는 선에서 디코딩 해상도를 줄임
+    private static final int MIN_DECODE_SIZE = 300;
+
+    private final String streamUrl;
+    private final long analysisIntervalMs;
+    private final DetectorFactory detectorFactory;
+    private final Listener listener;
+    // null 이면 모든 프레임 분석
+    private final MotionGate motionGate;
+
+    private volatile boolean running = false;
+    private volatile HttpURLConnection currentConnection;
+    private Thread worker;
+
+    // 이하 파이프라인 스레드 전용
+    private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+    private Bitmap reusableBitmap;
+    // 움직임 게이트용 축소 프레임 (한 번만 할당)
+    private Bitmap gridBitmap;
+    private Canvas gridCanvas;
+    private final Matrix gridMatrix = new Matrix();
+    private final Paint gridPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final int[] gridPixels = new int[MotionGate.GRID_WIDTH * MotionGate.GRID_HEIGHT];
+    private long lastAnalysisAtMs = 0;
+    private int lyingStreak = 0;
+    private String lastState;
+
+    private volatile MjpegStreamReader currentReader;
+    private volatile long receivedFrames = 0;
+    private volatile long analyzedFrames = 0;
+    private final MetricsRegistry.Histogram decodeLatency = MetricsRegistry.getInstance().histogram("native_decode_ms");
+    private final MetricsRegistry.Histogram detectLatency = MetricsRegistry.getInstance().histogram("native_detect_ms");
+    // 끝난 연결들에서 버려진 프레임 수 (현재 연결 분은 currentReader 에서)
+    private volatile long droppedFrames = 0;
+
+    public NativeMonitorPipeline(String streamUrl, long analysisIntervalMs, MotionGate motionGate,
+                                 DetectorFactory detectorFactory, Listener listener) {
+        this.streamUrl = streamUrl;
+        this.analysisIntervalMs = analysisIntervalMs;
+        this.motionGate = motionGate;
+        this.detectorFactory = detectorFactory;
+        this.listener = listener;
+    }
+
+    /**
+     * 앱에 저장된 ESP32 주소(웹 서버, 80번 포트)를 스트림 주소(81번 포트 /stream)로 바꾼다.
+     * 이미 /stream 경로가 있으면 그대로 쓴다.
+     */
+    public static String toStreamUrl(String esp32Url) {
+        if (esp32Url == null || esp32Url.trim().isEmpty()) {
+            return null;
+        }
+        String url = esp32Url.trim();
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            url = "http://" + url;
+        }
+        if (url.endsWith("/stream")) {
+            return url;
+        }
+        try {
+            URL parsed = new URL(url);
+            int port = parsed.getPort() > 0 && parsed.getPort() != 80 ? parsed.getPort() : 81;
+            return parsed.getProtocol() + "://" + parsed.getHost() + ":" + port + "/stream";
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runLoop, "memoria-native-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        HttpURLConnection conn = currentConnection;
+        if (conn != null) {
+            conn.disconnect();
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getReceivedFrames() {
+        return receivedFrames;
+    }
+
+    public long getAnalyzedFrames() {
+        return analyzedFrames;
+    }
+
+    /** 분석이 따라가지 못해 최신 프레임으로 대체된 프레임 수 */
+    public long getDroppedFrames() {
+        MjpegStreamReader reader = currentReader;
+        return droppedFrames + (reader != null ? reader.getDroppedFrames() : 0);
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    public double getStreamFps() {
+        MjpegStreamReader reader = currentReader;
+        return reader != null ? reader.getFps() : 0;
+    }
+
+    public double getStreamBytesPerSecond() {
+        MjpegStreamReader reader = currentReader;
+        return reader != null ? reader.getBytesPerSecond() : 0;
+    }
+
+    private void runLoop() {
+        FrameDetector detector;
+        try {
+            detector = detectorFactory.create();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Detector init failed, native inference disabled", e);
+            listener.onStreamError("모델 로딩 실패: " + e.getMessage());
+            running = false;
+            return;
+        }
+
+        if (motionGate != null) {
+            gridBitmap = Bitmap.createBitmap(MotionGate.GRID_WIDTH, MotionGate.GRID_HEIGHT, Bitmap.Config.ARGB_8888);
+            gridCanvas = new Canvas(gridBitmap);
+        }
+
+        long backoff = MIN_BACKOFF_MS;
+        try {
+            while (running) {
+                long framesBefore = receivedFrames;
+                long startedAtMs = System.currentTimeMillis();
+                try {
+                    streamOnce(detector);
+                    // 서버가 스트림을 정상 종료: 바로 재연결
+                    backoff = MIN_BACKOFF_MS;
+                } catch (IOException e) {
+                    if (!running) {
+                        break;
+                    }
+                    Log.d(TAG, "Stream error: " + e.getMessage());
+                    listener.onStreamError(String.valueOf(e.getMessage()));
+                    // 프레임을 받았거나 오래 유지된 스트림이 끊긴 경우는 연결 실패가 아니므로 대기를 늘리지 않음
+                    if (receivedFrames > framesBefore || System.currentTimeMillis() - startedAtMs >= HEALTHY_STREAM_MS) {
+                        backoff = MIN_BACKOFF_MS;
+                    }
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        } finally {
+            detector.close();
+            if (reusableBitmap != null) {
+                reusableBitmap.recycle();
+                reusableBitmap = null;
+            }
+            if (gridBitmap != null) {
+                gridBitmap.recycle();
+                gridBitmap = null;
+            }
+        }
+    }
+
+    private void streamOnce(FrameDetector detector) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(streamUrl).openConnection();
+        currentConnection = conn;
+        try {
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            int responseCode = conn.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("응답 코드: " + responseCode);
+            }
+            String boundary = MjpegStreamReader.parseBoundary(conn.getContentType());
+            if (boundary == null) {
+                throw new IOException("MJPEG 스트림이 아님: " + conn.getContentType());
+            }
+            Log.d(TAG, "Connected to " + streamUrl);
+
+            MjpegStreamReader reader = new MjpegStreamReader(conn.getInputStream(), boundary);
+            currentReader = reader;
+            // 수신은 전용 스레드가 계속 받아 최신 프레임만 남기고, 이 스레드는 분석 주기마다 최신 것만 가져감
+            // (추론이 느려도 TCP 수신이 밀려 오래된 프레임을 분석하는 일이 없음)
+            Thread pump = new Thread(reader::run, "memoria-mjpeg-reader");
+            pump.setDaemon(true);
+            pump.start();
+            long framesBefore = receivedFrames;
+            try {
+                while (running) {
+                    long wait = lastAnalysisAtMs + analysisIntervalMs - System.currentTimeMillis();
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                    MjpegStreamReader.Frame frame = reader.takeLatest(READ_TIMEOUT_MS);
+                    receivedFrames = framesBefore + reader.getFrameCount();
+                    if (frame == null) {
+                        if (reader.getError() != null) {
+                            throw reader.getError();
+                        }
+                        if (reader.isFinished()) {
+                            return;
+                        }
+                        throw new IOException("No frame for " + READ_TIMEOUT_MS + "ms");
+                    }
+                    try {
+                        long now = System.currentTimeMillis();
+                        lastAnalysisAtMs = now;
+                        long decodeStart = System.nanoTime();
+                        Bitmap bitmap = decode(frame.array(), frame.length());
+                        decodeLatency.recordSince(decodeStart);
+                        if (bitmap != null && passesMotionGate(bitmap, now)) {
+                            analyzedFrames++;
+                            long detectStart = System.nanoTime();
+                            FrameDetector.Detection detection = detector.detect(bitmap);
+                            detectLatency.recordSince(detectStart);
+                            onDetection(detection, now);
+                        }
+                    } finally {
+                        reader.release(frame);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                droppedFrames += reader.getDroppedFrames();
+                currentReader = null;
+                reader.close();
+            }
+        } finally {
+            currentConnection = null;
+            conn.disconnect();
+        }
+    }
+
+    /** 장면 변화가 없으면 추론을 건너뜀 (낙상 확정 대기 중에는 항상 통과) */
+    private boolean passesMotionGate(Bitmap bitmap, long nowMs) {
+        if (motionGate == null) {
+            return true;
+        }
+        gridMatrix.setScale((float) MotionGate.GRID_WIDTH / bitmap.getWidth(), (float) MotionGate.GRID_HEIGHT / bitmap.getHeight());
+        gridCanvas.drawBitmap(bitmap, gridMatrix, gridPaint);
+        gridBitmap.getPixels(gridPixels, 0, MotionGate.GRID_WIDTH, 0, 0, MotionGate.GRID_WIDTH, MotionGate.GRID_HEIGHT);
+        if (lyingStreak > 0) {
+            motionGate.forceAnalyzed(gridPixels, nowMs);
+            return true;
+        }
+        return motionGate.shouldAnalyze(gridPixels, nowMs);
+    }
+
+    /** 이전 프레임의 비트맵 메모리에 디코딩 (해상도가 바뀌면 새로 할당) */
+    private Bitmap decode(byte[] data, int length) {
+        if (reusableBitmap == null) {
+            decodeOptions.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(data, 0, length, decodeOptions);
+            decodeOptions.inJustDecodeBounds = false;
+            int sample = 1;
+            while (Math.min(decodeOptions.outWidth, decodeOptions.outHeight) / (sample * 2) >= MIN_DECODE_SIZE) {
+                sample *= 2;
+            }
+            decodeOptions.inSampleSize = sample;
+            decodeOptions.inMutable = true;
+        }
+        decodeOptions.inBitmap = reusableBitmap;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(data, 0, length, decodeOptions);
+        } catch (IllegalArgumentException e) {
+            // 재사용 비트맵보다 큰 프레임: 새 비트맵으로 디코딩
+            decodeOptions.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(data, 0, length, decodeOptions);
+        }
+        if (bitmap == null) {
+            Log.d(TAG, "Failed to decode frame (" + length + " bytes)");
+            return null;
+        }
+        if (bitmap != reusableBitmap && reusableBitmap != null) {
+            reusableBitmap.recycle();
+        }
+        reusableBitmap = bitmap;
+        return bitmap;
+    }
+
+    private void onDetection(FrameDetector.Detection detection, long nowMs) {
+        String behaviorType;
+        String description;
+        if (!detection.personFound) {
+            lyingStreak = 0;
+            behaviorType = "Normal";
+            description = "사람이 감지되지 않음";
+        } else if (detection.aspectRatio() >= FALL_ASPECT_RATIO) {
+            lyingStreak++;
+            if (lyingStreak >= FALL_CONFIRM_FRAMES) {
+                behaviorType = "Dangerous";
+                description = "낙상 의심: 사람이 바닥에 누운 자세로 감지됨";
+            } else {
+                // 확정 전까지는 이전 상태 유지
+                return;
+            }
+        } else {
+            lyingStreak = 0;
+            behaviorType = "Normal";
+            description = "사람이 감지됨";
+        }
+
+        String state = behaviorType + "|" + description;
+        if (state.equals(lastState)) {
+            return;
+        }
+        lastState = state;
+        Log.d(TAG, "State changed: " + behaviorType + " - " + description + " (score=" + detection.score + ")");
+        listener.onStateChanged(behaviorType, description, nowMs);
+    }
+}
@@ -0,0 +1,178 @@
+package com.memoria.app;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 서버로 보낼 이벤트 대기열 (SQLite, WAL).
+ * 온디바이스 분석으로 감지한 이벤트를 서버가 꺼져 있어도 잃지 않도록 디스크에 쌓아 두고,
+ * EventUploader가 연결이 돌아오면 묶어서 보낸 뒤 지운다.
+ * - 이벤트마다 멱등 키(idempotency_key, UNIQUE)를 만들어 저장하므로 재전송해도 서버에서 한 번만 반영
+ * - 최대 행 수/바이트를 넘으면 가장 오래된 이벤트부터 삭제 (디스크 사용량 상한)
+ */
+public class OutboundEventQueue extends SQLiteOpenHelper {
+
+    private static final String TAG = "OutboundEventQueue";
+    private static final String DB_NAME = "memoria_outbox.db";
+    private static final int DB_VERSION = 1;
+
+    static final String TABLE = "outbox";
+
+    static final long MAX_ROWS = 5000;
+    static final long MAX_BYTES = 2L * 1024 * 1024; // payload 합계 2MB
+    // 바이트 상한 초과 시 한 번에 지우는 행 수
+    private static final int EVICT_CHUNK = 50;
+
+    private static OutboundEventQueue instance;
+
+    private long evictedCount = 0;
+
+    public static class Item {
+        public final long id;
+        public final String idempotencyKey;
+        /** 이벤트 JSON 객체 문자열 */
+        public final String payload;
+        public final int attempts;
+
+        Item(long id, String idempotencyKey, String payload, int attempts) {
+            this.id = id;
+            this.idempotencyKey = idempotencyKey;
+            this.payload = payload;
+            this.attempts = attempts;
+        }
+    }
+
+    public static synchronized OutboundEventQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new OutboundEventQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private OutboundEventQueue(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "idempotency_key TEXT NOT NULL UNIQUE, "
+                + "created_at_ms INTEGER NOT NULL, "
+                + "payload TEXT NOT NULL, "
+                + "size_bytes INTEGER NOT NULL, "
+                + "attempts INTEGER NOT NULL DEFAULT 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 버전 1만 존재
+    }
+
+    /**
+     * 이벤트를 대기열에 넣는다. 같은 키가 이미 있으면 무시.
+     * @return 새로 넣었으면 true
+     */
+    public synchronized boolean enqueue(String idempotencyKey, String payloadJson, long nowMs) {
+        ContentValues values = new ContentValues();
+        values.put("idempotency_key", idempotencyKey);
+        values.put("created_at_ms", nowMs);
+        values.put("payload", payloadJson);
+        values.put("size_bytes", payloadJson.getBytes(StandardCharsets.UTF_8).length);
+        long id = getWritableDatabase().insertWithOnConflict(TABLE, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        if (id == -1) {
+            return false;
+        }
+        enforceBounds();
+        return true;
+    }
+
+    /** 오래된 순으로 최대 maxItems 건, payload 합계 maxBytes 이내 (첫 건은 항상 포함) */
+    public synchronized List<Item> peekBatch(int maxItems, long maxBytes) {
+        List<Item> items = new ArrayList<>();
+        Cursor c = getReadableDatabase().query(TABLE,
+                new String[]{"id", "idempotency_key", "payload", "attempts", "size_bytes"},
+                null, null, null, null, "id ASC", String.valueOf(maxItems));
+        try {
+            long bytes = 0;
+            while (c.moveToNext()) {
+                bytes += c.getLong(4);
+                if (!items.isEmpty() && bytes > maxBytes) {
+                    break;
+                }
+                items.add(new Item(c.getLong(0), c.getString(1), c.getString(2), c.getInt(3)));
+            }
+        } finally {
+            c.close();
+        }
+        return items;
+    }
+
+    /** 서버가 받은 이벤트 삭제 */
+    public synchronized void remove(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Item item : items) {
+                db.delete(TABLE, "id = ?", new String[]{String.valueOf(item.id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** 전송 실패한 이벤트의 시도 횟수 증가 */
+    public synchronized void markAttempted(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.execSQL("UPDATE " + TABLE + " SET attempts = attempts + 1 WHERE id BETWEEN ? AND ?",
+                new Object[]{items.get(0).id, items.get(items.size() - 1).id});
+    }
+
+    public synchronized long count() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE);
+    }
+
+    public synchronized long totalBytes() {
+        return DatabaseUtils.longForQuery(getReadableDatabase(), "SELECT COALESCE(SUM(size_bytes), 0) FROM " + TABLE, null);
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    // 행 수/바이트 상한을 넘으면 가장 오래된 것부터 삭제
+    private void enforceBounds() {
+        SQLiteDatabase db = getWritableDatabase();
+        int removed = db.delete(TABLE, "id <= (SELECT id FROM " + TABLE + " ORDER BY id DESC LIMIT 1 OFFSET ?)",
+                new String[]{String.valueOf(MAX_ROWS)});
+        while (totalBytes() > MAX_BYTES) {
+            int n = db.delete(TABLE, "id IN (SELECT id FROM " + TABLE + " ORDER BY id ASC LIMIT ?)",
+                    new String[]{String.valueOf(EVICT_CHUNK)});
+            if (n == 0) {
+                break;
+            }
+            removed += n;
+        }
+        if (removed > 0) {
+            evictedCount += removed;
+            Log.d(TAG, "Evicted " + removed + " oldest outbound events");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.memoria.app;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * 콜드 스타트 구간 기록 (프로세스 시작 기준 ms).
+ * - first_frame: MainActivity 창의 첫 프레임
+ * - service_ready: ForegroundService 백그라운드 준비(채널/설정/연결 예열) 완료
+ * - first_analysis: 시작 후 처음 반영된 분석 결과
+ * 각 구간은 프로세스당 한 번만 기록하고, MetricsRegistry 게이지(startup_*_ms)와 로그로 남긴다.
+ * 시작 시각은 Android 7.0 이상이면 프로세스 시작 시각, 그 아래는 MainActivity.onCreate 시각.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    private static volatile long launchElapsedMs = -1;
+    private static volatile long firstFrameMs = -1;
+    private static volatile long serviceReadyMs = -1;
+    private static volatile long firstAnalysisMs = -1;
+
+    private StartupTrace() {}
+
+    /** MainActivity.onCreate 맨 앞에서 호출 */
+    public static synchronized void markLaunch() {
+        if (launchElapsedMs >= 0) {
+            return;
+        }
+        launchElapsedMs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime()
+                : SystemClock.elapsedRealtime();
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("startup_first_frame_ms", () -> firstFrameMs);
+        metrics.gauge("startup_service_ready_ms", () -> serviceReadyMs);
+        metrics.gauge("startup_first_analysis_ms", () -> firstAnalysisMs);
+    }
+
+    public static synchronized void markFirstFrame() {
+        if (firstFrameMs < 0) {
+            firstFrameMs = sinceLaunch("first_frame");
+        }
+    }
+
+    public static synchronized void markServiceReady() {
+        if (serviceReadyMs < 0) {
+            serviceReadyMs = sinceLaunch("service_ready");
+        }
+    }
+
+    public static synchronized void markFirstAnalysis() {
+        if (firstAnalysisMs < 0) {
+            firstAnalysisMs = sinceLaunch("first_analysis");
+        }
+    }
+
+    /** 기준 시각 (SystemClock.elapsedRealtime 기준, 아직 없으면 -1) */
+    public static long getLaunchElapsedMs() {
+        return launchElapsedMs;
+    }
+
+    public static long getFirstFrameMs() {
+        return firstFrameMs;
+    }
+
+    public static long getServiceReadyMs() {
+        return serviceReadyMs;
+    }
+
+    public static long getFirstAnalysisMs() {
+        return firstAnalysisMs;
+    }
+
+    private static long sinceLaunch(String name) {
+        if (launchElapsedMs < 0) {
+            // 화면 없이 서비스만 다시 시작된 경우 (START_STICKY 재시작 등): 기준이 없으므로 기록하지 않음
+            return -1;
+        }
+        long ms = SystemClock.elapsedRealtime() - launchElapsedMs;
+        Log.i(TAG, name + "_ms=" + ms);
+        return ms;
+    }
+}
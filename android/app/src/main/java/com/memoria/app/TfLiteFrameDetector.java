@@ -0,0 +1,108 @@
+package com.memoria.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * TFLite SSD MobileNet(COCO, uint8 양자화) 모델로 사람을 검출한다.
+ * 모델 파일은 assets/detect.tflite (입력 300x300 RGB, 출력 boxes/classes/scores/count).
+ * 입력 크기 비트맵, 픽셀 배열, 입력/출력 버퍼는 모두 한 번만 만들고 매 프레임 재사용한다.
+ */
+public class TfLiteFrameDetector implements FrameDetector {
+
+    static final String MODEL_ASSET = "detect.tflite";
+    private static final int INPUT_SIZE = 300;
+    private static final int MAX_RESULTS = 10;
+    // COCO 라벨맵에서 person 의 인덱스
+    private static final int PERSON_CLASS = 0;
+
+    private final Interpreter interpreter;
+    private final float minScore;
+
+    private final Bitmap inputBitmap = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888);
+    private final Canvas inputCanvas = new Canvas(inputBitmap);
+    private final Matrix scaleMatrix = new Matrix();
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final int[] pixels = new int[INPUT_SIZE * INPUT_SIZE];
+    private final ByteBuffer input = ByteBuffer.allocateDirect(INPUT_SIZE * INPUT_SIZE * 3).order(ByteOrder.nativeOrder());
+
+    private final float[][][] outBoxes = new float[1][MAX_RESULTS][4];
+    private final float[][] outClasses = new float[1][MAX_RESULTS];
+    private final float[][] outScores = new float[1][MAX_RESULTS];
+    private final float[] outCount = new float[1];
+    private final java.util.Map<Integer, Object> outputs = new java.util.HashMap<>();
+
+    public TfLiteFrameDetector(Context context, float minScore, int numThreads) throws IOException {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(numThreads);
+        this.interpreter = new Interpreter(loadModel(context), options);
+        this.minScore = minScore;
+        outputs.put(0, outBoxes);
+        outputs.put(1, outClasses);
+        outputs.put(2, outScores);
+        outputs.put(3, outCount);
+    }
+
+    private static MappedByteBuffer loadModel(Context context) throws IOException {
+        // 압축되지 않은 asset 이어야 함 (build.gradle noCompress 'tflite')
+        AssetFileDescriptor fd = context.getAssets().openFd(MODEL_ASSET);
+        try (FileInputStream stream = new FileInputStream(fd.getFileDescriptor())) {
+            FileChannel channel = stream.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+        } finally {
+            fd.close();
+        }
+    }
+
+    @Override
+    public Detection detect(Bitmap frame) {
+        // 프레임을 입력 크기로 축소해 재사용 비트맵에 그림
+        scaleMatrix.setScale((float) INPUT_SIZE / frame.getWidth(), (float) INPUT_SIZE / frame.getHeight());
+        inputCanvas.drawBitmap(frame, scaleMatrix, scalePaint);
+        inputBitmap.getPixels(pixels, 0, INPUT_SIZE, 0, 0, INPUT_SIZE, INPUT_SIZE);
+
+        input.rewind();
+        for (int pixel : pixels) {
+            input.put((byte) ((pixel >> 16) & 0xFF));
+            input.put((byte) ((pixel >> 8) & 0xFF));
+            input.put((byte) (pixel & 0xFF));
+        }
+        input.rewind();
+
+        interpreter.runForMultipleInputsOutputs(new Object[]{input}, outputs);
+
+        int count = Math.min(MAX_RESULTS, (int) outCount[0]);
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if ((int) outClasses[0][i] == PERSON_CLASS && outScores[0][i] >= minScore
+                    && (best < 0 || outScores[0][i] > outScores[0][best])) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return Detection.NONE;
+        }
+        // SSD 출력 박스 순서는 [top, left, bottom, right]
+        float[] box = outBoxes[0][best];
+        return new Detection(true, outScores[0][best], box[1], box[0], box[3], box[2]);
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+        inputBitmap.recycle();
+    }
+}
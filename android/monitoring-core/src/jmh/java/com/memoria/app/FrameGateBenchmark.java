@@ -0,0 +1,87 @@
+package com.memoria.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 프레임 경로: MJPEG 스트림에서 프레임 하나 꺼내기(Content-Length 있음, 프레임 재사용)와
+ * 움직임 판단(MotionGate, 32x24 격자) 비용.
+ * 프레임당 할당은 gc 프로파일러의 gc.alloc.rate.norm 으로 본다 (리더 생성 비용이 30프레임에 나뉘어 포함됨).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameGateBenchmark {
+
+    private static final String BOUNDARY = "123456789000000000000987654321";
+    private static final int FRAMES = 30;
+
+    private byte[] capture;
+    private final MjpegStreamReader.Frame frame = new MjpegStreamReader.Frame(MjpegStreamReader.DEFAULT_INITIAL_FRAME_BYTES);
+    private final MotionGate gate = new MotionGate();
+    private int[][] grids;
+    private int next;
+    private long nowMs;
+
+    @Setup
+    public void setUp() throws IOException {
+        // ESP32-CAM VGA 정도 크기(20~40KB)의 프레임 30개
+        Random random = new Random(7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < FRAMES; i++) {
+            byte[] jpeg = new byte[20000 + random.nextInt(20000)];
+            random.nextBytes(jpeg);
+            jpeg[0] = (byte) 0xFF;
+            jpeg[1] = (byte) 0xD8;
+            jpeg[jpeg.length - 2] = (byte) 0xFF;
+            jpeg[jpeg.length - 1] = (byte) 0xD9;
+            out.write(("\r\n--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: " + jpeg.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(jpeg);
+        }
+        capture = out.toByteArray();
+
+        // 거의 같은 장면과 크게 바뀐 장면을 번갈아 (건너뛰기/분석 두 경우 모두 포함)
+        int cells = MotionGate.GRID_WIDTH * MotionGate.GRID_HEIGHT;
+        grids = new int[2][cells];
+        for (int i = 0; i < cells; i++) {
+            int gray = random.nextInt(256);
+            grids[0][i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            int moved = (gray + 128) & 0xFF;
+            grids[1][i] = 0xFF000000 | moved << 16 | moved << 8 | moved;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public long readMjpegFrames() throws IOException {
+        MjpegStreamReader reader = new MjpegStreamReader(new ByteArrayInputStream(capture), BOUNDARY);
+        long total = 0;
+        int length;
+        while ((length = reader.readFrame(frame)) >= 0) {
+            total += length;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public boolean motionGate() {
+        nowMs += 100;
+        // 4프레임마다 한 번 장면이 바뀌었다가 돌아옴 (분석 2번, 건너뛰기 2번)
+        next++;
+        return gate.shouldAnalyze(grids[(next & 3) == 0 ? 1 : 0], nowMs);
+    }
+}
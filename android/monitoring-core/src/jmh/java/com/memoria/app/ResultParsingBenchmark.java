@@ -0,0 +1,85 @@
+package com.memoria.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /changes, /latest_analysis 응답 파싱 비용 (폴링마다 한 번).
+ * 파서를 재사용하는 경우(ForegroundService)와 매번 새로 만드는 경우, 예전처럼 본문을 String으로 모으는 경우를 나란히 보고,
+ * gc 프로파일러의 gc.alloc.rate.norm 으로 응답당 할당량을 확인한다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultParsingBenchmark {
+
+    /** 한 응답에 담긴 카메라/방 수 */
+    @Param({"1", "8"})
+    public int sources;
+
+    private byte[] changesBody;
+    private byte[] latestBody;
+    private final StreamingJsonReader reader = new StreamingJsonReader();
+
+    @Setup
+    public void setUp() {
+        StringBuilder body = new StringBuilder("{\"cursor\": 1234, \"bootId\": \"3f2a9c\", \"changes\": [");
+        for (int i = 0; i < sources; i++) {
+            if (i > 0) {
+                body.append(", ");
+            }
+            body.append("{\"source\": \"cam-").append(i).append("\", \"version\": ").append(1200 + i)
+                    .append(", \"result\": ").append(result(i)).append('}');
+        }
+        body.append("]}");
+        changesBody = body.toString().getBytes(StandardCharsets.UTF_8);
+        latestBody = result(0).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String result(int i) {
+        return "{\"behaviorType\": \"Normal\", \"description\": \"소파에 앉아 TV를 보고 있음\","
+                + " \"warningMessage\": \"\", \"timestamp\": 1718000000000, \"source\": \"cam-" + i + "\","
+                + " \"location\": \"방" + i + "\"}";
+    }
+
+    @Benchmark
+    public AnalysisResult.Changes changesReusedReader() throws IOException {
+        return AnalysisResult.readChanges(reader.reset(new ByteArrayInputStream(changesBody)));
+    }
+
+    @Benchmark
+    public AnalysisResult.Changes changesNewReader() throws IOException {
+        return AnalysisResult.readChanges(new StreamingJsonReader().reset(new ByteArrayInputStream(changesBody)));
+    }
+
+    @Benchmark
+    public AnalysisResult latestReusedReader() throws IOException {
+        return AnalysisResult.read(reader.reset(new ByteArrayInputStream(latestBody)));
+    }
+
+    /** 예전 fetchFlaskAnalysis: readLine으로 StringBuilder에 모아 String 생성 (이후 JSONObject 파싱은 제외) */
+    @Benchmark
+    public String latestStringPath() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(latestBody), StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            sb.append(line);
+        }
+        in.close();
+        return sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.memoria.app;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 결과 한 건 처리 비용: 중복 억제(같은 결과 재수신), 새 결과의 알림 판단/상태 문구, 알림 판단만, 지표 기록.
+ * Output/LogSink는 아무것도 하지 않으므로 알림/저장 I/O를 뺀 순수 처리 비용이다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResultProcessingBenchmark {
+
+    private FlaskFetchEngine engine;
+    private ResultProcessor processor;
+    private AlertDispatcher dispatcher;
+    private MetricsRegistry metrics;
+    private AnalysisResult[] alternating;
+    private AnalysisResult repeated;
+    private int next;
+    private long nowMs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new FlaskFetchEngine();
+        metrics = new MetricsRegistry();
+        dispatcher = new AlertDispatcher();
+        processor = new ResultProcessor(engine, new AlertDispatcher(), new AdaptivePollScheduler(), metrics,
+                new ResultProcessor.Output() {
+                    @Override
+                    public void showAlert(AlertDispatcher.Alert alert) {
+                    }
+
+                    @Override
+                    public void showStatus(String notificationText) {
+                    }
+
+                    @Override
+                    public void onLogged(long id, String behaviorType, String description, String isoTime, String location) {
+                    }
+                },
+                (behaviorType, description, location, isoTime, timestampMs) -> 1);
+        // 같은 방에서 두 결과가 번갈아 오면 매번 "바뀐 결과"로 처리됨
+        alternating = new AnalysisResult[] {
+                new AnalysisResult("Normal", "소파에 앉아 있음", "1718000000000", "거실", "living"),
+                new AnalysisResult("Normal", "걸어서 주방으로 이동", "1718000001000", "거실", "living")
+        };
+        repeated = new AnalysisResult("Normal", "침대에 누워 있음", "1718000000000", "침실", "bedroom");
+        processor.publish(repeated);
+        nowMs = 1718000000000L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public boolean publishDuplicate() {
+        return processor.publish(repeated);
+    }
+
+    @Benchmark
+    public boolean publishChanged() {
+        next ^= 1;
+        return processor.publish(alternating[next]);
+    }
+
+    @Benchmark
+    public AlertDispatcher.Alert alertDecisionSuppressed() {
+        // 억제 창 안의 같은 이상행동 (첫 호출 이후로는 알리지 않음)
+        nowMs += 100;
+        return dispatcher.submit("Abnormal", "한참 움직임 없음", "거실", nowMs);
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        metrics.histogram("bench_ms").record(next++ & 1023);
+    }
+}
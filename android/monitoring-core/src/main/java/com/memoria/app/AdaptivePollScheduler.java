@@ -0,0 +1,145 @@
+package com.memoria.app;
+
+/**
+ * 폴링 간격을 상황에 맞춰 조절하는 스케줄러.
+ * - Abnormal/Dangerous 결과 직후에는 alertHoldMs 동안 최소 간격으로 조인다.
+ * - 결과가 바뀌면 기본 간격의 절반으로 당긴다.
+ * - 같은 결과가 반복되거나 연결 실패가 이어지면 최대 간격까지 지수적으로 늘린다.
+ * - 절전 모드에서는 간격을 두 배로, Doze(idle) 중에는 최대 간격을 쓴다.
+ * 모든 메서드는 호출 스레드가 달라도 되도록 synchronized.
+ */
+public class AdaptivePollScheduler {
+
+    public static final long DEFAULT_MIN_INTERVAL_MS = 2000;
+    public static final long DEFAULT_BASE_INTERVAL_MS = 10000;
+    public static final long DEFAULT_MAX_INTERVAL_MS = 120000;
+    public static final long DEFAULT_ALERT_HOLD_MS = 2 * 60 * 1000;
+
+    // 동일 결과가 이 횟수 이상 반복되면 백오프 시작
+    private static final int UNCHANGED_BEFORE_BACKOFF = 3;
+
+    private long minIntervalMs = DEFAULT_MIN_INTERVAL_MS;
+    private long baseIntervalMs = DEFAULT_BASE_INTERVAL_MS;
+    private long maxIntervalMs = DEFAULT_MAX_INTERVAL_MS;
+    private long alertHoldMs = DEFAULT_ALERT_HOLD_MS;
+
+    private long currentIntervalMs = DEFAULT_BASE_INTERVAL_MS;
+    private String reason = "default";
+    private int unchangedStreak = 0;
+    private int failureStreak = 0;
+    private long lastAlertAtMs = Long.MIN_VALUE;
+
+    private boolean powerSaveMode = false;
+    private boolean deviceIdle = false;
+
+    public synchronized void configure(long minIntervalMs, long baseIntervalMs, long maxIntervalMs, long alertHoldMs) {
+        if (minIntervalMs <= 0 || baseIntervalMs < minIntervalMs || maxIntervalMs < baseIntervalMs || alertHoldMs < 0) {
+            throw new IllegalArgumentException("0 < min <= base <= max, alertHold >= 0 이어야 합니다");
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.baseIntervalMs = baseIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.alertHoldMs = alertHoldMs;
+        currentIntervalMs = clamp(currentIntervalMs);
+    }
+
+    public synchronized void onAlert(long nowMs) {
+        lastAlertAtMs = nowMs;
+        unchangedStreak = 0;
+        failureStreak = 0;
+        currentIntervalMs = minIntervalMs;
+        reason = "alert";
+    }
+
+    public synchronized void onChanged() {
+        unchangedStreak = 0;
+        failureStreak = 0;
+        currentIntervalMs = clamp(baseIntervalMs / 2);
+        reason = "changed";
+    }
+
+    public synchronized void onUnchanged() {
+        failureStreak = 0;
+        unchangedStreak++;
+        if (unchangedStreak < UNCHANGED_BEFORE_BACKOFF) {
+            return;
+        }
+        currentIntervalMs = clamp(Math.max(currentIntervalMs, baseIntervalMs) * 2);
+        reason = "unchanged";
+    }
+
+    public synchronized void onFailure() {
+        unchangedStreak = 0;
+        failureStreak++;
+        // 연속 실패 횟수만큼 기본 간격을 두 배씩 (오버플로 방지를 위해 지수 제한)
+        int shift = Math.min(failureStreak, 16);
+        currentIntervalMs = clamp(baseIntervalMs << shift);
+        reason = "failure";
+    }
+
+    public synchronized void setPowerState(boolean powerSaveMode, boolean deviceIdle) {
+        this.powerSaveMode = powerSaveMode;
+        this.deviceIdle = deviceIdle;
+    }
+
+    /** 다음 폴링까지 대기할 시간 */
+    public synchronized long nextIntervalMs(long nowMs) {
+        if (deviceIdle) {
+            return maxIntervalMs;
+        }
+        long interval = currentIntervalMs;
+        if (isAlertHold(nowMs)) {
+            // 경보 직후에는 어떤 상황이든 빠르게 확인
+            interval = minIntervalMs;
+        } else if (powerSaveMode) {
+            interval = Math.min(interval * 2, maxIntervalMs);
+        }
+        return interval;
+    }
+
+    /** 현재 주기와 그 이유 ("alert", "changed", "unchanged", "failure", "power_save", "idle", "default") */
+    public synchronized String currentReason(long nowMs) {
+        if (deviceIdle) {
+            return "idle";
+        }
+        if (isAlertHold(nowMs)) {
+            return "alert";
+        }
+        if (powerSaveMode) {
+            return "power_save";
+        }
+        return reason;
+    }
+
+    public synchronized boolean isPowerSaveMode() {
+        return powerSaveMode;
+    }
+
+    public synchronized boolean isDeviceIdle() {
+        return deviceIdle;
+    }
+
+    public synchronized long getMinIntervalMs() {
+        return minIntervalMs;
+    }
+
+    public synchronized long getBaseIntervalMs() {
+        return baseIntervalMs;
+    }
+
+    public synchronized long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    public synchronized long getAlertHoldMs() {
+        return alertHoldMs;
+    }
+
+    private boolean isAlertHold(long nowMs) {
+        return lastAlertAtMs != Long.MIN_VALUE && nowMs - lastAlertAtMs < alertHoldMs;
+    }
+
+    private long clamp(long intervalMs) {
+        return Math.max(minIntervalMs, Math.min(maxIntervalMs, intervalMs));
+    }
+}
@@ -0,0 +1,209 @@
+package com.memoria.app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 이상/위험 결과를 보호자 알림으로 보낼지 결정하는 디스패처.
+ * - (behaviorType, description, location)이 같은 알림은 dedupeWindowMs 안에서 한 번만 보냄
+ *   (timestamp만 바뀐 같은 결과가 다시 울리지 않도록 문자열 전체가 아니라 이 세 값으로 비교)
+ * - 같은 위치에서 Dangerous가 계속되면 escalationIntervalMs마다 단계를 올려 다시 알림
+ * - 보호자가 확인(acknowledge)하거나 같은 위치에서 Dangerous가 아닌 결과가 오면 에스컬레이션 종료
+ * 서비스의 여러 스레드(폴링/스트림/온디바이스 분석)에서 호출되므로 synchronized.
+ */
+public class AlertDispatcher {
+
+    public static final long DEFAULT_DEDUPE_WINDOW_MS = 120000;
+    public static final long DEFAULT_ESCALATION_INTERVAL_MS = 60000;
+    public static final int MAX_ESCALATION_LEVEL = 5;
+
+    public static class Alert {
+        public final String behaviorType;
+        public final String description;
+        public final String location;
+        public final long firstSeenAtMs;
+        /** 0이면 첫 알림, 1 이상이면 Dangerous 지속으로 인한 재알림 */
+        public final int escalationLevel;
+
+        Alert(String behaviorType, String description, String location, long firstSeenAtMs, int escalationLevel) {
+            this.behaviorType = behaviorType;
+            this.description = description;
+            this.location = location;
+            this.firstSeenAtMs = firstSeenAtMs;
+            this.escalationLevel = escalationLevel;
+        }
+
+        public boolean isEscalation() {
+            return escalationLevel > 0;
+        }
+    }
+
+    // 위치별로 진행 중인 Dangerous 상태
+    private static class DangerState {
+        String description;
+        final long sinceMs;
+        long lastAlertAtMs;
+        int level = 0;
+
+        DangerState(String description, long sinceMs) {
+            this.description = description;
+            this.sinceMs = sinceMs;
+            this.lastAlertAtMs = sinceMs;
+        }
+    }
+
+    private long dedupeWindowMs;
+    private long escalationIntervalMs;
+
+    // "type|description|location" -> 마지막으로 알린 시각
+    private final Map<String, Long> lastSentAt = new HashMap<>();
+    private final Map<String, DangerState> dangerByLocation = new HashMap<>();
+
+    private long sentCount = 0;
+    private long suppressedCount = 0;
+    private long escalatedCount = 0;
+
+    public AlertDispatcher() {
+        this(DEFAULT_DEDUPE_WINDOW_MS, DEFAULT_ESCALATION_INTERVAL_MS);
+    }
+
+    public AlertDispatcher(long dedupeWindowMs, long escalationIntervalMs) {
+        // 생성 중에는 재정의 가능한 configure()를 부르지 않고 직접 대입
+        validate(dedupeWindowMs, escalationIntervalMs);
+        this.dedupeWindowMs = dedupeWindowMs;
+        this.escalationIntervalMs = escalationIntervalMs;
+    }
+
+    public synchronized void configure(long dedupeWindowMs, long escalationIntervalMs) {
+        validate(dedupeWindowMs, escalationIntervalMs);
+        this.dedupeWindowMs = dedupeWindowMs;
+        this.escalationIntervalMs = escalationIntervalMs;
+    }
+
+    private static void validate(long dedupeWindowMs, long escalationIntervalMs) {
+        if (dedupeWindowMs < 0 || escalationIntervalMs < 1000) {
+            throw new IllegalArgumentException("dedupeWindowMs >= 0, escalationIntervalMs >= 1000 이어야 합니다");
+        }
+    }
+
+    /**
+     * 새 분석 결과를 반영한다.
+     * @return 지금 알림을 보내야 하면 Alert, 중복이거나 알릴 대상이 아니면 null
+     */
+    public synchronized Alert submit(String behaviorType, String description, String location, long nowMs) {
+        boolean dangerous = "Dangerous".equals(behaviorType);
+        if (!dangerous) {
+            // 이 위치의 위험 상태는 끝남
+            dangerByLocation.remove(location);
+        }
+        if (!dangerous && !"Abnormal".equals(behaviorType)) {
+            return null;
+        }
+
+        long firstSeenAtMs = nowMs;
+        DangerState state = null;
+        if (dangerous) {
+            state = dangerByLocation.get(location);
+            if (state == null) {
+                state = new DangerState(description, nowMs);
+                dangerByLocation.put(location, state);
+            } else {
+                // 설명만 바뀐 경우에도 위험 상태는 이어짐
+                state.description = description;
+                firstSeenAtMs = state.sinceMs;
+            }
+        }
+
+        String key = behaviorType + "|" + description + "|" + location;
+        Long last = lastSentAt.get(key);
+        if (last != null && nowMs - last < dedupeWindowMs) {
+            suppressedCount++;
+            return null;
+        }
+        lastSentAt.put(key, nowMs);
+        pruneExpired(nowMs);
+        if (state != null) {
+            state.lastAlertAtMs = nowMs;
+        }
+        sentCount++;
+        return new Alert(behaviorType, description, location, firstSeenAtMs, 0);
+    }
+
+    /**
+     * Dangerous가 escalationIntervalMs 이상 계속된 위치들의 재알림을 꺼낸다.
+     * 새 결과가 오지 않아도(서버가 같은 결과는 다시 보내지 않음) 주기적으로 호출해야 한다.
+     */
+    public synchronized List<Alert> pollEscalations(long nowMs) {
+        List<Alert> due = new ArrayList<>();
+        for (Map.Entry<String, DangerState> e : dangerByLocation.entrySet()) {
+            DangerState state = e.getValue();
+            if (state.level >= MAX_ESCALATION_LEVEL || nowMs - state.lastAlertAtMs < escalationIntervalMs) {
+                continue;
+            }
+            state.level++;
+            state.lastAlertAtMs = nowMs;
+            escalatedCount++;
+            due.add(new Alert("Dangerous", state.description, e.getKey(), state.sinceMs, state.level));
+        }
+        return due;
+    }
+
+    /** 다음 재알림 예정 시각까지 남은 시간. 진행 중인 위험 상태가 없으면 -1 */
+    public synchronized long millisUntilNextEscalation(long nowMs) {
+        long next = -1;
+        for (DangerState state : dangerByLocation.values()) {
+            if (state.level >= MAX_ESCALATION_LEVEL) {
+                continue;
+            }
+            long wait = Math.max(0, state.lastAlertAtMs + escalationIntervalMs - nowMs);
+            if (next < 0 || wait < next) {
+                next = wait;
+            }
+        }
+        return next;
+    }
+
+    /** 보호자가 알림을 확인함: 위험 상태가 끝날 때까지 그 위치의 에스컬레이션 중지 */
+    public synchronized void acknowledge(String location) {
+        DangerState state = dangerByLocation.get(location);
+        if (state != null) {
+            state.level = MAX_ESCALATION_LEVEL;
+        }
+    }
+
+    private void pruneExpired(long nowMs) {
+        Iterator<Map.Entry<String, Long>> it = lastSentAt.entrySet().iterator();
+        while (it.hasNext()) {
+            if (nowMs - it.next().getValue() >= dedupeWindowMs) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int getActiveDangerCount() {
+        return dangerByLocation.size();
+    }
+
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    public synchronized long getEscalatedCount() {
+        return escalatedCount;
+    }
+
+    public synchronized long getDedupeWindowMs() {
+        return dedupeWindowMs;
+    }
+
+    public synchronized long getEscalationIntervalMs() {
+        return escalationIntervalMs;
+    }
+}
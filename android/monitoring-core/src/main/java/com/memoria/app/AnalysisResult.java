@@ -0,0 +1,169 @@
+package com.memoria.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 분석 결과 한 건 (Flask /latest_analysis, /changes, SSE, 온디바이스 분석 공통).
+ * 응답에서 behaviorType, description, timestamp, location, source만 읽고 나머지 필드는 건너뛴다.
+ * 값 비교(equals)로 중복 결과를 거른다.
+ */
+public final class AnalysisResult {
+
+    public static final String DEFAULT_BEHAVIOR_TYPE = "모니터링 중...";
+
+    private static final byte[][] RESULT_FIELDS = StreamingJsonReader.names(
+            "behaviorType", "description", "timestamp", "location", "source");
+    private static final byte[][] CHANGES_FIELDS = StreamingJsonReader.names("cursor", "bootId", "changes");
+    private static final byte[][] CHANGE_FIELDS = StreamingJsonReader.names("source", "result");
+
+    public final String behaviorType;
+    public final String description;
+    /** 밀리초 문자열 (없으면 빈 문자열) */
+    public final String timestamp;
+    /** 결과에 실린 위치 (없으면 빈 문자열) */
+    public final String location;
+    /** 카메라/방 ID */
+    public final String source;
+
+    public AnalysisResult(String behaviorType, String description, String timestamp, String location, String source) {
+        this.behaviorType = behaviorType != null ? behaviorType : DEFAULT_BEHAVIOR_TYPE;
+        this.description = description != null ? description : "";
+        this.timestamp = timestamp != null ? timestamp : "";
+        this.location = location != null ? location : "";
+        this.source = source != null ? source : FlaskFetchEngine.DEFAULT_SOURCE;
+    }
+
+    public boolean isAlert() {
+        return "Abnormal".equals(behaviorType) || "Dangerous".equals(behaviorType);
+    }
+
+    /** 결과 객체 하나를 읽는다. 리더는 '{' 앞에 있어야 함 */
+    public static AnalysisResult read(StreamingJsonReader reader) throws IOException {
+        return read(reader, null);
+    }
+
+    private static AnalysisResult read(StreamingJsonReader reader, String sourceOverride) throws IOException {
+        String behaviorType = null;
+        String description = null;
+        String timestamp = null;
+        String location = null;
+        String source = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(RESULT_FIELDS)) {
+                case 0: behaviorType = reader.nextString(); break;
+                case 1: description = reader.nextString(); break;
+                case 2: timestamp = reader.nextString(); break;
+                case 3: location = reader.nextString(); break;
+                case 4: source = reader.nextString(); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        return new AnalysisResult(behaviorType, description, timestamp, location,
+                sourceOverride != null ? sourceOverride : source);
+    }
+
+    /** SSE data 줄처럼 이미 문자열로 받은 결과용 */
+    public static AnalysisResult parse(String json) throws IOException {
+        StreamingJsonReader reader = new StreamingJsonReader(256).reset(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        AnalysisResult result = read(reader);
+        // 문자열 전체가 객체 하나여야 함 (스트림은 응답 끝까지 읽지 않으므로 검사하지 않음)
+        if (reader.peek() != StreamingJsonReader.Token.END_DOCUMENT) {
+            throw new IOException("JSON 파싱 실패: 결과 객체 뒤에 내용이 더 있음");
+        }
+        return result;
+    }
+
+    /** /changes 응답: {"cursor": N, "bootId": "...", "changes": [{"source", "version", "result"}, ...]} */
+    public static final class Changes {
+        public final long cursor;
+        public final String bootId;
+        public final List<AnalysisResult> results;
+
+        Changes(long cursor, String bootId, List<AnalysisResult> results) {
+            this.cursor = cursor;
+            this.bootId = bootId;
+            this.results = results;
+        }
+    }
+
+    public static Changes readChanges(StreamingJsonReader reader) throws IOException {
+        long cursor = -1;
+        String bootId = "";
+        List<AnalysisResult> results = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(CHANGES_FIELDS)) {
+                case 0: cursor = reader.nextLong(); break;
+                case 1: bootId = reader.nextString(); break;
+                case 2:
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        AnalysisResult result = readChange(reader);
+                        if (result != null) {
+                            results.add(result);
+                        }
+                    }
+                    reader.endArray();
+                    break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        return new Changes(cursor, bootId, results);
+    }
+
+    private static AnalysisResult readChange(StreamingJsonReader reader) throws IOException {
+        String source = null;
+        AnalysisResult result = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(CHANGE_FIELDS)) {
+                case 0: source = reader.nextString(); break;
+                case 1: result = read(reader, null); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        if (result == null || source == null || source.equals(result.source)) {
+            return result;
+        }
+        // 변경 항목의 source가 기준 (결과 본문에 source가 없던 구버전 데이터 대비)
+        return new AnalysisResult(result.behaviorType, result.description, result.timestamp, result.location, source);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AnalysisResult)) {
+            return false;
+        }
+        AnalysisResult other = (AnalysisResult) o;
+        return behaviorType.equals(other.behaviorType)
+                && description.equals(other.description)
+                && timestamp.equals(other.timestamp)
+                && location.equals(other.location)
+                && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = behaviorType.hashCode();
+        h = 31 * h + description.hashCode();
+        h = 31 * h + timestamp.hashCode();
+        h = 31 * h + location.hashCode();
+        return 31 * h + source.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisResult{" + source + "/" + location + " " + behaviorType + ": " + description + " @" + timestamp + "}";
+    }
+}
@@ -0,0 +1,222 @@
+package com.memoria.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flask 서버의 /analysis_stream (Server-Sent Events)에 연결을 하나 유지하면서
+ * 새 분석 결과를 즉시 전달받는 클라이언트.
+ * 연결이 끊기면 지수 백오프로 재연결하고, 서버가 스트림을 지원하지 않으면
+ * {@link Listener#onUnsupported(int)}로 알려 기존 폴링으로 돌아가게 한다.
+ */
+public class AnalysisStreamClient {
+
+    public interface Listener {
+        /** 스트림 연결이 성립됨 (폴링 중지 시점) */
+        void onConnected();
+
+        /** 연결 실패 또는 끊김 (재연결 대기 동안 폴링으로 대체) */
+        void onDisconnected(String reason);
+
+        /** 서버가 /analysis_stream 을 지원하지 않음 */
+        void onUnsupported(int responseCode);
+
+        /** "analysis" 이벤트의 data (JSON 문자열) */
+        void onAnalysis(String json);
+    }
+
+    public interface UrlProvider {
+        /** Flask 서버 기본 주소, 미설정이면 null */
+        String getBaseUrl();
+    }
+
+    static final long MIN_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 30000;
+    // 이만큼 유지된 연결은 정상이었던 것으로 보고, 끊겨도 재연결 대기를 처음부터 시작
+    static final long HEALTHY_STREAM_MS = 60000;
+    // 스트림 미지원 서버는 자주 두드릴 필요가 없음
+    static final long UNSUPPORTED_RETRY_MS = 5 * 60 * 1000;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    // 서버 keep-alive(15초)보다 넉넉하게 잡아 죽은 연결을 감지
+    private static final int READ_TIMEOUT_MS = 40000;
+
+    private final UrlProvider urlProvider;
+    private final Listener listener;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    private final long healthyStreamMs;
+
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile HttpURLConnection currentConnection;
+    private Thread worker;
+    private String lastEventId;
+    // 재연결 대기 판단용: 받은 analysis 이벤트 수, 마지막 연결 성립 시각 (작업 스레드에서만 사용)
+    private long eventsReceived = 0;
+    private long connectedAtMs = 0;
+
+    public AnalysisStreamClient(UrlProvider urlProvider, Listener listener) {
+        this(urlProvider, listener, MIN_BACKOFF_MS, MAX_BACKOFF_MS, HEALTHY_STREAM_MS);
+    }
+
+    // 테스트에서 대기 시간을 줄이기 위한 생성자
+    AnalysisStreamClient(UrlProvider urlProvider, Listener listener,
+                         long minBackoffMs, long maxBackoffMs, long healthyStreamMs) {
+        this.urlProvider = urlProvider;
+        this.listener = listener;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.healthyStreamMs = healthyStreamMs;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runLoop, "memoria-analysis-stream");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        HttpURLConnection conn = currentConnection;
+        if (conn != null) {
+            conn.disconnect();
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void runLoop() {
+        long backoff = minBackoffMs;
+        while (running) {
+            long delay;
+            String baseUrl = urlProvider.getBaseUrl();
+            if (baseUrl == null) {
+                listener.onDisconnected("주소 미설정");
+                delay = maxBackoffMs;
+            } else {
+                long eventsBefore = eventsReceived;
+                connectedAtMs = 0;
+                try {
+                    int code = streamOnce(baseUrl);
+                    if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_BAD_METHOD) {
+                        listener.onUnsupported(code);
+                        delay = UNSUPPORTED_RETRY_MS;
+                    } else if (code == HttpURLConnection.HTTP_OK) {
+                        // 정상 연결 후 서버가 닫은 경우: 바로 재연결
+                        listener.onDisconnected("stream closed");
+                        backoff = minBackoffMs;
+                        delay = minBackoffMs;
+                    } else {
+                        listener.onDisconnected("응답 코드: " + code);
+                        delay = backoff;
+                        backoff = Math.min(backoff * 2, maxBackoffMs);
+                    }
+                } catch (IOException e) {
+                    if (!running) {
+                        break;
+                    }
+                    listener.onDisconnected(String.valueOf(e.getMessage()));
+                    // 이벤트를 받았거나 오래 유지된 스트림이 끊긴 경우는 연결 실패가 아니므로 대기를 늘리지 않음
+                    if (eventsReceived > eventsBefore
+                            || (connectedAtMs > 0 && System.currentTimeMillis() - connectedAtMs >= healthyStreamMs)) {
+                        backoff = minBackoffMs;
+                    }
+                    delay = backoff;
+                    backoff = Math.min(backoff * 2, maxBackoffMs);
+                }
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        connected = false;
+    }
+
+    /**
+     * 스트림 하나를 끝날 때까지 읽는다.
+     * @return HTTP 응답 코드 (200이면 스트림이 정상적으로 닫힌 것)
+     */
+    private int streamOnce(String baseUrl) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) FlaskFetchEngine.toUrl(baseUrl + "/analysis_stream").openConnection();
+        currentConnection = conn;
+        try {
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Accept", "text/event-stream");
+            if (lastEventId != null) {
+                conn.setRequestProperty("Last-Event-ID", lastEventId);
+            }
+
+            int responseCode = conn.getResponseCode();
+            String contentType = conn.getContentType();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                return responseCode;
+            }
+            if (contentType == null || !contentType.startsWith("text/event-stream")) {
+                // 구버전 서버가 다른 응답을 주는 경우도 미지원으로 취급
+                return HttpURLConnection.HTTP_NOT_FOUND;
+            }
+
+            connected = true;
+            connectedAtMs = System.currentTimeMillis();
+            listener.onConnected();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+            try {
+                String eventName = null;
+                StringBuilder data = new StringBuilder();
+                String line;
+                while (running && (line = in.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        // 빈 줄: 이벤트 하나 완료
+                        if (data.length() > 0 && (eventName == null || "analysis".equals(eventName))) {
+                            eventsReceived++;
+                            listener.onAnalysis(data.toString());
+                        }
+                        eventName = null;
+                        data.setLength(0);
+                    } else if (line.startsWith(":")) {
+                        // keep-alive 주석
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(stripFieldValue(line, 5));
+                    } else if (line.startsWith("event:")) {
+                        eventName = stripFieldValue(line, 6);
+                    } else if (line.startsWith("id:")) {
+                        lastEventId = stripFieldValue(line, 3);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+            return HttpURLConnection.HTTP_OK;
+        } finally {
+            connected = false;
+            currentConnection = null;
+            conn.disconnect();
+        }
+    }
+
+    private static String stripFieldValue(String line, int prefixLength) {
+        String value = line.substring(prefixLength);
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+}
@@ -0,0 +1,295 @@
+package com.memoria.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ForegroundService의 Flask 분석 결과 조회 엔진 (/changes, /latest_analysis).
+ * - 전용 단일 스레드에서만 요청을 수행 (틱마다 new Thread 하지 않음)
+ * - 이전 요청이 아직 진행 중이면 새 요청은 건너뜀 (네트워크 지연 시 요청 누적 방지)
+ * - 응답 본문을 끝까지 읽고 스트림만 닫아 HTTP keep-alive 연결을 재사용
+ * - StreamCallback을 쓰면 본문을 String으로 만들지 않고 InputStream에서 바로 파싱
+ * - 마지막 결과는 카메라/방(source)별로 ConcurrentHashMap에 보관해 폴링/스트림 스레드 어디서든 안전하게 비교
+ * - 같은 URL을 다시 조회할 때 마지막 ETag를 If-None-Match로 보내고, 304면 본문을 읽지 않고 onNotModified()만 호출
+ * - warmUp()으로 시작 직후 DNS/TCP 연결과 HTTP 클래스 로딩을 미리 해 두어 첫 조회 지연을 줄임
+ */
+public class FlaskFetchEngine {
+
+    public interface Callback {
+        void onResponse(int responseCode, String body);
+
+        /** 304: 지난 조회 이후 결과가 바뀌지 않음 (본문 없음) */
+        void onNotModified();
+
+        void onFailure(Exception e);
+    }
+
+    /** 본문을 String으로 모으지 않고 스트림 그대로 넘겨받는 콜백 (엔진 스레드에서 호출) */
+    public interface StreamCallback {
+        /** body는 콜백이 끝나면 엔진이 남은 바이트를 비우고 닫으므로 끝까지 읽지 않아도 됨 */
+        void onResponse(int responseCode, InputStream body) throws IOException;
+
+        void onNotModified();
+
+        void onFailure(Exception e);
+    }
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int READ_TIMEOUT_MS = 2000;
+
+    private final ExecutorService executor;
+    private final AtomicBoolean inFlight = new AtomicBoolean(false);
+    public static final String DEFAULT_SOURCE = "default";
+
+    private final AtomicReference<Object> lastResult = new AtomicReference<>("");
+    private final ConcurrentHashMap<String, Object> lastResultBySource = new ConcurrentHashMap<>();
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    // 응답당 스트림에서 버리는 바이트를 받는 버퍼 (엔진 스레드 전용)
+    private final byte[] drainBuffer = new byte[1024];
+
+    // 엔진 스레드에서만 읽고 쓰므로 동기화 불필요
+    private String lastEtag;
+    private String lastEtagUrl;
+
+    public FlaskFetchEngine() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "memoria-flask-fetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * baseUrl + "/latest_analysis" 조회를 예약한다.
+     * @return 이미 진행 중인 요청이 있어 건너뛰었으면 false
+     */
+    public boolean fetchLatest(String baseUrl, Callback callback) {
+        return fetch(baseUrl + "/latest_analysis", callback);
+    }
+
+    /**
+     * 임의의 URL(예: baseUrl + "/changes?since=N") 조회를 예약한다.
+     * @return 이미 진행 중인 요청이 있어 건너뛰었으면 false
+     */
+    public boolean fetch(String url, Callback callback) {
+        return fetch(url, new StreamCallback() {
+            @Override
+            public void onResponse(int responseCode, InputStream body) throws IOException {
+                callback.onResponse(responseCode, readFully(body));
+            }
+
+            @Override
+            public void onNotModified() {
+                callback.onNotModified();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * 임의의 URL 조회를 예약하고 본문을 스트림 그대로 콜백에 넘긴다.
+     * @return 이미 진행 중인 요청이 있어 건너뛰었으면 false
+     */
+    public boolean fetch(String url, StreamCallback callback) {
+        if (!inFlight.compareAndSet(false, true)) {
+            skippedCount.incrementAndGet();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runFetch(url, callback);
+                } finally {
+                    completedCount.incrementAndGet();
+                    inFlight.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // shutdown 이후 호출
+            inFlight.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * 연결 예열: 엔진 스레드에서 url을 한 번 조회하고 본문을 버려 keep-alive 연결을 풀에 남겨 둔다.
+     * ETag/마지막 결과는 건드리지 않으므로 이후 첫 조회는 평소대로 전체 응답을 받는다.
+     * 진행 중 표시(inFlight)를 쓰지 않으므로 바로 뒤의 조회는 건너뛰어지지 않고 예열이 끝난 뒤 같은 스레드에서 실행된다.
+     * @return shutdown 이후라 예약하지 못했으면 false
+     */
+    public boolean warmUp(String url) {
+        try {
+            executor.execute(() -> {
+                HttpURLConnection conn = null;
+                try {
+                    conn = (HttpURLConnection) toUrl(url).openConnection();
+                    conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                    conn.setReadTimeout(READ_TIMEOUT_MS);
+                    int responseCode = conn.getResponseCode();
+                    InputStream in = responseCode < 400 ? conn.getInputStream() : conn.getErrorStream();
+                    if (in != null) {
+                        try {
+                            drain(in);
+                        } finally {
+                            in.close();
+                        }
+                    }
+                    conn = null;
+                } catch (IOException e) {
+                    // 서버가 아직 없어도 무시 (첫 조회에서 오류로 표시됨)
+                    if (conn != null) {
+                        conn.disconnect();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void runFetch(String urlStr, StreamCallback callback) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) toUrl(urlStr).openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            if (lastEtag != null && urlStr.equals(lastEtagUrl)) {
+                conn.setRequestProperty("If-None-Match", lastEtag);
+            }
+
+            int responseCode = conn.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // 본문이 없으므로 빈 스트림만 닫아 연결을 풀로 돌려보냄
+                conn.getInputStream().close();
+                conn = null;
+                notModifiedCount.incrementAndGet();
+                callback.onNotModified();
+                return;
+            }
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                lastEtag = conn.getHeaderField("ETag");
+                lastEtagUrl = urlStr;
+            }
+            InputStream in = responseCode < 400 ? conn.getInputStream() : conn.getErrorStream();
+            if (in == null) {
+                in = new java.io.ByteArrayInputStream(new byte[0]);
+            }
+            try {
+                callback.onResponse(responseCode, in);
+                // 본문을 모두 소비해야 연결이 keep-alive 풀로 돌아감
+                drain(in);
+            } finally {
+                in.close();
+            }
+            conn = null;
+        } catch (Exception e) {
+            if (conn != null) {
+                // 실패한 연결은 재사용하지 않음
+                conn.disconnect();
+            }
+            callback.onFailure(e);
+        }
+    }
+
+    /** URL(String) 생성자 대신 (Java 20부터 deprecated). 잘못된 주소는 예전처럼 IOException으로 */
+    static URL toUrl(String url) throws MalformedURLException {
+        try {
+            return URI.create(url).toURL();
+        } catch (IllegalArgumentException e) {
+            MalformedURLException malformed = new MalformedURLException(url);
+            malformed.initCause(e);
+            throw malformed;
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        byte[] buf = new byte[1024];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private void drain(InputStream in) throws IOException {
+        while (in.read(drainBuffer) != -1) {
+            // 버림
+        }
+    }
+
+    /**
+     * 새 결과를 마지막 결과로 기록한다.
+     * @return 이전 결과와 달라 처리해야 하면 true (동일하면 false)
+     */
+    public boolean publishIfChanged(Object result) {
+        return publishIfChanged(DEFAULT_SOURCE, result);
+    }
+
+    /**
+     * source(카메라/방)별로 새 결과를 기록한다. 다른 방의 결과와는 비교하지 않는다.
+     * 결과는 equals로 비교 (AnalysisResult 또는 응답 문자열)
+     * @return 그 source의 이전 결과와 달라 처리해야 하면 true (동일하면 false)
+     */
+    public boolean publishIfChanged(String source, Object result) {
+        lastResult.set(result);
+        Object previous = lastResultBySource.put(source, result);
+        return !result.equals(previous);
+    }
+
+    public Object getLastResult(String source) {
+        Object result = lastResultBySource.get(source);
+        return result != null ? result : "";
+    }
+
+    public Object getLastResult() {
+        return lastResult.get();
+    }
+
+    public int getSourceCount() {
+        return lastResultBySource.size();
+    }
+
+    public boolean isInFlight() {
+        return inFlight.get();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
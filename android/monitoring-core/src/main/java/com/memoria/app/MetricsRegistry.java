@@ -0,0 +1,212 @@
+package com.memoria.app;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 프로세스 전역의 가벼운 지표 저장소 (카운터, 게이지, 지연시간 히스토그램).
+ * 기록은 Atomic 연산만 쓰므로 폴링/스트림/분석 스레드 어디서든 잠금 없이 호출할 수 있고,
+ * 조회(snapshot)할 때만 게이지 값을 계산한다.
+ * 이름은 Flask /metrics 와 맞춰 snake_case, 레이블은 이름 뒤에 붙인다 (예: poll_http_status_200).
+ */
+public class MetricsRegistry {
+
+    /** 지연시간 히스토그램 기본 경계 (ms) */
+    public static final long[] LATENCY_BUCKETS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    public interface Gauge {
+        long get();
+    }
+
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long n) {
+            value.addAndGet(n);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    public static final class Histogram {
+        private final long[] bounds;
+        // bounds.length + 1 번째 칸은 +Inf
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds.clone();
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        public void record(long valueMs) {
+            int i = 0;
+            while (i < bounds.length && valueMs > bounds[i]) {
+                i++;
+            }
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            sumMs.addAndGet(valueMs);
+            long max;
+            while (valueMs > (max = maxMs.get()) && !maxMs.compareAndSet(max, valueMs)) {
+                // 다른 스레드가 먼저 갱신하면 다시 비교
+            }
+        }
+
+        public void recordSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000_000L);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSumMs() {
+            return sumMs.get();
+        }
+
+        public long getMaxMs() {
+            return maxMs.get();
+        }
+
+        public long[] getBounds() {
+            return bounds.clone();
+        }
+
+        /** 칸별 개수 (누적 아님, 마지막 칸은 +Inf) */
+        public long[] getBucketCounts() {
+            long[] out = new long[buckets.length()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = buckets.get(i);
+            }
+            return out;
+        }
+
+        /** 칸 경계로 어림한 분위수 (ms). 기록이 없으면 0 */
+        public long percentile(double p) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i < bounds.length ? bounds[i] : maxMs.get();
+                }
+            }
+            return maxMs.get();
+        }
+    }
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long createdAtMs = System.currentTimeMillis();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        Counter c = counters.get(name);
+        if (c == null) {
+            Counter created = new Counter();
+            c = counters.putIfAbsent(name, created);
+            if (c == null) {
+                c = created;
+            }
+        }
+        return c;
+    }
+
+    /** 같은 이름으로 다시 등록하면 교체 (서비스 재시작 시 새 인스턴스를 가리키도록) */
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    public Histogram histogram(String name) {
+        return histogram(name, LATENCY_BUCKETS_MS);
+    }
+
+    public Histogram histogram(String name, long[] boundsMs) {
+        Histogram h = histograms.get(name);
+        if (h == null) {
+            Histogram created = new Histogram(boundsMs);
+            h = histograms.putIfAbsent(name, created);
+            if (h == null) {
+                h = created;
+            }
+        }
+        return h;
+    }
+
+    public long getUptimeMs() {
+        return System.currentTimeMillis() - createdAtMs;
+    }
+
+    /** 이름순으로 정렬된 카운터 값 */
+    public Map<String, Long> counterValues() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            out.put(e.getKey(), e.getValue().get());
+        }
+        return out;
+    }
+
+    /** 이름순으로 정렬된 게이지 값 (여기서 계산, 실패한 게이지는 -1) */
+    public Map<String, Long> gaugeValues() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, Gauge> e : gauges.entrySet()) {
+            long value;
+            try {
+                value = e.getValue().get();
+            } catch (RuntimeException ex) {
+                value = -1;
+            }
+            out.put(e.getKey(), value);
+        }
+        return out;
+    }
+
+    public Map<String, Histogram> histograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /** 디버그 알림용 한 줄씩 요약 */
+    public String formatSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Histogram> e : histograms().entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(e.getKey()).append(": n=").append(h.getCount())
+                    .append(" p50=").append(h.percentile(0.5))
+                    .append(" p95=").append(h.percentile(0.95))
+                    .append(" max=").append(h.getMaxMs()).append("ms\n");
+        }
+        for (Map.Entry<String, Long> e : counterValues().entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> e : gaugeValues().entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,554 @@
+package com.memoria.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ESP32 /stream (multipart/x-mixed-replace) 응답에서 JPEG 프레임을 꺼내는 파서.
+ * - 소켓 데이터는 고정 크기 읽기 버퍼 하나에만 받고, 경계/헤더는 바이트 단위로 그 자리에서 해석
+ *   (프레임마다 String/배열을 만들지 않음)
+ * - 프레임 본문은 풀에 있는 ByteBuffer(3개)에 바로 채움. 버퍼는 가장 큰 프레임 크기까지만 한 번 늘어남
+ * - {@link #run()}을 별도 스레드에서 돌리면 "최신 프레임만" 모드:
+ *   소비자가 느리면 아직 가져가지 않은 이전 프레임을 버리고(dropped) 새 프레임으로 교체
+ * - fps, 초당 바이트, 버린 프레임 수를 제공
+ * Content-Length 헤더가 없는 서버는 JPEG 끝 마커(FF D9)까지 읽는다.
+ */
+public class MjpegStreamReader implements Closeable {
+
+    /** 풀에서 빌려주는 프레임. data 는 position 0, limit 프레임 길이 */
+    public static final class Frame {
+        private ByteBuffer data;
+        private long sequence;
+        private long receivedAtNanos;
+
+        Frame(int capacity) {
+            data = ByteBuffer.allocate(capacity);
+        }
+
+        public ByteBuffer data() {
+            return data;
+        }
+
+        /** BitmapFactory.decodeByteArray 등에 바로 넘길 수 있는 backing 배열 */
+        public byte[] array() {
+            return data.array();
+        }
+
+        public int length() {
+            return data.limit();
+        }
+
+        /** 스트림 시작부터 몇 번째 프레임인지 (1부터) */
+        public long sequence() {
+            return sequence;
+        }
+
+        public long receivedAtNanos() {
+            return receivedAtNanos;
+        }
+
+        void ensureCapacity(int size, int max) throws IOException {
+            if (size > max) {
+                throw new IOException("Frame too large: " + size);
+            }
+            if (data.capacity() < size) {
+                // 기존 내용은 버려도 됨 (채우기 전에만 호출)
+                data = ByteBuffer.allocate(Math.min(Math.max(size, data.capacity() * 2), max));
+            }
+        }
+    }
+
+    static final int DEFAULT_READ_BUFFER_BYTES = 16 * 1024;
+    static final int DEFAULT_INITIAL_FRAME_BYTES = 64 * 1024;
+    // ESP32-CAM UXGA 최고 화질도 1MB를 넘지 않음
+    static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+    // 생산자 1 + 최신 슬롯 1 + 소비자 1
+    private static final int POOL_SIZE = 3;
+    private static final long STATS_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final byte[] boundaryMarker;
+    private final int maxFrameBytes;
+    // 읽기 버퍼: [position, limit) 가 아직 해석하지 않은 데이터
+    private final ByteBuffer buf;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frameAvailable = lock.newCondition();
+    private final Condition frameReleased = lock.newCondition();
+    private final ArrayDeque<Frame> free = new ArrayDeque<>(POOL_SIZE);
+    private Frame latest;
+    private boolean finished = false;
+    private IOException error;
+
+    private volatile boolean closed = false;
+    private volatile long frameCount = 0;
+    private volatile long droppedFrames = 0;
+    private volatile long bytesRead = 0;
+    private volatile double fps = 0;
+    private volatile double bytesPerSecond = 0;
+    private long windowStartNanos = 0;
+    private long windowFrames = 0;
+    private long windowBytes = 0;
+
+    /**
+     * @param boundary Content-Type 의 boundary 값 (앞의 "--" 제외)
+     */
+    public MjpegStreamReader(InputStream in, String boundary) {
+        this(in, boundary, DEFAULT_READ_BUFFER_BYTES, DEFAULT_INITIAL_FRAME_BYTES, MAX_FRAME_BYTES);
+    }
+
+    MjpegStreamReader(InputStream in, String boundary, int readBufferBytes, int initialFrameBytes, int maxFrameBytes) {
+        this.in = in;
+        this.boundaryMarker = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.maxFrameBytes = maxFrameBytes;
+        if (readBufferBytes <= boundaryMarker.length + 2) {
+            throw new IllegalArgumentException("readBufferBytes too small");
+        }
+        this.buf = ByteBuffer.allocate(readBufferBytes);
+        buf.limit(0);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.add(new Frame(initialFrameBytes));
+        }
+    }
+
+    /** "multipart/x-mixed-replace;boundary=xxx" 에서 boundary 추출, 없으면 null */
+    public static String parseBoundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int idx = contentType.indexOf("boundary=");
+        if (idx < 0) {
+            return null;
+        }
+        String boundary = contentType.substring(idx + 9).trim();
+        int end = boundary.indexOf(';');
+        if (end >= 0) {
+            boundary = boundary.substring(0, end).trim();
+        }
+        if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() >= 2) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        if (boundary.startsWith("--")) {
+            boundary = boundary.substring(2);
+        }
+        return boundary.isEmpty() ? null : boundary;
+    }
+
+    // ---- 최신 프레임 모드 ----
+
+    /**
+     * 스트림이 끝나거나 {@link #close()} 될 때까지 프레임을 읽어 최신 슬롯에 올린다.
+     * 전용 스레드에서 호출. 오류는 {@link #getError()}로 확인.
+     */
+    public void run() {
+        try {
+            while (!closed) {
+                Frame frame = acquireFree();
+                if (frame == null) {
+                    break;
+                }
+                if (readFrame(frame) < 0) {
+                    release(frame);
+                    break;
+                }
+                publish(frame);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                lock.lock();
+                try {
+                    error = e;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.lock();
+            try {
+                finished = true;
+                frameAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 가장 최근 프레임을 가져온다 (이전에 가져가지 않은 프레임은 이미 버려짐).
+     * 다 쓴 프레임은 반드시 {@link #release(Frame)}로 돌려줘야 한다.
+     * @return 시간 초과 또는 스트림 종료 시 null
+     */
+    public Frame takeLatest(long timeoutMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (latest == null) {
+                if (finished || remaining <= 0) {
+                    return null;
+                }
+                remaining = frameAvailable.awaitNanos(remaining);
+            }
+            Frame frame = latest;
+            latest = null;
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Frame frame) {
+        lock.lock();
+        try {
+            free.add(frame);
+            frameReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** run() 이 끝났는지 (스트림 종료, 오류, close) */
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return finished;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public IOException getError() {
+        lock.lock();
+        try {
+            return error;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Frame acquireFree() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                Frame frame = free.poll();
+                if (frame != null) {
+                    return frame;
+                }
+                if (latest != null) {
+                    // 소비자가 아직 안 가져간 프레임을 덮어씀
+                    frame = latest;
+                    latest = null;
+                    droppedFrames++;
+                    return frame;
+                }
+                if (closed) {
+                    return null;
+                }
+                // 소비자가 프레임을 여러 개 쥐고 있음: 돌려줄 때까지 대기
+                frameReleased.await(100, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publish(Frame frame) {
+        lock.lock();
+        try {
+            if (latest != null) {
+                free.add(latest);
+                droppedFrames++;
+            }
+            latest = frame;
+            frameAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---- 동기 파싱 ----
+
+    /**
+     * 다음 프레임을 frame 에 채운다 (직접 호출하거나 run() 내부에서 사용).
+     * @return 프레임 바이트 수, 스트림이 끝났으면 -1
+     */
+    public int readFrame(Frame frame) throws IOException {
+        if (!skipToBoundary()) {
+            return -1;
+        }
+        int contentLength = readPartHeaders();
+        if (contentLength == -2) {
+            return -1;
+        }
+        int length = contentLength >= 0 ? readBody(frame, contentLength) : readUntilJpegEnd(frame);
+        if (length < 0) {
+            return -1;
+        }
+        frame.data.position(0);
+        frame.data.limit(length);
+        frame.receivedAtNanos = System.nanoTime();
+        frame.sequence = ++frameCount;
+        recordStats(length, frame.receivedAtNanos);
+        return length;
+    }
+
+    /** 경계 표시(--boundary) 바로 뒤로 이동. EOF 면 false */
+    private boolean skipToBoundary() throws IOException {
+        while (true) {
+            int idx = indexOf(boundaryMarker, buf.position(), buf.limit());
+            if (idx >= 0) {
+                buf.position(idx + boundaryMarker.length);
+                return true;
+            }
+            // 경계가 읽기 버퍼 끝에 걸쳐 있을 수 있으므로 마지막 몇 바이트는 남김
+            int keep = Math.min(buf.remaining(), boundaryMarker.length - 1);
+            buf.position(buf.limit() - keep);
+            if (fill() < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 경계 줄의 나머지와 파트 헤더를 빈 줄까지 읽는다.
+     * @return Content-Length, 없으면 -1, EOF 면 -2
+     */
+    private int readPartHeaders() throws IOException {
+        // 경계 줄의 나머지(보통 CRLF) 건너뜀
+        if (skipLine() < 0) {
+            return -2;
+        }
+        int contentLength = -1;
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd == -2) {
+                return -2;
+            }
+            // fill() 이 버퍼를 compact 했을 수 있으므로 줄 시작은 찾은 뒤에 읽음
+            int lineStart = buf.position();
+            int contentEnd = lineEnd > lineStart && buf.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            buf.position(lineEnd + 1);
+            if (contentEnd == lineStart) {
+                return contentLength;
+            }
+            long value = parseContentLength(lineStart, contentEnd);
+            if (value >= 0) {
+                contentLength = (int) Math.min(value, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private int skipLine() throws IOException {
+        int lineEnd = findLineEnd();
+        if (lineEnd == -2) {
+            return -1;
+        }
+        buf.position(lineEnd + 1);
+        return 0;
+    }
+
+    /**
+     * 현재 위치부터 '\n' 위치를 찾는다 (필요하면 더 읽음, position 은 줄 시작 유지).
+     * @return '\n' 의 버퍼 내 인덱스, EOF 면 -2
+     */
+    private int findLineEnd() throws IOException {
+        int searchFrom = buf.position();
+        while (true) {
+            byte[] a = buf.array();
+            for (int i = searchFrom; i < buf.limit(); i++) {
+                if (a[i] == '\n') {
+                    return i;
+                }
+            }
+            if (buf.position() == 0 && buf.limit() == buf.capacity()) {
+                throw new IOException("Header line too long");
+            }
+            int scanned = buf.limit() - buf.position();
+            if (fill() < 0) {
+                return -2;
+            }
+            searchFrom = buf.position() + scanned;
+        }
+    }
+
+    /** "Content-Length: N" 이면 N, 아니면 -1 (대소문자 무시, 할당 없음) */
+    private long parseContentLength(int start, int end) {
+        byte[] a = buf.array();
+        if (end - start <= CONTENT_LENGTH.length || a[start + CONTENT_LENGTH.length] != ':') {
+            return -1;
+        }
+        for (int i = 0; i < CONTENT_LENGTH.length; i++) {
+            int c = a[start + i];
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != CONTENT_LENGTH[i]) {
+                return -1;
+            }
+        }
+        long value = 0;
+        boolean digits = false;
+        for (int i = start + CONTENT_LENGTH.length + 1; i < end; i++) {
+            int c = a[i];
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+                if (value > Integer.MAX_VALUE) {
+                    return value;
+                }
+            } else if (c != ' ' && c != '\t') {
+                return -1;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    private int readBody(Frame frame, int contentLength) throws IOException {
+        frame.ensureCapacity(contentLength, maxFrameBytes);
+        byte[] dst = frame.data.array();
+        // 읽기 버퍼에 이미 들어온 부분
+        int buffered = Math.min(buf.remaining(), contentLength);
+        buf.get(dst, 0, buffered);
+        int off = buffered;
+        // 나머지는 읽기 버퍼를 거치지 않고 프레임 버퍼로 바로 읽음
+        while (off < contentLength) {
+            int n = in.read(dst, off, contentLength - off);
+            if (n < 0) {
+                return -1;
+            }
+            off += n;
+            bytesRead += n;
+        }
+        return contentLength;
+    }
+
+    private int readUntilJpegEnd(Frame frame) throws IOException {
+        int len = 0;
+        int prev = -1;
+        frame.ensureCapacity(DEFAULT_INITIAL_FRAME_BYTES, maxFrameBytes);
+        while (true) {
+            if (!buf.hasRemaining() && fill() < 0) {
+                return -1;
+            }
+            byte[] dst = frame.data.array();
+            while (buf.hasRemaining()) {
+                int b = buf.get() & 0xFF;
+                if (len == dst.length) {
+                    if (len >= maxFrameBytes) {
+                        throw new IOException("Frame too large without Content-Length");
+                    }
+                    ByteBuffer bigger = ByteBuffer.allocate(Math.min(len * 2, maxFrameBytes));
+                    bigger.put(dst, 0, len);
+                    frame.data = bigger;
+                    dst = bigger.array();
+                }
+                dst[len++] = (byte) b;
+                if (prev == 0xFF && b == 0xD9) {
+                    return len;
+                }
+                prev = b;
+            }
+        }
+    }
+
+    /** 남은 데이터를 앞으로 당기고 소켓에서 더 읽음. EOF 면 -1 */
+    private int fill() throws IOException {
+        buf.compact();
+        try {
+            if (!buf.hasRemaining()) {
+                return 0;
+            }
+            int n = in.read(buf.array(), buf.position(), buf.remaining());
+            if (n > 0) {
+                buf.position(buf.position() + n);
+                bytesRead += n;
+            }
+            return n;
+        } finally {
+            buf.flip();
+        }
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        byte[] a = buf.array();
+        byte first = pattern[0];
+        int last = to - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            if (a[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (a[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void recordStats(int length, long nowNanos) {
+        if (windowStartNanos == 0) {
+            windowStartNanos = nowNanos;
+        }
+        windowFrames++;
+        windowBytes += length;
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= STATS_WINDOW_NANOS) {
+            fps = windowFrames * 1e9 / elapsed;
+            bytesPerSecond = windowBytes * 1e9 / elapsed;
+            windowStartNanos = nowNanos;
+            windowFrames = 0;
+            windowBytes = 0;
+        }
+    }
+
+    // ---- 통계 ----
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /** 소비자가 가져가기 전에 새 프레임으로 대체된 프레임 수 */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** 소켓에서 읽은 총 바이트 (경계/헤더 포함) */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** 최근 1초 구간의 프레임 수신률 */
+    public double getFps() {
+        return fps;
+    }
+
+    /** 최근 1초 구간의 JPEG 바이트 수신률 */
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        lock.lock();
+        try {
+            frameReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,57 @@
+package com.memoria.app;
+
+/**
+ * 분석 결과 대신 알림에 표시할 오류 상태.
+ * (예전처럼 e.getMessage()를 이어 붙인 가짜 JSON을 만들지 않고 종류별로 구분)
+ */
+public final class MonitorError {
+
+    public enum Kind {
+        /** Flask 주소가 설정되지 않음 */
+        NOT_CONFIGURED,
+        /** 서버가 200/304 이외의 응답 코드를 반환 */
+        HTTP_ERROR,
+        /** 연결/읽기 실패 */
+        NETWORK_ERROR,
+        /** 응답을 분석 결과로 해석할 수 없음 */
+        INVALID_RESPONSE
+    }
+
+    public final Kind kind;
+    public final String detail;
+
+    private MonitorError(Kind kind, String detail) {
+        this.kind = kind;
+        this.detail = detail != null ? detail : "";
+    }
+
+    public static MonitorError notConfigured() {
+        return new MonitorError(Kind.NOT_CONFIGURED, "Flask 주소를 앱에서 설정하세요.");
+    }
+
+    public static MonitorError httpError(int responseCode) {
+        return new MonitorError(Kind.HTTP_ERROR, "응답 코드: " + responseCode);
+    }
+
+    public static MonitorError networkError(Exception e) {
+        return new MonitorError(Kind.NETWORK_ERROR, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+
+    public static MonitorError invalidResponse(Exception e) {
+        return new MonitorError(Kind.INVALID_RESPONSE, e.getMessage());
+    }
+
+    /** 알림 제목줄에 표시할 상태 이름 */
+    public String title() {
+        switch (kind) {
+            case NOT_CONFIGURED: return "주소 미설정";
+            case INVALID_RESPONSE: return "응답 형식 오류";
+            default: return "Flask 연결 실패";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + detail;
+    }
+}
@@ -0,0 +1,111 @@
+package com.memoria.app;
+
+/**
+ * 장면이 바뀌었을 때만 분석하도록 거르는 움직임 게이트.
+ * 프레임을 작은 격자(예: 32x24)의 밝기 값으로 줄여 마지막으로 "분석한" 프레임과 비교한다.
+ * (직전 프레임이 아니라 분석 기준 프레임과 비교하므로 아주 느린 변화도 쌓이면 통과)
+ * - 밝기 차이가 pixelDelta 이상인 칸의 비율이 changeRatio 이상이면 분석
+ * - 변화가 없어도 heartbeatMs 가 지나면 한 번 분석 (가만히 쓰러져 있는 경우 등)
+ * 호출 스레드가 달라도 되도록 synchronized.
+ */
+public class MotionGate {
+
+    public static final int GRID_WIDTH = 32;
+    public static final int GRID_HEIGHT = 24;
+
+    public static final int DEFAULT_PIXEL_DELTA = 25;
+    public static final float DEFAULT_CHANGE_RATIO = 0.02f;
+    public static final long DEFAULT_HEARTBEAT_MS = 60000;
+
+    private final int pixelDelta;
+    private final float changeRatio;
+    private final long heartbeatMs;
+
+    private final int[] reference = new int[GRID_WIDTH * GRID_HEIGHT];
+    private boolean hasReference = false;
+    private long lastAnalyzedAtMs = 0;
+    private float lastChange = 0f;
+
+    private long analyzedCount = 0;
+    private long skippedCount = 0;
+
+    public MotionGate() {
+        this(DEFAULT_PIXEL_DELTA, DEFAULT_CHANGE_RATIO, DEFAULT_HEARTBEAT_MS);
+    }
+
+    public MotionGate(int pixelDelta, float changeRatio, long heartbeatMs) {
+        if (pixelDelta <= 0 || changeRatio <= 0f || changeRatio > 1f || heartbeatMs <= 0) {
+            throw new IllegalArgumentException("pixelDelta > 0, 0 < changeRatio <= 1, heartbeatMs > 0 이어야 합니다");
+        }
+        this.pixelDelta = pixelDelta;
+        this.changeRatio = changeRatio;
+        this.heartbeatMs = heartbeatMs;
+    }
+
+    /**
+     * ARGB 픽셀(GRID_WIDTH x GRID_HEIGHT)로 분석 여부를 결정한다.
+     * 분석하기로 하면 이 프레임이 새 기준 프레임이 된다.
+     */
+    public synchronized boolean shouldAnalyze(int[] argbPixels, long nowMs) {
+        int cells = reference.length;
+        int changed = 0;
+        if (hasReference) {
+            for (int i = 0; i < cells; i++) {
+                if (Math.abs(luma(argbPixels[i]) - reference[i]) >= pixelDelta) {
+                    changed++;
+                }
+            }
+        }
+        lastChange = hasReference ? (float) changed / cells : 1f;
+
+        boolean analyze = !hasReference
+                || lastChange >= changeRatio
+                || nowMs - lastAnalyzedAtMs >= heartbeatMs;
+        if (!analyze) {
+            skippedCount++;
+            return false;
+        }
+        for (int i = 0; i < cells; i++) {
+            reference[i] = luma(argbPixels[i]);
+        }
+        hasReference = true;
+        lastAnalyzedAtMs = nowMs;
+        analyzedCount++;
+        return true;
+    }
+
+    /** 게이트를 거치지 않고 분석한 프레임 (예: 낙상 확정 대기 중)도 기준으로 반영 */
+    public synchronized void forceAnalyzed(int[] argbPixels, long nowMs) {
+        for (int i = 0; i < reference.length; i++) {
+            reference[i] = luma(argbPixels[i]);
+        }
+        hasReference = true;
+        lastAnalyzedAtMs = nowMs;
+        analyzedCount++;
+    }
+
+    public synchronized void reset() {
+        hasReference = false;
+    }
+
+    public synchronized long getAnalyzedCount() {
+        return analyzedCount;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /** 마지막 판정에서 바뀐 칸의 비율 (0~1) */
+    public synchronized float getLastChange() {
+        return lastChange;
+    }
+
+    // 정수 근사 BT.601 밝기
+    private static int luma(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+}
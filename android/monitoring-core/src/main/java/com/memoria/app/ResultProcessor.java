@@ -0,0 +1,179 @@
+package com.memoria.app;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 분석 결과 처리 (폴링 / SSE / 온디바이스 분석 공통, Android 의존 없음).
+ * - 같은 카메라/방(source)의 같은 결과는 한 번만 처리 (FlaskFetchEngine.publishIfChanged)
+ * - /changes 커서와 서버 bootId 관리 (서버 저장소가 새로 만들어져 bootId가 바뀌면 커서를 0으로)
+ * - AlertDispatcher로 알릴지 판단 (중복 억제는 알림에만), 이상/위험 행동은 모두 LogSink에 저장
+ * 알림/저장소/웹뷰 전달은 Output, LogSink로 받아서 ForegroundService는 Android 구현을,
+ * 단위 테스트/부하 테스트/JMH는 메모리 구현을 넘긴다.
+ * 폴링/스트림/온디바이스 분석 스레드에서 동시에 호출될 수 있다.
+ */
+public class ResultProcessor {
+
+    /** 처리 결과를 화면/알림 쪽으로 내보내는 곳 */
+    public interface Output {
+        /** 위험 알림 (상태 알림/로그 저장보다 먼저 호출) */
+        void showAlert(AlertDispatcher.Alert alert);
+
+        /** 상태(포그라운드) 알림 문구 */
+        void showStatus(String notificationText);
+
+        /** LogSink에 저장된 이상/위험 기록 (웹뷰 전달용, id는 LogSink가 준 값) */
+        void onLogged(long id, String behaviorType, String description, String isoTime, String location);
+    }
+
+    /** 이상/위험 기록 저장소 (앱에서는 AnalysisLogStore) */
+    public interface LogSink {
+        /** @return 저장된 기록 id (실패하면 0 이하) */
+        long append(String behaviorType, String description, String location, String isoTime, long timestampMs);
+    }
+
+    public enum ChangesOutcome {
+        CHANGED,
+        UNCHANGED,
+        /** 서버 bootId(저장소 id)가 바뀜: 커서를 0으로 되돌렸으므로 바로 다시 조회해야 함 */
+        SERVER_RESTARTED
+    }
+
+    /** location/source가 모두 없을 때 쓰는 위치 (JS 쪽 DEFAULT_ANALYSIS_LOCATION과 같은 기본값) */
+    public static final String DEFAULT_LOCATION = "거실";
+
+    private final FlaskFetchEngine fetchEngine;
+    private final AlertDispatcher alertDispatcher;
+    private final AdaptivePollScheduler pollScheduler;
+    private final MetricsRegistry metrics;
+    private final Output output;
+    private final LogSink logSink;
+
+    // /changes 커서: 여러 카메라/방 중 마지막으로 받은 변경 번호 (서버 bootId가 바뀌면 0부터)
+    private volatile long changesCursor = 0;
+    private volatile String changesBootId;
+    private volatile String defaultLocation = DEFAULT_LOCATION;
+
+    public ResultProcessor(FlaskFetchEngine fetchEngine, AlertDispatcher alertDispatcher,
+                           AdaptivePollScheduler pollScheduler, MetricsRegistry metrics,
+                           Output output, LogSink logSink) {
+        this.fetchEngine = fetchEngine;
+        this.alertDispatcher = alertDispatcher;
+        this.pollScheduler = pollScheduler;
+        this.metrics = metrics;
+        this.output = output;
+        this.logSink = logSink;
+    }
+
+    /**
+     * 폴링/스트림으로 받은 결과 한 건. 같은 source의 직전 결과와 같으면 처리하지 않음.
+     * @return 처리했으면 true
+     */
+    public boolean publish(AnalysisResult result) {
+        if (!fetchEngine.publishIfChanged(result.source, result)) {
+            metrics.counter("results_duplicate_suppressed").inc();
+            return false;
+        }
+        metrics.counter("results_published").inc();
+        handle(result);
+        return true;
+    }
+
+    /** /changes 응답 하나를 반영 */
+    public ChangesOutcome applyChanges(AnalysisResult.Changes changes) {
+        if (changesBootId != null && !changesBootId.equals(changes.bootId)) {
+            // 서버 저장소가 새로 만들어짐: 이전 커서는 의미가 없으므로 처음부터 다시 받음
+            // (서버 재시작만으로는 bootId가 바뀌지 않아 커서를 이어 감)
+            changesBootId = changes.bootId;
+            changesCursor = 0;
+            return ChangesOutcome.SERVER_RESTARTED;
+        }
+        changesBootId = changes.bootId;
+        boolean changed = false;
+        for (AnalysisResult result : changes.results) {
+            changed |= publish(result);
+        }
+        if (changes.cursor >= 0) {
+            changesCursor = changes.cursor;
+        }
+        return changed ? ChangesOutcome.CHANGED : ChangesOutcome.UNCHANGED;
+    }
+
+    public long getChangesCursor() {
+        return changesCursor;
+    }
+
+    /** location/source가 없는 결과를 둘 위치 (ForegroundServicePlugin.configureAlerts()의 defaultLocation) */
+    public void setDefaultLocation(String location) {
+        if (location == null || location.trim().isEmpty()) {
+            throw new IllegalArgumentException("defaultLocation must not be empty");
+        }
+        defaultLocation = location.trim();
+    }
+
+    public String getDefaultLocation() {
+        return defaultLocation;
+    }
+
+    /** 중복 확인 없이 결과 한 건 처리 (온디바이스 분석의 상태 변화 등) */
+    public void handle(AnalysisResult result) {
+        long startNanos = System.nanoTime();
+        try {
+            String behaviorType = result.behaviorType;
+            String description = result.description;
+            String location = locationOf(result);
+            long nowMs = System.currentTimeMillis();
+
+            // 알림 fast path: 상태 알림/로그 저장보다 먼저 판단하고 바로 띄움
+            AlertDispatcher.Alert alert = alertDispatcher.submit(behaviorType, description, location, nowMs);
+            if (alert != null) {
+                output.showAlert(alert);
+            }
+
+            String notificationText = "마지막 분석: " + formatClock(result.timestamp) + " (" + location + ")";
+            if (!description.isEmpty()) {
+                notificationText += "\n" + behaviorType + ": " + description;
+            } else {
+                notificationText += "\n" + behaviorType;
+            }
+            output.showStatus(notificationText);
+
+            if (result.isAlert()) {
+                pollScheduler.onAlert(nowMs);
+            }
+            // 이상/위험행동은 알림 억제와 관계없이 모두 저장하고 웹뷰로 전달 (행동 기록/주간 통계용)
+            if (result.isAlert()) {
+                String isoTime = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault()).format(new Date(nowMs));
+                long logId = logSink.append(behaviorType, description, location, isoTime, nowMs);
+                if (logId > 0) {
+                    output.onLogged(logId, behaviorType, description, isoTime, location);
+                }
+            }
+        } finally {
+            // 결과 수신부터 알림/로그 저장/브리지 대기열까지 처리 시간
+            metrics.histogram("result_handling_ms").recordSince(startNanos);
+        }
+    }
+
+    /** 결과의 location → source(카메라/방 ID) → 설정된 기본 위치 순으로 위치를 정함 */
+    public String locationOf(AnalysisResult result) {
+        if (!result.location.isEmpty()) {
+            return result.location;
+        }
+        if (!result.source.isEmpty() && !FlaskFetchEngine.DEFAULT_SOURCE.equals(result.source)) {
+            return result.source;
+        }
+        return defaultLocation;
+    }
+
+    /** 시간 포맷 변환 (millis → HH:mm:ss), 없거나 잘못되면 현재 시간 */
+    public static String formatClock(String timestampMs) {
+        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        try {
+            return sdf.format(new Date(Long.parseLong(timestampMs)));
+        } catch (NumberFormatException e) {
+            return sdf.format(new Date());
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.memoria.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * InputStream에서 바로 읽는 작은 풀(pull) 방식 JSON 리더 (android.util.JsonReader와 비슷한 API).
+ * 분석 결과처럼 몇 개의 필드만 필요한 응답을 String/JSONObject로 만들지 않고 읽기 위해 사용한다.
+ * - 읽기 버퍼와 문자열 버퍼를 reset()으로 재사용하므로, 필요한 값의 String 외에는 할당하지 않음
+ * - 필드 이름은 selectName()으로 미리 인코딩한 후보와 바이트 단위로 비교 (이름 String 생성 없음)
+ * - 중첩 위치별 상태로 ',' ':' 자리를 검사해 빠지거나 남는 구분자는 오류로 처리
+ * - 값 하나(문자열/숫자)는 최대 maxTokenBytes, 중첩은 MAX_DEPTH까지만 허용 (넘으면 IOException)
+ * 스레드 안전하지 않음: 한 스레드에서만 사용.
+ */
+public class StreamingJsonReader {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int DEFAULT_BUFFER_BYTES = 4096;
+    // 분석 결과의 설명 문구는 수 KB 이내. 이보다 긴 값은 잘못된 응답으로 봄
+    static final int DEFAULT_MAX_TOKEN_BYTES = 64 * 1024;
+    static final int MAX_DEPTH = 32;
+    private static final int INITIAL_SCRATCH_BYTES = 256;
+    // 긴 값으로 커진 문자열 버퍼는 reset() 때 이 크기를 넘으면 처음 크기로 되돌림
+    private static final int RETAINED_SCRATCH_BYTES = 4096;
+    private static final byte[][] NO_NAMES = new byte[0][];
+
+    // 중첩 위치별 상태: 다음에 어떤 구분자가 와야 하는지
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final byte[] buf;
+    private final int maxTokenBytes;
+    private int pos;
+    private int limit;
+    private InputStream in;
+
+    private final int[] stack = new int[MAX_DEPTH + 1];
+    private int stackSize;
+    // 다음 값 앞의 구분자(',' ':')를 이미 소비했으면 true (peek() 후 next*() 호출 대비)
+    private boolean valueReady;
+
+    // 문자열 값(이스케이프 해제 후 UTF-8 바이트)을 모으는 버퍼
+    private byte[] scratch = new byte[INITIAL_SCRATCH_BYTES];
+    private int scratchLen;
+
+    public StreamingJsonReader() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    public StreamingJsonReader(int bufferBytes) {
+        this(bufferBytes, DEFAULT_MAX_TOKEN_BYTES);
+    }
+
+    public StreamingJsonReader(int bufferBytes, int maxTokenBytes) {
+        if (bufferBytes <= 0 || maxTokenBytes <= 0) {
+            throw new IllegalArgumentException("bufferBytes and maxTokenBytes must be positive");
+        }
+        buf = new byte[bufferBytes];
+        this.maxTokenBytes = maxTokenBytes;
+        stackSize = 1;
+    }
+
+    /** 새 입력으로 다시 사용 (버퍼는 그대로 재사용) */
+    public StreamingJsonReader reset(InputStream in) {
+        this.in = in;
+        pos = 0;
+        limit = 0;
+        stack[0] = EMPTY_DOCUMENT;
+        stackSize = 1;
+        valueReady = false;
+        if (scratch.length > RETAINED_SCRATCH_BYTES) {
+            scratch = new byte[INITIAL_SCRATCH_BYTES];
+        }
+        return this;
+    }
+
+    /** UTF-8 이름 후보를 selectName()용으로 미리 인코딩 */
+    public static byte[][] names(String... names) {
+        byte[][] encoded = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    public Token peek() throws IOException {
+        int c = beforeValue();
+        switch (c) {
+            case -1: return Token.END_DOCUMENT;
+            case '{': return Token.BEGIN_OBJECT;
+            case '}': return Token.END_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case ']': return Token.END_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("예상하지 못한 문자 '" + (char) c + "'");
+        }
+    }
+
+    public void beginObject() throws IOException {
+        if (beforeValue() != '{') {
+            throw syntaxError("'{'가 필요함");
+        }
+        pos++;
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        int top = stack[stackSize - 1];
+        if (top != EMPTY_OBJECT && top != NONEMPTY_OBJECT) {
+            throw syntaxError("객체를 닫을 자리가 아님");
+        }
+        end('}');
+    }
+
+    public void beginArray() throws IOException {
+        if (beforeValue() != '[') {
+            throw syntaxError("'['가 필요함");
+        }
+        pos++;
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        int top = stack[stackSize - 1];
+        if (top != EMPTY_ARRAY && top != NONEMPTY_ARRAY) {
+            throw syntaxError("배열을 닫을 자리가 아님");
+        }
+        end(']');
+    }
+
+    /** 현재 객체/배열에 읽을 항목이 남았으면 true */
+    public boolean hasNext() throws IOException {
+        int c = peekSignificant();
+        if (valueReady) {
+            return c != '}' && c != ']' && c != -1;
+        }
+        switch (stack[stackSize - 1]) {
+            case NONEMPTY_OBJECT:
+            case NONEMPTY_ARRAY:
+                // 항목 사이에는 ',' 가 있어야 함 (소비는 다음 selectName()/값 읽기에서)
+                if (c == ',') {
+                    return true;
+                }
+                if (c == '}' || c == ']') {
+                    return false;
+                }
+                throw syntaxError("','가 필요함");
+            default:
+                return c != '}' && c != ']' && c != -1;
+        }
+    }
+
+    /**
+     * 다음 필드 이름을 읽어 candidates 중 일치하는 인덱스를 반환한다. 없으면 -1 (값은 skipValue()로 건너뛸 것).
+     */
+    public int selectName(byte[][] candidates) throws IOException {
+        int top = stack[stackSize - 1];
+        if (top == NONEMPTY_OBJECT) {
+            consume(',');
+        } else if (top != EMPTY_OBJECT) {
+            throw syntaxError("필드 이름이 올 자리가 아님");
+        }
+        if (peekSignificant() != '"') {
+            throw syntaxError("필드 이름이 필요함");
+        }
+        pos++;
+        readStringBytes();
+        stack[stackSize - 1] = DANGLING_NAME;
+        for (int i = 0; i < candidates.length; i++) {
+            byte[] name = candidates[i];
+            if (name.length != scratchLen) {
+                continue;
+            }
+            int j = 0;
+            while (j < scratchLen && scratch[j] == name[j]) {
+                j++;
+            }
+            if (j == scratchLen) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 문자열 값. 숫자/불리언은 그 표기 그대로, null이면 null */
+    public String nextString() throws IOException {
+        Token token = peek();
+        switch (token) {
+            case STRING:
+                pos++;
+                readStringBytes();
+                valueReady = false;
+                return new String(scratch, 0, scratchLen, StandardCharsets.UTF_8);
+            case NUMBER:
+            case BOOLEAN:
+                readLiteral(token);
+                return new String(scratch, 0, scratchLen, StandardCharsets.US_ASCII);
+            case NULL:
+                readLiteral(token);
+                return null;
+            default:
+                throw syntaxError("문자열 값이 필요함: " + token);
+        }
+    }
+
+    /** 정수 값 (문자열로 감싼 숫자도 허용) */
+    public long nextLong() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            pos++;
+            readStringBytes();
+            valueReady = false;
+        } else if (token == Token.NUMBER) {
+            readLiteral(token);
+        } else {
+            throw syntaxError("숫자 값이 필요함: " + token);
+        }
+        if (scratchLen == 0) {
+            throw syntaxError("빈 숫자");
+        }
+        long value = 0;
+        boolean negative = scratch[0] == '-';
+        for (int i = negative ? 1 : 0; i < scratchLen; i++) {
+            int d = scratch[i] - '0';
+            if (d < 0 || d > 9) {
+                // 소수/지수 표기는 정수 부분만 사용
+                break;
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /** 다음 값(중첩 객체/배열 포함)을 읽지 않고 건너뜀 */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int top = stack[stackSize - 1];
+            if (depth > 0 && (top == EMPTY_OBJECT || top == NONEMPTY_OBJECT)) {
+                if (hasNext()) {
+                    selectName(NO_NAMES);
+                } else {
+                    endObject();
+                    depth--;
+                }
+                continue;
+            }
+            if (depth > 0 && (top == EMPTY_ARRAY || top == NONEMPTY_ARRAY) && !hasNext()) {
+                endArray();
+                depth--;
+                continue;
+            }
+            Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case STRING:
+                    pos++;
+                    skipString();
+                    valueReady = false;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("값이 끝나기 전에 입력이 끝남");
+                case END_OBJECT:
+                case END_ARRAY:
+                    throw syntaxError("값이 필요함");
+                default:
+                    readLiteral(token);
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * 현재 위치에 맞는 구분자를 소비하고 다음 값의 첫 바이트를 반환 (소비하지 않음).
+     * 닫는 괄호나 입력 끝이면 구분자를 소비하지 않고 그대로 반환.
+     */
+    private int beforeValue() throws IOException {
+        if (valueReady) {
+            return peekSignificant();
+        }
+        int c = peekSignificant();
+        int top = stack[stackSize - 1];
+        switch (top) {
+            case EMPTY_DOCUMENT:
+                if (c == -1) {
+                    return c;
+                }
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                if (c != -1) {
+                    throw syntaxError("최상위 값 뒤에 내용이 더 있음");
+                }
+                return c;
+            case EMPTY_ARRAY:
+                if (c == ']') {
+                    return c;
+                }
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                if (c == ']') {
+                    return c;
+                }
+                consume(',');
+                c = peekSignificant();
+                break;
+            case DANGLING_NAME:
+                consume(':');
+                c = peekSignificant();
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                // 객체 안에서 이름 없이 값이 옴 (닫는 괄호는 endObject()가 처리)
+                if (c == '}') {
+                    return c;
+                }
+                throw syntaxError("필드 이름이 필요함");
+        }
+        if (c == '}' || c == ']' || c == ',' || c == ':' || c == -1) {
+            throw syntaxError(c == -1 ? "값이 끝나기 전에 입력이 끝남" : "'" + (char) c + "' 앞에 값이 필요함");
+        }
+        valueReady = true;
+        return c;
+    }
+
+    private void consume(char separator) throws IOException {
+        if (peekSignificant() != separator) {
+            throw syntaxError("'" + separator + "'가 필요함");
+        }
+        pos++;
+    }
+
+    private void push(int scope) throws IOException {
+        if (stackSize == stack.length) {
+            throw syntaxError("중첩이 " + MAX_DEPTH + "단계를 넘음");
+        }
+        valueReady = false;
+        stack[stackSize++] = scope;
+    }
+
+    private void end(char close) throws IOException {
+        if (valueReady || peekSignificant() != close) {
+            throw syntaxError("'" + close + "'가 필요함");
+        }
+        pos++;
+        stackSize--;
+    }
+
+    // 공백을 건너뛰고 다음 의미 있는 바이트를 소비하지 않고 반환
+    private int peekSignificant() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            int c = buf[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+                continue;
+            }
+            return c;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("문자열이 끝나기 전에 입력이 끝남");
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    // 여는 따옴표 다음부터 닫는 따옴표까지 읽어 이스케이프를 푼 UTF-8 바이트를 scratch에 모음
+    private void readStringBytes() throws IOException {
+        scratchLen = 0;
+        int pendingHighSurrogate = -1;
+        while (true) {
+            int b = readByte();
+            if (b == '"') {
+                break;
+            }
+            if (b != '\\') {
+                if (pendingHighSurrogate >= 0) {
+                    appendCodePoint(0xFFFD);
+                    pendingHighSurrogate = -1;
+                }
+                append(b);
+                continue;
+            }
+            int e = readByte();
+            if (e != 'u') {
+                if (pendingHighSurrogate >= 0) {
+                    appendCodePoint(0xFFFD);
+                    pendingHighSurrogate = -1;
+                }
+                switch (e) {
+                    case 'n': append('\n'); break;
+                    case 't': append('\t'); break;
+                    case 'r': append('\r'); break;
+                    case 'b': append('\b'); break;
+                    case 'f': append('\f'); break;
+                    default: append(e); break; // \" \\ \/
+                }
+                continue;
+            }
+            int unit = 0;
+            for (int i = 0; i < 4; i++) {
+                int h = Character.digit(readByte(), 16);
+                if (h < 0) {
+                    throw syntaxError("잘못된 \\u 이스케이프");
+                }
+                unit = (unit << 4) | h;
+            }
+            if (Character.isHighSurrogate((char) unit)) {
+                if (pendingHighSurrogate >= 0) {
+                    appendCodePoint(0xFFFD);
+                }
+                pendingHighSurrogate = unit;
+            } else if (Character.isLowSurrogate((char) unit) && pendingHighSurrogate >= 0) {
+                appendCodePoint(Character.toCodePoint((char) pendingHighSurrogate, (char) unit));
+                pendingHighSurrogate = -1;
+            } else {
+                if (pendingHighSurrogate >= 0) {
+                    appendCodePoint(0xFFFD);
+                    pendingHighSurrogate = -1;
+                }
+                appendCodePoint(Character.isSurrogate((char) unit) ? 0xFFFD : unit);
+            }
+        }
+        if (pendingHighSurrogate >= 0) {
+            appendCodePoint(0xFFFD);
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int b = readByte();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                readByte();
+            }
+        }
+    }
+
+    // 숫자/true/false/null 리터럴 (peek()이 알려준 종류와 모양이 맞는지 확인)
+    private void readLiteral(Token token) throws IOException {
+        scratchLen = 0;
+        while (pos < limit || fill()) {
+            int b = buf[pos];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                break;
+            }
+            append(b);
+            pos++;
+        }
+        valueReady = false;
+        boolean valid;
+        switch (token) {
+            case BOOLEAN: valid = scratchIs("true") || scratchIs("false"); break;
+            case NULL: valid = scratchIs("null"); break;
+            default: valid = isNumber(); break;
+        }
+        if (!valid) {
+            throw syntaxError("잘못된 값 '" + new String(scratch, 0, scratchLen, StandardCharsets.US_ASCII) + "'");
+        }
+    }
+
+    private boolean scratchIs(String literal) {
+        if (scratchLen != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < scratchLen; i++) {
+            if (scratch[i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNumber() {
+        int digits = 0;
+        for (int i = 0; i < scratchLen; i++) {
+            int b = scratch[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+            } else if (b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E') {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    private void appendCodePoint(int cp) throws IOException {
+        if (cp < 0x80) {
+            append(cp);
+        } else if (cp < 0x800) {
+            append(0xC0 | (cp >> 6));
+            append(0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            append(0xE0 | (cp >> 12));
+            append(0x80 | ((cp >> 6) & 0x3F));
+            append(0x80 | (cp & 0x3F));
+        } else {
+            append(0xF0 | (cp >> 18));
+            append(0x80 | ((cp >> 12) & 0x3F));
+            append(0x80 | ((cp >> 6) & 0x3F));
+            append(0x80 | (cp & 0x3F));
+        }
+    }
+
+    private void append(int b) throws IOException {
+        if (scratchLen >= maxTokenBytes) {
+            throw syntaxError("값이 " + maxTokenBytes + "바이트를 넘음");
+        }
+        if (scratchLen == scratch.length) {
+            byte[] grown = new byte[Math.min(scratch.length * 2, maxTokenBytes)];
+            System.arraycopy(scratch, 0, grown, 0, scratchLen);
+            scratch = grown;
+        }
+        scratch[scratchLen++] = (byte) b;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("JSON 파싱 실패: " + message);
+    }
+}
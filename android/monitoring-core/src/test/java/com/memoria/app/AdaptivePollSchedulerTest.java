@@ -0,0 +1,145 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * 폴링 간격 전환: 결과에 따른 단축, 실패 백오프, 절전/Doze 상태에 따른 연장.
+ * 시간은 nowMs로 직접 넘긴다. 간격은 min 1s / base 10s / max 60s, 경보 유지 30s.
+ */
+public class AdaptivePollSchedulerTest {
+
+    private static final long MIN = 1000;
+    private static final long BASE = 10000;
+    private static final long MAX = 60000;
+    private static final long HOLD = 30000;
+
+    private static AdaptivePollScheduler newScheduler() {
+        AdaptivePollScheduler scheduler = new AdaptivePollScheduler();
+        scheduler.configure(MIN, BASE, MAX, HOLD);
+        return scheduler;
+    }
+
+    @Test
+    public void startsAtBaseInterval() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        assertEquals(BASE, scheduler.nextIntervalMs(0));
+        assertEquals("default", scheduler.currentReason(0));
+    }
+
+    @Test
+    public void changedResultHalvesBaseInterval() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.onChanged();
+        assertEquals(BASE / 2, scheduler.nextIntervalMs(0));
+        assertEquals("changed", scheduler.currentReason(0));
+    }
+
+    @Test
+    public void alertTightensToMinimumUntilHoldExpires() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.onAlert(1000);
+        assertEquals(MIN, scheduler.nextIntervalMs(1000));
+        assertEquals("alert", scheduler.currentReason(1000));
+
+        // 유지 시간 동안은 같은 결과가 이어져 간격이 늘어나도 최소 간격
+        for (int i = 0; i < 5; i++) {
+            scheduler.onUnchanged();
+        }
+        assertEquals(MIN, scheduler.nextIntervalMs(1000 + HOLD - 1));
+        assertEquals("alert", scheduler.currentReason(1000 + HOLD - 1));
+
+        // 유지 시간이 지나면 누적된 백오프가 적용됨
+        assertTrue(scheduler.nextIntervalMs(1000 + HOLD) > BASE);
+        assertEquals("unchanged", scheduler.currentReason(1000 + HOLD));
+    }
+
+    @Test
+    public void unchangedResultsBackOffAfterStreakUpToMax() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.onUnchanged();
+        scheduler.onUnchanged();
+        assertEquals(BASE, scheduler.nextIntervalMs(0));
+
+        scheduler.onUnchanged();
+        assertEquals(BASE * 2, scheduler.nextIntervalMs(0));
+        assertEquals("unchanged", scheduler.currentReason(0));
+        scheduler.onUnchanged();
+        assertEquals(BASE * 4, scheduler.nextIntervalMs(0));
+        scheduler.onUnchanged();
+        assertEquals(MAX, scheduler.nextIntervalMs(0));
+
+        // 결과가 바뀌면 바로 당겨짐
+        scheduler.onChanged();
+        assertEquals(BASE / 2, scheduler.nextIntervalMs(0));
+    }
+
+    @Test
+    public void failuresBackOffExponentiallyAndRecoverOnSuccess() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.onFailure();
+        assertEquals(BASE * 2, scheduler.nextIntervalMs(0));
+        assertEquals("failure", scheduler.currentReason(0));
+        scheduler.onFailure();
+        assertEquals(BASE * 4, scheduler.nextIntervalMs(0));
+        for (int i = 0; i < 40; i++) {
+            scheduler.onFailure();
+        }
+        assertEquals(MAX, scheduler.nextIntervalMs(0));
+
+        scheduler.onChanged();
+        assertEquals(BASE / 2, scheduler.nextIntervalMs(0));
+        // 실패 횟수도 초기화되어 다시 한 단계부터
+        scheduler.onFailure();
+        assertEquals(BASE * 2, scheduler.nextIntervalMs(0));
+    }
+
+    @Test
+    public void powerSaveDoublesIntervalWithinMax() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.setPowerState(true, false);
+        assertEquals(BASE * 2, scheduler.nextIntervalMs(0));
+        assertEquals("power_save", scheduler.currentReason(0));
+
+        scheduler.onFailure();
+        scheduler.onFailure();
+        assertEquals(MAX, scheduler.nextIntervalMs(0));
+
+        scheduler.setPowerState(false, false);
+        assertEquals(BASE * 4, scheduler.nextIntervalMs(0));
+        assertEquals("failure", scheduler.currentReason(0));
+    }
+
+    @Test
+    public void alertHoldOverridesPowerSaveButNotIdle() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        scheduler.setPowerState(true, false);
+        scheduler.onAlert(0);
+        assertEquals(MIN, scheduler.nextIntervalMs(0));
+        assertEquals("alert", scheduler.currentReason(0));
+
+        scheduler.setPowerState(true, true);
+        assertEquals(MAX, scheduler.nextIntervalMs(0));
+        assertEquals("idle", scheduler.currentReason(0));
+
+        scheduler.setPowerState(false, false);
+        assertEquals(MIN, scheduler.nextIntervalMs(0));
+    }
+
+    @Test
+    public void configureClampsCurrentInterval() {
+        AdaptivePollScheduler scheduler = newScheduler();
+        for (int i = 0; i < 3; i++) {
+            scheduler.onFailure();
+        }
+        assertEquals(MAX, scheduler.nextIntervalMs(0));
+        scheduler.configure(MIN, BASE, 30000, HOLD);
+        assertEquals(30000, scheduler.nextIntervalMs(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void configureRejectsBaseBelowMin() {
+        new AdaptivePollScheduler().configure(5000, 1000, 60000, 0);
+    }
+}
@@ -0,0 +1,158 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * 알림 중복 억제와 Dangerous 에스컬레이션.
+ * 디스패처는 시각을 nowMs로 받으므로 테스트의 now 값이 시계 역할을 한다.
+ * 중복 억제 구간 10초, 재알림 간격 5초.
+ */
+public class AlertDispatcherTest {
+
+    private static final long DEDUPE_MS = 10000;
+    private static final long ESCALATE_MS = 5000;
+
+    private final AlertDispatcher dispatcher = new AlertDispatcher(DEDUPE_MS, ESCALATE_MS);
+    private long now = 1_000_000;
+
+    @Test
+    public void normalResultIsNotAlerted() {
+        assertNull(dispatcher.submit("Normal", "앉아 있음", "거실", now));
+        assertEquals(0, dispatcher.getSentCount());
+    }
+
+    @Test
+    public void duplicateIsSuppressedUntilWindowExpires() {
+        AlertDispatcher.Alert first = dispatcher.submit("Abnormal", "비틀거림", "거실", now);
+        assertNotNull(first);
+        assertFalse(first.isEscalation());
+
+        now += DEDUPE_MS - 1;
+        assertNull(dispatcher.submit("Abnormal", "비틀거림", "거실", now));
+        assertEquals(1, dispatcher.getSuppressedCount());
+
+        now += 1;
+        assertNotNull(dispatcher.submit("Abnormal", "비틀거림", "거실", now));
+        assertEquals(2, dispatcher.getSentCount());
+    }
+
+    @Test
+    public void differentDescriptionOrLocationIsNotDuplicate() {
+        assertNotNull(dispatcher.submit("Abnormal", "비틀거림", "거실", now));
+        assertNotNull(dispatcher.submit("Abnormal", "비틀거림", "침실", now));
+        assertNotNull(dispatcher.submit("Abnormal", "오래 누워 있음", "거실", now));
+        assertNotNull(dispatcher.submit("Dangerous", "비틀거림", "거실", now));
+        assertEquals(0, dispatcher.getSuppressedCount());
+    }
+
+    @Test
+    public void dangerousEscalatesEachIntervalFromLastAlert() {
+        long since = now;
+        assertNotNull(dispatcher.submit("Dangerous", "쓰러짐", "거실", now));
+        assertEquals(ESCALATE_MS, dispatcher.millisUntilNextEscalation(now));
+
+        now += ESCALATE_MS - 1;
+        assertTrue(dispatcher.pollEscalations(now).isEmpty());
+        assertEquals(1, dispatcher.millisUntilNextEscalation(now));
+
+        now += 1;
+        List<AlertDispatcher.Alert> due = dispatcher.pollEscalations(now);
+        assertEquals(1, due.size());
+        AlertDispatcher.Alert alert = due.get(0);
+        assertEquals("Dangerous", alert.behaviorType);
+        assertEquals("쓰러짐", alert.description);
+        assertEquals("거실", alert.location);
+        assertEquals(since, alert.firstSeenAtMs);
+        assertEquals(1, alert.escalationLevel);
+        assertTrue(alert.isEscalation());
+
+        // 같은 시각에 다시 꺼내도 중복되지 않음
+        assertTrue(dispatcher.pollEscalations(now).isEmpty());
+
+        now += ESCALATE_MS;
+        assertEquals(2, dispatcher.pollEscalations(now).get(0).escalationLevel);
+        assertEquals(2, dispatcher.getEscalatedCount());
+    }
+
+    @Test
+    public void escalationStopsAtMaxLevel() {
+        dispatcher.submit("Dangerous", "쓰러짐", "거실", now);
+        for (int level = 1; level <= AlertDispatcher.MAX_ESCALATION_LEVEL; level++) {
+            now += ESCALATE_MS;
+            List<AlertDispatcher.Alert> due = dispatcher.pollEscalations(now);
+            assertEquals(1, due.size());
+            assertEquals(level, due.get(0).escalationLevel);
+        }
+
+        now += ESCALATE_MS * 10;
+        assertTrue(dispatcher.pollEscalations(now).isEmpty());
+        assertEquals(-1, dispatcher.millisUntilNextEscalation(now));
+        assertEquals(AlertDispatcher.MAX_ESCALATION_LEVEL, dispatcher.getEscalatedCount());
+        // 상태 자체는 위험이 끝날 때까지 유지
+        assertEquals(1, dispatcher.getActiveDangerCount());
+    }
+
+    @Test
+    public void acknowledgeStopsEscalationForThatLocationOnly() {
+        dispatcher.submit("Dangerous", "쓰러짐", "거실", now);
+        dispatcher.submit("Dangerous", "쓰러짐", "침실", now);
+        dispatcher.acknowledge("거실");
+
+        now += ESCALATE_MS;
+        List<AlertDispatcher.Alert> due = dispatcher.pollEscalations(now);
+        assertEquals(1, due.size());
+        assertEquals("침실", due.get(0).location);
+
+        // 없는 위치를 확인해도 아무 일 없음
+        dispatcher.acknowledge("주방");
+    }
+
+    @Test
+    public void nonDangerousResultEndsDangerState() {
+        dispatcher.submit("Dangerous", "쓰러짐", "거실", now);
+        assertEquals(1, dispatcher.getActiveDangerCount());
+
+        now += 1000;
+        dispatcher.submit("Normal", "일어남", "거실", now);
+        assertEquals(0, dispatcher.getActiveDangerCount());
+        assertEquals(-1, dispatcher.millisUntilNextEscalation(now));
+
+        now += ESCALATE_MS;
+        assertTrue(dispatcher.pollEscalations(now).isEmpty());
+    }
+
+    @Test
+    public void continuedDangerKeepsFirstSeenTime() {
+        long since = now;
+        dispatcher.submit("Dangerous", "쓰러짐", "거실", now);
+
+        now += 1000;
+        AlertDispatcher.Alert changed = dispatcher.submit("Dangerous", "움직임 없음", "거실", now);
+        assertNotNull(changed);
+        assertEquals(since, changed.firstSeenAtMs);
+
+        // 재알림 간격은 마지막 알림부터 다시 셈, 설명은 최신 값
+        now += ESCALATE_MS - 1;
+        assertTrue(dispatcher.pollEscalations(now).isEmpty());
+        now += 1;
+        assertEquals("움직임 없음", dispatcher.pollEscalations(now).get(0).description);
+    }
+
+    @Test
+    public void configureChangesWindows() {
+        dispatcher.configure(0, 1000);
+        assertEquals(0, dispatcher.getDedupeWindowMs());
+        assertEquals(1000, dispatcher.getEscalationIntervalMs());
+        assertNotNull(dispatcher.submit("Abnormal", "비틀거림", "거실", now));
+        assertNotNull(dispatcher.submit("Abnormal", "비틀거림", "거실", now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsShortEscalationInterval() {
+        new AlertDispatcher(DEDUPE_MS, 999);
+    }
+}
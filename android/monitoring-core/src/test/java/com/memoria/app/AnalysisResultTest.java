@@ -0,0 +1,148 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flask 응답 형식 그대로의 본문으로 AnalysisResult/StreamingJsonReader 파싱을 확인한다.
+ * 예전 경로(본문 전체를 String으로 모으기)와의 비용/할당량 비교는 JMH의 ResultParsingBenchmark.
+ */
+public class AnalysisResultTest {
+
+    // app.py update_analysis 가 저장하는 형태 (Gemini 응답 + source/location)
+    private static final String LATEST = "{\"behaviorType\": \"Dangerous\", \"description\": \"환자가 바닥에 쓰러져 있음 \\\"주의\\\"\","
+            + " \"warningMessage\": \"괜찮으세요? 움직이지 마세요.\", \"timestamp\": 1718000000000,"
+            + " \"detections\": [{\"box\": [1, 2, 3, 4], \"conf\": 0.91, \"label\": \"person\"}],"
+            + " \"source\": \"bedroom\", \"location\": \"침실\"}";
+
+    @Test
+    public void readsOnlyKnownFieldsAndSkipsTheRest() throws IOException {
+        AnalysisResult result = AnalysisResult.read(reader(LATEST));
+        assertEquals("Dangerous", result.behaviorType);
+        assertEquals("환자가 바닥에 쓰러져 있음 \"주의\"", result.description);
+        assertEquals("1718000000000", result.timestamp);
+        assertEquals("침실", result.location);
+        assertEquals("bedroom", result.source);
+    }
+
+    @Test
+    public void decodesEscapesAndMissingFields() throws IOException {
+        AnalysisResult result = AnalysisResult.parse(
+                "{\"behaviorType\":\"Normal\",\"description\":\"a\\nb\\t\\u00e9\\ud83d\\ude00\\/\",\"extra\":null}");
+        assertEquals("a\nb\té😀/", result.description);
+        assertEquals("", result.timestamp);
+        assertEquals("", result.location);
+        assertEquals(FlaskFetchEngine.DEFAULT_SOURCE, result.source);
+
+        AnalysisResult empty = AnalysisResult.parse("{}");
+        assertEquals(AnalysisResult.DEFAULT_BEHAVIOR_TYPE, empty.behaviorType);
+        assertEquals(empty, AnalysisResult.parse("{ }"));
+    }
+
+    @Test
+    public void readsChangesAcrossSmallReads() throws IOException {
+        String body = "{\"cursor\": 12, \"bootId\": \"ab12cd34\", \"changes\": ["
+                + "{\"source\": \"livingroom\", \"version\": 9, \"result\": {\"behaviorType\": \"Normal\", \"description\": \"\", \"timestamp\": \"1\"}},"
+                + "{\"source\": \"bedroom\", \"version\": 12, \"result\": " + LATEST + "}]}";
+        StreamingJsonReader reader = new StreamingJsonReader(7).reset(new TrickleInputStream(utf8(body), 3));
+        AnalysisResult.Changes changes = AnalysisResult.readChanges(reader);
+        assertEquals(12, changes.cursor);
+        assertEquals("ab12cd34", changes.bootId);
+        assertEquals(2, changes.results.size());
+        // 결과 본문에 source가 없어도 변경 항목의 source를 따름
+        assertEquals("livingroom", changes.results.get(0).source);
+        assertEquals("침실", changes.results.get(1).location);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBodyFails() throws IOException {
+        AnalysisResult.read(reader("{\"behaviorType\": \"Dang"));
+    }
+
+    @Test
+    public void rejectsMissingOrExtraSeparators() throws IOException {
+        String[] malformed = {
+                "{\"behaviorType\" \"Normal\"}",
+                "{\"behaviorType\": \"Normal\" \"description\": \"a\"}",
+                "{\"behaviorType\": \"Normal\",}",
+                "{,\"behaviorType\": \"Normal\"}",
+                "{\"behaviorType\":: \"Normal\"}",
+                "{\"extra\": [1 2], \"behaviorType\": \"Normal\"}",
+                "{\"extra\": [1,], \"behaviorType\": \"Normal\"}",
+                "{\"extra\": {\"a\" 1}}",
+                "{\"extra\": tru}",
+                "{\"behaviorType\": \"Normal\"} {}",
+        };
+        for (String json : malformed) {
+            try {
+                AnalysisResult.parse(json);
+                fail("accepted " + json);
+            } catch (IOException expected) {
+                // 기대한 오류
+            }
+        }
+        // 잘 된 본문은 그대로 읽힘
+        assertEquals("Normal", AnalysisResult.read(reader("{\"extra\": [1, {\"a\": [true, null]}], \"behaviorType\": \"Normal\"}")).behaviorType);
+    }
+
+    @Test
+    public void oversizeValueFailsAndReaderIsReusable() throws IOException {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longText.append("가나다");
+        }
+        StreamingJsonReader reader = new StreamingJsonReader(64, 512);
+        try {
+            AnalysisResult.read(reader.reset(new ByteArrayInputStream(utf8("{\"description\": \"" + longText + "\"}"))));
+            fail("accepted oversize value");
+        } catch (IOException expected) {
+            // 기대한 오류
+        }
+        // 건너뛰는 값은 버퍼에 모으지 않으므로 길어도 됨
+        AnalysisResult result = AnalysisResult.read(reader.reset(new ByteArrayInputStream(
+                utf8("{\"warningMessage\": \"" + longText + "\", \"description\": \"짧음\"}"))));
+        assertEquals("짧음", result.description);
+    }
+
+    private static StreamingJsonReader reader(String json) {
+        return new StreamingJsonReader().reset(new ByteArrayInputStream(utf8(json)));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** 소켓처럼 최대 maxChunk 바이트씩만 돌려주는 스트림 */
+    private static class TrickleInputStream extends InputStream {
+        private final byte[] data;
+        private final int maxChunk;
+        private int pos = 0;
+
+        TrickleInputStream(byte[] data, int maxChunk) {
+            this.data = data;
+            this.maxChunk = maxChunk;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, maxChunk), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 재연결 대기 확인: 실패가 이어지면 대기가 늘어나지만,
+ * 이벤트를 받았거나 오래 유지된 스트림이 끊기면 최소 대기로 돌아가야 한다.
+ * 연결을 중간에 끊어야 하므로 HttpServer 대신 소켓으로 응답을 직접 쓴다.
+ */
+public class AnalysisStreamClientTest {
+
+    private static final long MIN_BACKOFF_MS = 50;
+    private static final long MAX_BACKOFF_MS = 2000;
+    // 실패 4번 뒤의 대기(800ms)보다 충분히 짧으면 초기화된 것으로 봄
+    private static final long RESET_GAP_LIMIT_MS = 400;
+
+    private ServerSocket serverSocket;
+    private AnalysisStreamClient client;
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    @After
+    public void tearDown() throws IOException {
+        // 대기 중인 재연결이 응답을 기다리다 stop()의 disconnect와 겹치지 않도록 소켓을 먼저 닫음
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void backoffResetsAfterStreamWithEventsDrops() throws Exception {
+        startClient(Long.MAX_VALUE);
+        failRequests(4);
+
+        // 5번째: 이벤트 하나를 보낸 뒤 청크 종료 없이 끊음 → 클라이언트에서는 IOException
+        try (Socket socket = accept()) {
+            writeStreamHeaders(socket);
+            writeChunk(socket, "event: analysis\ndata: {\"behaviorType\":\"Normal\"}\n\n");
+            assertEquals("{\"behaviorType\":\"Normal\"}", events.poll(5, TimeUnit.SECONDS));
+        }
+        long droppedAt = System.currentTimeMillis();
+
+        assertReconnectsWithin(droppedAt, RESET_GAP_LIMIT_MS);
+    }
+
+    @Test
+    public void backoffResetsAfterLongQuietStreamDrops() throws Exception {
+        startClient(100);
+        failRequests(4);
+
+        // 이벤트는 없지만 기준 시간보다 오래 유지된 연결
+        try (Socket socket = accept()) {
+            writeStreamHeaders(socket);
+            writeChunk(socket, ": keep-alive\n\n");
+            Thread.sleep(200);
+        }
+        long droppedAt = System.currentTimeMillis();
+
+        assertReconnectsWithin(droppedAt, RESET_GAP_LIMIT_MS);
+    }
+
+    @Test
+    public void backoffKeepsGrowingWhenStreamDropsImmediately() throws Exception {
+        startClient(Long.MAX_VALUE);
+        failRequests(4);
+
+        try (Socket socket = accept()) {
+            writeStreamHeaders(socket);
+        }
+        long droppedAt = System.currentTimeMillis();
+
+        try (Socket socket = accept()) {
+            long gap = System.currentTimeMillis() - droppedAt;
+            assertTrue("gap " + gap + "ms", gap >= 700);
+        }
+    }
+
+    private void startClient(long healthyStreamMs) throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        serverSocket.setSoTimeout(5000);
+        String baseUrl = "http://127.0.0.1:" + serverSocket.getLocalPort();
+        client = new AnalysisStreamClient(() -> baseUrl, new AnalysisStreamClient.Listener() {
+            @Override
+            public void onConnected() {
+            }
+
+            @Override
+            public void onDisconnected(String reason) {
+            }
+
+            @Override
+            public void onUnsupported(int responseCode) {
+            }
+
+            @Override
+            public void onAnalysis(String json) {
+                events.add(json);
+            }
+        }, MIN_BACKOFF_MS, MAX_BACKOFF_MS, healthyStreamMs);
+        client.start();
+    }
+
+    /** 500으로 n번 응답해 대기를 늘려 둠 (50 → 100 → 200 → 400, 다음 대기 800) */
+    private void failRequests(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            try (Socket socket = accept()) {
+                write(socket, "HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+            }
+        }
+    }
+
+    private void assertReconnectsWithin(long droppedAt, long limitMs) throws IOException {
+        try (Socket socket = accept()) {
+            long gap = System.currentTimeMillis() - droppedAt;
+            assertTrue("gap " + gap + "ms", gap < limitMs);
+        }
+    }
+
+    /** 연결을 받고 요청 헤더를 끝까지 읽음 */
+    private Socket accept() throws IOException {
+        Socket socket = serverSocket.accept();
+        InputStream in = socket.getInputStream();
+        int matched = 0;
+        byte[] end = {'\r', '\n', '\r', '\n'};
+        while (matched < end.length) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("request truncated");
+            }
+            matched = b == end[matched] ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        return socket;
+    }
+
+    private static void writeStreamHeaders(Socket socket) throws IOException {
+        write(socket, "HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nTransfer-Encoding: chunked\r\n\r\n");
+    }
+
+    private static void writeChunk(Socket socket, String data) throws IOException {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        write(socket, Integer.toHexString(bytes.length) + "\r\n" + data + "\r\n");
+    }
+
+    private static void write(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
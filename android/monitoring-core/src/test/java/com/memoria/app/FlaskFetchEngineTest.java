@@ -0,0 +1,230 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 로컬 스텁 서버를 상대로 FlaskFetchEngine을 수천 번 돌려
+ * 스레드 수와 TCP 연결 수가 늘어나지 않는지 확인한다.
+ */
+public class FlaskFetchEngineTest {
+
+    private static final int CYCLES = 3000;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<String> clientConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile CountDownLatch blockResponses;
+    private final AtomicReference<String> callbackError = new AtomicReference<>();
+    private final AtomicInteger notModifiedCallbacks = new AtomicInteger();
+    private final AtomicInteger bodyCallbacks = new AtomicInteger();
+    private volatile String lastIfNoneMatch;
+    private volatile boolean etagEnabled = false;
+
+    @Before
+    public void setUp() throws Exception {
+        // 스텁 서버의 헤더/본문 분할 전송이 Nagle 지연에 걸리지 않도록
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/latest_analysis", exchange -> {
+            // 원격 포트가 같으면 같은 TCP 연결을 재사용한 것
+            clientConnections.add(exchange.getRemoteAddress().toString());
+            requestCount.incrementAndGet();
+            lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            CountDownLatch block = blockResponses;
+            if (block != null) {
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+            if (etagEnabled) {
+                exchange.getResponseHeaders().set("ETag", "\"boot-1\"");
+                if ("\"boot-1\"".equals(lastIfNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            byte[] body = "{\"behaviorType\":\"Normal\",\"description\":\"\",\"timestamp\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void threadAndConnectionCountStayFlat() throws Exception {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        try {
+            // 워밍업 후 기준 스레드 수 측정
+            fetchAndWait(engine);
+            int baselineThreads = Thread.activeCount();
+            int peakThreads = baselineThreads;
+
+            for (int i = 0; i < CYCLES; i++) {
+                fetchAndWait(engine);
+                peakThreads = Math.max(peakThreads, Thread.activeCount());
+            }
+
+            assertEquals(CYCLES + 1, requestCount.get());
+            assertTrue("threads grew: " + baselineThreads + " -> " + peakThreads, peakThreads - baselineThreads <= 2);
+            assertTrue("connections not reused: " + clientConnections.size(), clientConnections.size() <= 2);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void skipsWhileRequestInFlight() throws Exception {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        blockResponses = new CountDownLatch(1);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            assertTrue(engine.fetchLatest(baseUrl, callback(done)));
+            for (int i = 0; i < 10; i++) {
+                assertFalse(engine.fetchLatest(baseUrl, callback(new CountDownLatch(1))));
+            }
+            blockResponses.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            assertEquals(10, engine.getSkippedCount());
+            assertEquals(1, requestCount.get());
+        } finally {
+            blockResponses = null;
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void unchangedResultIsAnsweredWith304() throws Exception {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        etagEnabled = true;
+        try {
+            fetchAndWait(engine);
+            assertNull(lastIfNoneMatch);
+            assertEquals(1, bodyCallbacks.get());
+
+            for (int i = 0; i < 5; i++) {
+                fetchAndWait(engine);
+            }
+            assertEquals("\"boot-1\"", lastIfNoneMatch);
+            assertEquals(1, bodyCallbacks.get());
+            assertEquals(5, notModifiedCallbacks.get());
+            assertEquals(5, engine.getNotModifiedCount());
+            // JDK HttpServer 스텁은 본문 없는 304 뒤에 연결을 닫으므로 여기서는 연결 수를 보지 않음
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void warmUpReusesConnectionWithoutConsumingEtag() throws Exception {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        etagEnabled = true;
+        try {
+            assertTrue(engine.warmUp(baseUrl + "/latest_analysis"));
+            // 예열 중에도 조회는 건너뛰지 않고 예열 뒤에 실행됨
+            fetchAndWait(engine);
+            assertEquals(0, engine.getSkippedCount());
+            assertEquals(2, requestCount.get());
+            // 예열은 ETag를 기록하지 않으므로 첫 조회는 본문을 받음
+            assertNull(lastIfNoneMatch);
+            assertEquals(1, bodyCallbacks.get());
+            assertEquals(0, notModifiedCallbacks.get());
+            assertEquals("warm-up connection not reused: " + clientConnections, 1, clientConnections.size());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void publishIfChangedSuppressesDuplicates() {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        try {
+            assertTrue(engine.publishIfChanged("a"));
+            assertFalse(engine.publishIfChanged("a"));
+            assertTrue(engine.publishIfChanged("b"));
+            assertEquals("b", engine.getLastResult());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void publishIfChangedIsTrackedPerSource() {
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        try {
+            assertTrue(engine.publishIfChanged("livingroom", "a"));
+            // 다른 방의 같은 결과는 중복이 아님
+            assertTrue(engine.publishIfChanged("bedroom", "a"));
+            assertFalse(engine.publishIfChanged("livingroom", "a"));
+            assertTrue(engine.publishIfChanged("bedroom", "b"));
+            assertFalse(engine.publishIfChanged("livingroom", "a"));
+            assertEquals("a", engine.getLastResult("livingroom"));
+            assertEquals("b", engine.getLastResult("bedroom"));
+            assertEquals(2, engine.getSourceCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private void fetchAndWait(FlaskFetchEngine engine) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        // 이전 요청의 finally 블록이 끝날 때까지 잠깐 기다릴 수 있음
+        while (!engine.fetchLatest(baseUrl, callback(done))) {
+            Thread.yield();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(callbackError.get());
+    }
+
+    private FlaskFetchEngine.Callback callback(CountDownLatch done) {
+        // 콜백은 엔진 스레드에서 실행되므로 실패는 기록만 하고 테스트 스레드에서 확인
+        return new FlaskFetchEngine.Callback() {
+            @Override
+            public void onResponse(int responseCode, String body) {
+                if (responseCode != 200) {
+                    callbackError.compareAndSet(null, "response code " + responseCode);
+                }
+                bodyCallbacks.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void onNotModified() {
+                notModifiedCallbacks.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callbackError.compareAndSet(null, "fetch failed: " + e);
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package com.memoria.app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * flask_app/app.py 의 조회 엔드포인트를 흉내 내는 프로세스 안 스텁 (부하 테스트용).
+ * - 생성 스레드가 정해진 속도(events/s)로 여러 source에 분석 결과를 올림 (/update_analysis 역할)
+ * - GET /changes?since=N : 커서 이후 바뀐 source의 최신 결과, ETag/304 (서버와 같은 형식)
+ * - GET /latest_analysis : 가장 최근 결과
+ * - 그 밖의 경로(/analysis_stream 등)는 404라 클라이언트는 폴링으로 동작
+ * 결과 description에 이벤트 번호("evt-N")를 넣어 클라이언트가 생성 시각을 찾아 종단 지연을 잴 수 있다.
+ */
+public class FlaskStubServer implements AutoCloseable {
+
+    public static final class Options {
+        public int eventsPerSecond = 50;
+        public int sources = 4;
+        /** 이상/위험 결과 비율 (0~1, 그중 절반은 Dangerous) */
+        public double alertRatio = 0.05;
+        /** 직전과 같은 결과를 다시 올리는 비율 (서버 버전만 오르고 내용은 같음 → 클라이언트가 중복 억제) */
+        public double duplicateRatio = 0.2;
+    }
+
+    private static final class Entry {
+        final long version;
+        final String json;
+
+        Entry(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final ScheduledExecutorService producer;
+    private final String bootId = Long.toHexString(System.nanoTime());
+    private final Random random = new Random(42);
+
+    private final Object lock = new Object();
+    private final ConcurrentHashMap<String, Entry> latestBySource = new ConcurrentHashMap<>();
+    private final String[] lastResultBySource;
+    private long version = 0;
+    private String lastSource;
+
+    // 이벤트 번호 → 생성 시각(nanoTime). 크기는 생성 수만큼 늘어나므로 부하 테스트 시간 동안만 사용
+    private final ConcurrentHashMap<Long, Long> producedAtNanos = new ConcurrentHashMap<>();
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong duplicatesProduced = new AtomicLong();
+    private final AtomicLong changesRequests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    public FlaskStubServer(Options options) throws IOException {
+        this.options = options;
+        this.lastResultBySource = new String[options.sources];
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(httpExecutor);
+        server.createContext("/changes", this::handleChanges);
+        server.createContext("/latest_analysis", this::handleLatest);
+        server.createContext("/", exchange -> respond(exchange, 404, "{\"error\": \"not found\"}", null));
+        producer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flask-stub-producer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        server.start();
+        long periodNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.eventsPerSecond));
+        producer.scheduleAtFixedRate(this::produceOne, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** 생성만 멈춤 (마지막 결과는 계속 조회 가능) */
+    public void stopProducing() {
+        producer.shutdownNow();
+        try {
+            producer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getProduced() {
+        return produced.get();
+    }
+
+    public long getDuplicatesProduced() {
+        return duplicatesProduced.get();
+    }
+
+    public long getChangesRequests() {
+        return changesRequests.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    /** description("evt-N")로 생성 시각을 찾음. 없으면 -1 */
+    public long producedAtNanos(String description) {
+        if (!description.startsWith("evt-")) {
+            return -1;
+        }
+        Long at = producedAtNanos.get(Long.parseLong(description.substring(4)));
+        return at != null ? at : -1;
+    }
+
+    /** source별 마지막 결과의 description (클라이언트가 마지막 상태까지 따라왔는지 확인용) */
+    public List<String> lastDescriptions() {
+        List<String> out = new ArrayList<>();
+        synchronized (lock) {
+            for (String json : lastResultBySource) {
+                if (json != null) {
+                    int start = json.indexOf("\"description\": \"") + 16;
+                    out.add(json.substring(start, json.indexOf('"', start)));
+                }
+            }
+        }
+        return out;
+    }
+
+    private void produceOne() {
+        int index = random.nextInt(options.sources);
+        String source = "cam-" + index;
+        synchronized (lock) {
+            String json = lastResultBySource[index];
+            if (json != null && random.nextDouble() < options.duplicateRatio) {
+                duplicatesProduced.incrementAndGet();
+            } else {
+                long seq = produced.get();
+                String type = "Normal";
+                double roll = random.nextDouble();
+                if (roll < options.alertRatio / 2) {
+                    type = "Dangerous";
+                } else if (roll < options.alertRatio) {
+                    type = "Abnormal";
+                }
+                producedAtNanos.put(seq, System.nanoTime());
+                // app.py update_analysis 가 저장하는 형태 (Gemini 응답 + source/location)
+                json = "{\"behaviorType\": \"" + type + "\", \"description\": \"evt-" + seq + "\","
+                        + " \"warningMessage\": \"\", \"timestamp\": " + System.currentTimeMillis() + ","
+                        + " \"source\": \"" + source + "\", \"location\": \"방" + index + "\"}";
+                lastResultBySource[index] = json;
+            }
+            produced.incrementAndGet();
+            version++;
+            latestBySource.put(source, new Entry(version, json));
+            lastSource = source;
+        }
+    }
+
+    private void handleChanges(HttpExchange exchange) throws IOException {
+        changesRequests.incrementAndGet();
+        long since = 0;
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String part : query.split("&")) {
+                if (part.startsWith("since=")) {
+                    since = Long.parseLong(part.substring(6));
+                }
+            }
+        }
+        long current;
+        StringBuilder body = new StringBuilder(256);
+        synchronized (lock) {
+            current = version;
+            if (since > current) {
+                since = 0;
+            }
+            body.append("{\"cursor\": ").append(current).append(", \"bootId\": \"").append(bootId).append("\", \"changes\": [");
+            boolean first = true;
+            for (java.util.Map.Entry<String, Entry> e : latestBySource.entrySet()) {
+                if (e.getValue().version <= since) {
+                    continue;
+                }
+                if (!first) {
+                    body.append(", ");
+                }
+                first = false;
+                body.append("{\"source\": \"").append(e.getKey()).append("\", \"version\": ").append(e.getValue().version)
+                        .append(", \"result\": ").append(e.getValue().json).append('}');
+            }
+            body.append("]}");
+        }
+        respond(exchange, 200, body.toString(), "\"" + bootId + "-" + current + "\"");
+    }
+
+    private void handleLatest(HttpExchange exchange) throws IOException {
+        String json;
+        long current;
+        synchronized (lock) {
+            Entry entry = lastSource != null ? latestBySource.get(lastSource) : null;
+            json = entry != null ? entry.json : "{}";
+            current = version;
+        }
+        respond(exchange, 200, json, "\"" + bootId + "-" + current + "\"");
+    }
+
+    private void respond(HttpExchange exchange, int status, String body, String etag) throws IOException {
+        try {
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        stopProducing();
+        server.stop(0);
+        httpExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * 카운터, 게이지, 히스토그램 칸 배정과 분위수 어림.
+ */
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @Test
+    public void counterIsSharedByName() {
+        metrics.counter("poll_ok").inc();
+        metrics.counter("poll_ok").add(4);
+        metrics.counter("poll_failed").inc();
+
+        assertEquals(5, metrics.counter("poll_ok").get());
+        assertTrue(metrics.counter("poll_ok") == metrics.counter("poll_ok"));
+        Map<String, Long> values = metrics.counterValues();
+        assertEquals("[poll_failed, poll_ok]", values.keySet().toString());
+        assertEquals(Long.valueOf(5), values.get("poll_ok"));
+    }
+
+    @Test
+    public void gaugeIsComputedOnReadAndReplacedByName() {
+        long[] value = {3};
+        metrics.gauge("queue_size", () -> value[0]);
+        value[0] = 7;
+        assertEquals(Long.valueOf(7), metrics.gaugeValues().get("queue_size"));
+
+        metrics.gauge("queue_size", () -> 42);
+        assertEquals(Long.valueOf(42), metrics.gaugeValues().get("queue_size"));
+
+        metrics.gauge("broken", () -> {
+            throw new IllegalStateException("closed");
+        });
+        assertEquals(Long.valueOf(-1), metrics.gaugeValues().get("broken"));
+
+        metrics.removeGauge("queue_size");
+        assertFalse(metrics.gaugeValues().containsKey("queue_size"));
+    }
+
+    @Test
+    public void histogramBucketsIncludeUpperBound() {
+        MetricsRegistry.Histogram h = metrics.histogram("fetch_ms", new long[] {10, 100, 1000});
+        h.record(0);
+        h.record(10);     // 경계값은 그 칸에 포함
+        h.record(11);
+        h.record(100);
+        h.record(999);
+        h.record(5000);   // +Inf
+
+        assertArrayEquals(new long[] {2, 2, 1, 1}, h.getBucketCounts());
+        assertEquals(6, h.getCount());
+        assertEquals(0 + 10 + 11 + 100 + 999 + 5000, h.getSumMs());
+        assertEquals(5000, h.getMaxMs());
+        assertArrayEquals(new long[] {10, 100, 1000}, h.getBounds());
+    }
+
+    @Test
+    public void defaultHistogramUsesLatencyBucketsPlusInf() {
+        MetricsRegistry.Histogram h = metrics.histogram("parse_ms");
+        assertArrayEquals(MetricsRegistry.LATENCY_BUCKETS_MS, h.getBounds());
+        assertEquals(MetricsRegistry.LATENCY_BUCKETS_MS.length + 1, h.getBucketCounts().length);
+        // 같은 이름은 처음 만든 경계를 유지
+        assertTrue(h == metrics.histogram("parse_ms", new long[] {1}));
+    }
+
+    @Test
+    public void percentileReturnsBucketBoundOrMax() {
+        MetricsRegistry.Histogram h = metrics.histogram("fetch_ms", new long[] {10, 100, 1000});
+        assertEquals(0, h.percentile(0.5));
+
+        for (int i = 0; i < 90; i++) {
+            h.record(5);
+        }
+        for (int i = 0; i < 9; i++) {
+            h.record(50);
+        }
+        h.record(3000);
+
+        assertEquals(10, h.percentile(0.5));
+        assertEquals(10, h.percentile(0.9));
+        assertEquals(100, h.percentile(0.95));
+        assertEquals(100, h.percentile(0.99));
+        // +Inf 칸은 경계 대신 최댓값
+        assertEquals(3000, h.percentile(1.0));
+    }
+
+    @Test
+    public void boundsAreCopied() {
+        long[] bounds = {10, 100};
+        MetricsRegistry.Histogram h = metrics.histogram("copy_ms", bounds);
+        bounds[0] = 1000;
+        h.record(50);
+        assertArrayEquals(new long[] {0, 1, 0}, h.getBucketCounts());
+    }
+}
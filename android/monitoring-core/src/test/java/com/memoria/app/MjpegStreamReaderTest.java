@@ -0,0 +1,218 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ESP32 스케치(sketch_may20a.ino handleStream)와 같은 바이트 형식으로 만든 캡처를 재생해
+ * MjpegStreamReader 의 파싱, 최신 프레임 모드, 처리량을 확인한다.
+ */
+public class MjpegStreamReaderTest {
+
+    // sketch_may20a.ino 의 _STREAM_CONTENT_TYPE / _STREAM_BOUNDARY / _STREAM_PART
+    private static final String CONTENT_TYPE = "multipart/x-mixed-replace;boundary=123456789000000000000987654321";
+    private static final String BOUNDARY = "123456789000000000000987654321";
+    private static final String STREAM_BOUNDARY = "\r\n--" + BOUNDARY + "\r\n";
+    private static final String STREAM_PART = "Content-Type: image/jpeg\r\nContent-Length: %d\r\n\r\n";
+
+    @Test
+    public void parsesEsp32CaptureAcrossArbitraryReadSizes() throws IOException {
+        List<byte[]> frames = randomJpegs(50, 100, 30000, 1);
+        byte[] capture = esp32Capture(frames);
+
+        // 소켓처럼 1~700 바이트씩 잘라서 전달
+        MjpegStreamReader reader = new MjpegStreamReader(new ChunkedInputStream(capture, 700, 2), BOUNDARY,
+                256, 1024, MjpegStreamReader.MAX_FRAME_BYTES);
+        MjpegStreamReader.Frame frame = new MjpegStreamReader.Frame(16);
+        for (byte[] expected : frames) {
+            int length = reader.readFrame(frame);
+            assertEquals(expected.length, length);
+            assertArrayEquals(expected, Arrays.copyOf(frame.array(), length));
+            assertEquals(0, frame.data().position());
+            assertEquals(length, frame.data().limit());
+        }
+        assertEquals(-1, reader.readFrame(frame));
+        assertEquals(frames.size(), reader.getFrameCount());
+        assertEquals(capture.length, reader.getBytesRead());
+    }
+
+    @Test
+    public void fallsBackToJpegEndMarkerWithoutContentLength() throws IOException {
+        List<byte[]> frames = randomJpegs(5, 2000, 5000, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write(ascii(STREAM_BOUNDARY + "Content-Type: image/jpeg\r\n\r\n"));
+            out.write(frame);
+        }
+        MjpegStreamReader reader = new MjpegStreamReader(new ByteArrayInputStream(out.toByteArray()), BOUNDARY);
+        MjpegStreamReader.Frame frame = new MjpegStreamReader.Frame(16);
+        for (byte[] expected : frames) {
+            int length = reader.readFrame(frame);
+            assertArrayEquals(expected, Arrays.copyOf(frame.array(), length));
+        }
+        assertEquals(-1, reader.readFrame(frame));
+    }
+
+    @Test
+    public void toleratesHeaderCaseExtraHeadersAndBareNewlines() throws IOException {
+        byte[] body = jpeg(new Random(3), 64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(ascii("--" + BOUNDARY + "\n"));
+        out.write(ascii("X-Timestamp: 12345.678\nCONTENT-LENGTH:  " + body.length + "\ncontent-type: image/jpeg\n\n"));
+        out.write(body);
+        out.write(ascii("\r\n--" + BOUNDARY + "\r\ncontent-length: " + body.length + "\r\n\r\n"));
+        out.write(body);
+
+        MjpegStreamReader reader = new MjpegStreamReader(new ByteArrayInputStream(out.toByteArray()), BOUNDARY);
+        MjpegStreamReader.Frame frame = new MjpegStreamReader.Frame(16);
+        assertEquals(body.length, reader.readFrame(frame));
+        assertArrayEquals(body, Arrays.copyOf(frame.array(), body.length));
+        assertEquals(body.length, reader.readFrame(frame));
+        assertArrayEquals(body, Arrays.copyOf(frame.array(), body.length));
+        assertEquals(-1, reader.readFrame(frame));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOversizedFrame() throws IOException {
+        byte[] capture = esp32Capture(randomJpegs(1, 5000, 5000, 4));
+        MjpegStreamReader reader = new MjpegStreamReader(new ByteArrayInputStream(capture), BOUNDARY, 256, 1024, 4096);
+        reader.readFrame(new MjpegStreamReader.Frame(16));
+    }
+
+    @Test
+    public void parseBoundaryVariants() {
+        assertEquals(BOUNDARY, MjpegStreamReader.parseBoundary(CONTENT_TYPE));
+        assertEquals("abc", MjpegStreamReader.parseBoundary("multipart/x-mixed-replace; boundary=\"abc\""));
+        assertEquals("frame", MjpegStreamReader.parseBoundary("multipart/x-mixed-replace;boundary=--frame; charset=x"));
+        assertNull(MjpegStreamReader.parseBoundary("image/jpeg"));
+        assertNull(MjpegStreamReader.parseBoundary(null));
+    }
+
+    @Test
+    public void latestOnlyDropsStaleFramesForSlowConsumer() throws Exception {
+        int frameCount = 200;
+        List<byte[]> frames = randomJpegs(frameCount, 500, 2000, 5);
+        // 프레임마다 짧게 멈춰 실제 카메라처럼 일정 간격으로 들어오게 함
+        InputStream in = new ChunkedInputStream(esp32Capture(frames), 4096, 0) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                sleepQuietly(1);
+                return super.read(b, off, len);
+            }
+        };
+        MjpegStreamReader reader = new MjpegStreamReader(in, BOUNDARY);
+        Thread pump = new Thread(reader::run, "test-mjpeg-pump");
+        pump.start();
+
+        int consumed = 0;
+        long lastSequence = 0;
+        MjpegStreamReader.Frame frame;
+        while ((frame = reader.takeLatest(2000)) != null) {
+            assertTrue("sequence went backwards", frame.sequence() > lastSequence);
+            lastSequence = frame.sequence();
+            byte[] expected = frames.get((int) frame.sequence() - 1);
+            assertArrayEquals(expected, Arrays.copyOf(frame.array(), frame.length()));
+            consumed++;
+            // 느린 소비자 (추론 중)
+            sleepQuietly(20);
+            reader.release(frame);
+        }
+        pump.join(5000);
+
+        assertNull(reader.getError());
+        assertTrue(reader.isFinished());
+        assertEquals(frameCount, reader.getFrameCount());
+        // 마지막 프레임은 반드시 전달되고, 나머지는 가져가거나 버려짐
+        assertEquals(frameCount, lastSequence);
+        assertEquals(frameCount, consumed + reader.getDroppedFrames());
+        assertTrue("slow consumer should drop frames, consumed=" + consumed, reader.getDroppedFrames() > 0);
+    }
+
+    private static byte[] esp32Capture(List<byte[]> frames) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write(ascii(STREAM_BOUNDARY));
+            out.write(ascii(String.format(STREAM_PART, frame.length)));
+            out.write(frame);
+        }
+        return out.toByteArray();
+    }
+
+    /** SOI/EOI 마커가 있는 JPEG 모양 데이터 (본문에는 FF D9 가 나오지 않게 함) */
+    private static List<byte[]> randomJpegs(int count, int minSize, int maxSize, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            frames.add(jpeg(random, minSize + random.nextInt(maxSize - minSize + 1)));
+        }
+        return frames;
+    }
+
+    private static byte[] jpeg(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        for (int i = 0; i < size; i++) {
+            if (data[i] == (byte) 0xFF) {
+                data[i] = 0x00;
+            }
+        }
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[size - 2] = (byte) 0xFF;
+        data[size - 1] = (byte) 0xD9;
+        return data;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** read() 한 번에 최대 maxChunk 바이트만 돌려주는 스트림 (네트워크 분할 흉내) */
+    private static class ChunkedInputStream extends InputStream {
+        private final byte[] data;
+        private final int maxChunk;
+        private final Random random;
+        private int pos = 0;
+
+        ChunkedInputStream(byte[] data, int maxChunk, long seed) {
+            this.data = data;
+            this.maxChunk = maxChunk;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1 + random.nextInt(maxChunk)), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 부하 테스트: FlaskStubServer가 정해진 속도로 결과를 올리는 동안 ForegroundService와 같은 경로
+ * (FlaskFetchEngine /changes 폴링 → StreamingJsonReader 파싱 → ResultProcessor 중복 억제/알림 판단 → 기록 저장)를 돌리고
+ * 처리량, 폴링 지연, 종단 지연(생성 → 처리), 폴링당 할당량을 출력한다.
+ * 기록 저장은 SQLite 대신 임시 파일에 한 줄씩 쓰는 LogSink로 흉내 낸다.
+ *
+ *     ./gradlew :monitoring-core:loadTest -PloadTestArgs="--rate 200 --sources 8 --seconds 30 --poll-ms 100"
+ *
+ * JUnit으로는 짧게(2초) 돌려 깨진 곳이 없는지만 확인한다.
+ */
+public class MonitoringLoadTest {
+
+    static final class Config {
+        int rate = 50;
+        int sources = 4;
+        int seconds = 10;
+        long pollMs = 200;
+        double alertRatio = 0.05;
+        double duplicateRatio = 0.2;
+
+        static Config parse(String[] args) {
+            Config c = new Config();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--rate": c.rate = Integer.parseInt(value); break;
+                    case "--sources": c.sources = Integer.parseInt(value); break;
+                    case "--seconds": c.seconds = Integer.parseInt(value); break;
+                    case "--poll-ms": c.pollMs = Long.parseLong(value); break;
+                    case "--alert-ratio": c.alertRatio = Double.parseDouble(value); break;
+                    case "--duplicate-ratio": c.duplicateRatio = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("unknown option: " + args[i]);
+                }
+            }
+            return c;
+        }
+    }
+
+    static final class Report {
+        long produced;
+        long duplicatesProduced;
+        long polls;
+        long notModified;
+        long failures;
+        long published;
+        long suppressed;
+        long alerts;
+        long logged;
+        long allocatedBytesPerPoll;
+        long[] pollLatencyMs;
+        long[] endToEndMs;
+        double elapsedSec;
+        List<String> missedFinalStates;
+
+        static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT,
+                    "생성 %d건 (%.1f/s, 같은 결과 재전송 %d) / 폴링 %d회 (304 %d, 실패 %d)%n"
+                            + "처리 %d건, 중복 억제 %d, 서버에서 합쳐짐 %d / 알림 %d, 기록 저장 %d%n"
+                            + "폴링 지연 p50 %dms p95 %dms p99 %dms / 종단 지연 p50 %dms p95 %dms p99 %dms max %dms%n"
+                            + "응답 처리당 할당 %d bytes / 마지막 상태 누락 %s",
+                    produced, produced / elapsedSec, duplicatesProduced, polls, notModified, failures,
+                    published, suppressed, produced - published - suppressed, alerts, logged,
+                    percentile(pollLatencyMs, 0.5), percentile(pollLatencyMs, 0.95), percentile(pollLatencyMs, 0.99),
+                    percentile(endToEndMs, 0.5), percentile(endToEndMs, 0.95), percentile(endToEndMs, 0.99),
+                    endToEndMs.length > 0 ? endToEndMs[endToEndMs.length - 1] : 0,
+                    allocatedBytesPerPoll, missedFinalStates);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        System.out.println("rate=" + config.rate + "/s sources=" + config.sources + " seconds=" + config.seconds
+                + " poll=" + config.pollMs + "ms alertRatio=" + config.alertRatio + " duplicateRatio=" + config.duplicateRatio);
+        Report report = run(config);
+        System.out.println(report);
+        System.exit(report.failures == 0 && report.missedFinalStates.isEmpty() ? 0 : 1);
+    }
+
+    @Test
+    public void shortRunKeepsUpWithoutFailures() throws Exception {
+        Config config = new Config();
+        config.rate = 200;
+        config.sources = 4;
+        config.seconds = 2;
+        config.pollMs = 50;
+        Report report = run(config);
+        System.out.println("MonitoringLoadTest: " + report);
+
+        assertEquals(0, report.failures);
+        assertTrue(report.published > 0);
+        // 생성을 멈춘 뒤 마지막 폴링으로 모든 방의 마지막 결과까지 따라와야 함
+        assertEquals(Collections.emptyList(), report.missedFinalStates);
+    }
+
+    static Report run(Config config) throws Exception {
+        FlaskStubServer.Options options = new FlaskStubServer.Options();
+        options.eventsPerSecond = config.rate;
+        options.sources = config.sources;
+        options.alertRatio = config.alertRatio;
+        options.duplicateRatio = config.duplicateRatio;
+
+        File logFile = File.createTempFile("memoria-load", ".jsonl");
+        FlaskFetchEngine engine = new FlaskFetchEngine();
+        MetricsRegistry metrics = new MetricsRegistry();
+        Poller poller = new Poller(engine);
+        AtomicLong alerts = new AtomicLong();
+        AtomicLong logged = new AtomicLong();
+
+        try (FlaskStubServer server = new FlaskStubServer(options);
+             BufferedWriter log = new BufferedWriter(new FileWriter(logFile))) {
+            // AnalysisLogStore 대신 파일에 한 줄씩 (저장 I/O 비용을 경로에 포함)
+            ResultProcessor.LogSink sink = (behaviorType, description, location, isoTime, timestampMs) -> {
+                try {
+                    log.write("{\"type\":\"" + behaviorType + "\",\"description\":\"" + description
+                            + "\",\"location\":\"" + location + "\",\"timestamp\":\"" + isoTime + "\"}\n");
+                    log.flush();
+                    return logged.incrementAndGet();
+                } catch (IOException e) {
+                    return -1;
+                }
+            };
+            ResultProcessor processor = new ResultProcessor(engine, new AlertDispatcher(), new AdaptivePollScheduler(), metrics,
+                    new ResultProcessor.Output() {
+                        @Override
+                        public void showAlert(AlertDispatcher.Alert alert) {
+                            alerts.incrementAndGet();
+                        }
+
+                        @Override
+                        public void showStatus(String notificationText) {
+                        }
+
+                        @Override
+                        public void onLogged(long id, String behaviorType, String description, String isoTime, String location) {
+                        }
+                    }, sink);
+
+            String baseUrl = server.getBaseUrl();
+            server.start();
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + TimeUnit.SECONDS.toNanos(config.seconds);
+            while (System.nanoTime() < endNanos) {
+                poller.poll(baseUrl, processor, server);
+                Thread.sleep(config.pollMs);
+            }
+            double elapsedSec = (System.nanoTime() - startNanos) / 1e9;
+            server.stopProducing();
+            // 생성이 멈춘 뒤 마지막 상태까지 따라오도록 한 번 더
+            poller.poll(baseUrl, processor, server);
+
+            Report report = new Report();
+            report.produced = server.getProduced();
+            report.duplicatesProduced = server.getDuplicatesProduced();
+            report.polls = server.getChangesRequests();
+            report.notModified = server.getNotModified();
+            report.failures = poller.failures;
+            report.published = metrics.counter("results_published").get();
+            report.suppressed = metrics.counter("results_duplicate_suppressed").get();
+            report.alerts = alerts.get();
+            report.logged = logged.get();
+            report.allocatedBytesPerPoll = poller.responses > 0 ? poller.allocatedBytes / poller.responses : 0;
+            report.pollLatencyMs = sorted(poller.pollLatencyMs);
+            report.endToEndMs = sorted(poller.endToEndMs);
+            report.elapsedSec = elapsedSec;
+            report.missedFinalStates = missedFinalStates(server, engine, config.sources);
+            return report;
+        } finally {
+            engine.shutdown();
+            logFile.delete();
+        }
+    }
+
+    /** 서버의 source별 마지막 결과 중 클라이언트에 반영되지 않은 것 */
+    private static List<String> missedFinalStates(FlaskStubServer server, FlaskFetchEngine engine, int sources) {
+        List<String> received = new ArrayList<>();
+        for (int i = 0; i < sources; i++) {
+            Object last = engine.getLastResult("cam-" + i);
+            if (last instanceof AnalysisResult) {
+                received.add(((AnalysisResult) last).description);
+            }
+        }
+        List<String> missed = new ArrayList<>(server.lastDescriptions());
+        missed.removeAll(received);
+        return missed;
+    }
+
+    private static long[] sorted(List<Long> samples) {
+        long[] out = new long[samples.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = samples.get(i);
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    /**
+     * ForegroundService.fetchFlaskAnalysis와 같은 방식으로 /changes를 한 번 조회하고 끝날 때까지 기다림.
+     * 파서는 재사용하고, 응답 처리 중 엔진 스레드가 할당한 바이트를 잰다.
+     */
+    private static final class Poller {
+        private final FlaskFetchEngine engine;
+        private final StreamingJsonReader reader = new StreamingJsonReader();
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final List<Long> pollLatencyMs = new ArrayList<>();
+        final List<Long> endToEndMs = new ArrayList<>();
+        // 엔진 스레드에서 쓰고 poll()이 latch로 기다린 뒤 읽음
+        volatile long failures;
+        volatile long responses;
+        volatile long allocatedBytes;
+
+        Poller(FlaskFetchEngine engine) {
+            this.engine = engine;
+        }
+
+        void poll(String baseUrl, ResultProcessor processor, FlaskStubServer server) throws InterruptedException {
+            CountDownLatch done = new CountDownLatch(1);
+            long startNanos = System.nanoTime();
+            boolean scheduled = engine.fetch(baseUrl + "/changes?since=" + processor.getChangesCursor(),
+                    new FlaskFetchEngine.StreamCallback() {
+                        @Override
+                        public void onResponse(int responseCode, InputStream body) throws IOException {
+                            try {
+                                if (responseCode != 200) {
+                                    failures++;
+                                    return;
+                                }
+                                long tid = Thread.currentThread().getId();
+                                long allocatedBefore = threads.getThreadAllocatedBytes(tid);
+                                AnalysisResult.Changes changes = AnalysisResult.readChanges(reader.reset(body));
+                                processor.applyChanges(changes);
+                                allocatedBytes += threads.getThreadAllocatedBytes(tid) - allocatedBefore;
+                                responses++;
+                                long nowNanos = System.nanoTime();
+                                for (AnalysisResult result : changes.results) {
+                                    long producedAt = server.producedAtNanos(result.description);
+                                    if (producedAt > 0) {
+                                        endToEndMs.add((nowNanos - producedAt) / 1_000_000L);
+                                    }
+                                }
+                            } finally {
+                                done.countDown();
+                            }
+                        }
+
+                        @Override
+                        public void onNotModified() {
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            failures++;
+                            done.countDown();
+                        }
+                    });
+            if (!scheduled) {
+                return;
+            }
+            if (!done.await(10, TimeUnit.SECONDS)) {
+                failures++;
+                return;
+            }
+            pollLatencyMs.add((System.nanoTime() - startNanos) / 1_000_000L);
+        }
+    }
+}
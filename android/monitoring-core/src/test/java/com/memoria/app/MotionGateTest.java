@@ -0,0 +1,126 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * 움직임 게이트 판정: 그대로인 프레임은 건너뛰고, 바뀐 프레임과 heartbeat 시점의 프레임은 통과.
+ * 격자는 32x24 = 768칸이므로 기본 비율 2%는 16칸 이상 바뀌어야 통과한다.
+ */
+public class MotionGateTest {
+
+    private static final int CELLS = MotionGate.GRID_WIDTH * MotionGate.GRID_HEIGHT;
+    private static final int GRAY = 0xFF808080;
+
+    private static int[] frame(int argb) {
+        int[] pixels = new int[CELLS];
+        Arrays.fill(pixels, argb);
+        return pixels;
+    }
+
+    /** 앞쪽 count칸만 다른 색으로 바꾼 프레임 */
+    private static int[] withChangedCells(int[] base, int count, int argb) {
+        int[] pixels = base.clone();
+        Arrays.fill(pixels, 0, count, argb);
+        return pixels;
+    }
+
+    @Test
+    public void firstFrameAlwaysPasses() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.shouldAnalyze(frame(GRAY), 0));
+        assertEquals(1f, gate.getLastChange(), 0f);
+        assertEquals(1, gate.getAnalyzedCount());
+    }
+
+    @Test
+    public void unchangedFrameIsSkipped() {
+        MotionGate gate = new MotionGate();
+        gate.shouldAnalyze(frame(GRAY), 0);
+
+        assertFalse(gate.shouldAnalyze(frame(GRAY), 1000));
+        assertFalse(gate.shouldAnalyze(frame(GRAY), 2000));
+        assertEquals(0f, gate.getLastChange(), 0f);
+        assertEquals(1, gate.getAnalyzedCount());
+        assertEquals(2, gate.getSkippedCount());
+    }
+
+    @Test
+    public void changedFramePasses() {
+        MotionGate gate = new MotionGate();
+        int[] base = frame(GRAY);
+        gate.shouldAnalyze(base, 0);
+
+        int[] moved = withChangedCells(base, 100, 0xFFFFFFFF);
+        assertTrue(gate.shouldAnalyze(moved, 1000));
+        assertEquals(100f / CELLS, gate.getLastChange(), 1e-6f);
+        // 통과한 프레임이 새 기준이 되므로 같은 프레임은 다시 건너뜀
+        assertFalse(gate.shouldAnalyze(moved, 2000));
+    }
+
+    @Test
+    public void changeBelowRatioOrDeltaIsSkipped() {
+        MotionGate gate = new MotionGate();
+        int[] base = frame(GRAY);
+        gate.shouldAnalyze(base, 0);
+
+        // 15칸 (2% 미만)
+        assertFalse(gate.shouldAnalyze(withChangedCells(base, 15, 0xFFFFFFFF), 1000));
+        // 전체가 조금 밝아짐 (밝기 차이 pixelDelta 미만)
+        assertFalse(gate.shouldAnalyze(frame(0xFF8A8A8A), 2000));
+        // 16칸이면 통과
+        assertTrue(gate.shouldAnalyze(withChangedCells(base, 16, 0xFFFFFFFF), 3000));
+    }
+
+    @Test
+    public void slowDriftAccumulatesAgainstAnalyzedReference() {
+        MotionGate gate = new MotionGate();
+        gate.shouldAnalyze(frame(0xFF808080), 0);
+
+        // 한 번에는 작은 변화지만 기준 프레임과의 차이는 계속 쌓임
+        assertFalse(gate.shouldAnalyze(frame(0xFF8A8A8A), 1000));
+        assertFalse(gate.shouldAnalyze(frame(0xFF949494), 2000));
+        assertTrue(gate.shouldAnalyze(frame(0xFF9E9E9E), 3000));
+    }
+
+    @Test
+    public void heartbeatForcesPass() {
+        MotionGate gate = new MotionGate(MotionGate.DEFAULT_PIXEL_DELTA, MotionGate.DEFAULT_CHANGE_RATIO, 5000);
+        gate.shouldAnalyze(frame(GRAY), 0);
+
+        assertFalse(gate.shouldAnalyze(frame(GRAY), 4999));
+        assertTrue(gate.shouldAnalyze(frame(GRAY), 5000));
+        // heartbeat는 마지막 분석 시점부터 다시 셈
+        assertFalse(gate.shouldAnalyze(frame(GRAY), 9999));
+        assertTrue(gate.shouldAnalyze(frame(GRAY), 10000));
+        assertEquals(3, gate.getAnalyzedCount());
+        assertEquals(2, gate.getSkippedCount());
+    }
+
+    @Test
+    public void forceAnalyzedBecomesReference() {
+        MotionGate gate = new MotionGate();
+        gate.shouldAnalyze(frame(GRAY), 0);
+
+        int[] bright = frame(0xFFFFFFFF);
+        gate.forceAnalyzed(bright, 1000);
+        assertFalse(gate.shouldAnalyze(bright, 2000));
+        assertEquals(2, gate.getAnalyzedCount());
+    }
+
+    @Test
+    public void resetDropsReference() {
+        MotionGate gate = new MotionGate();
+        gate.shouldAnalyze(frame(GRAY), 0);
+        gate.reset();
+        assertTrue(gate.shouldAnalyze(frame(GRAY), 1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsChangeRatioAboveOne() {
+        new MotionGate(MotionGate.DEFAULT_PIXEL_DELTA, 1.5f, MotionGate.DEFAULT_HEARTBEAT_MS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.memoria.app;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ForegroundService가 쓰는 결과 처리 경로(중복 억제 → 알림 판단 → 상태 문구 → 기록 저장)를
+ * 메모리 Output/LogSink로 확인한다.
+ */
+public class ResultProcessorTest {
+
+    private final FlaskFetchEngine engine = new FlaskFetchEngine();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final RecordingOutput output = new RecordingOutput();
+    private final ResultProcessor processor = new ResultProcessor(
+            engine, new AlertDispatcher(), new AdaptivePollScheduler(), metrics, output, output);
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void sameResultFromSameSourceIsHandledOnce() {
+        AnalysisResult living = new AnalysisResult("Normal", "소파에 앉아 있음", "1718000000000", "거실", "living");
+        assertTrue(processor.publish(living));
+        assertFalse(processor.publish(new AnalysisResult("Normal", "소파에 앉아 있음", "1718000000000", "거실", "living")));
+        // 다른 방의 같은 결과는 따로 처리
+        assertTrue(processor.publish(new AnalysisResult("Normal", "소파에 앉아 있음", "1718000000000", "거실", "bedroom")));
+
+        assertEquals(2, output.statuses.size());
+        assertTrue(output.statuses.get(0).endsWith("(거실)\nNormal: 소파에 앉아 있음"));
+        assertEquals(2, metrics.counter("results_published").get());
+        assertEquals(1, metrics.counter("results_duplicate_suppressed").get());
+        assertEquals(2, metrics.histogram("result_handling_ms").getCount());
+        assertTrue(output.logged.isEmpty());
+    }
+
+    @Test
+    public void repeatedDangerousResultIsAlertedOnceButLoggedEachTime() {
+        AnalysisResult fall = new AnalysisResult("Dangerous", "바닥에 쓰러져 있음", "1718000000000", "", "bedroom");
+        assertTrue(processor.publish(fall));
+        assertTrue(processor.publish(new AnalysisResult("Normal", "", "1718000001000", "", "bedroom")));
+        // 같은 위험 상황이 다시 오면 알림은 억제 창 안이라 보내지 않지만 기록은 남김
+        assertTrue(processor.publish(fall));
+
+        assertEquals(1, output.alerts.size());
+        assertEquals("bedroom", output.alerts.get(0).location);
+        assertEquals(Arrays.asList("1:Dangerous:바닥에 쓰러져 있음:bedroom", "2:Dangerous:바닥에 쓰러져 있음:bedroom"),
+                output.logged);
+        assertEquals(3, output.statuses.size());
+    }
+
+    @Test
+    public void serverRestartResetsChangesCursor() {
+        AnalysisResult result = new AnalysisResult("Normal", "", "1", "", "living");
+        assertEquals(ResultProcessor.ChangesOutcome.CHANGED,
+                processor.applyChanges(new AnalysisResult.Changes(5, "boot-a", Arrays.asList(result))));
+        assertEquals(5, processor.getChangesCursor());
+        assertEquals(ResultProcessor.ChangesOutcome.UNCHANGED,
+                processor.applyChanges(new AnalysisResult.Changes(5, "boot-a", Arrays.asList(result))));
+
+        assertEquals(ResultProcessor.ChangesOutcome.SERVER_RESTARTED,
+                processor.applyChanges(new AnalysisResult.Changes(2, "boot-b", Arrays.asList(result))));
+        assertEquals(0, processor.getChangesCursor());
+    }
+
+    @Test
+    public void locationFallsBackToSourceThenDefault() {
+        assertEquals("침실", processor.locationOf(new AnalysisResult("Normal", "", "", "침실", "bedroom")));
+        assertEquals("bedroom", processor.locationOf(new AnalysisResult("Normal", "", "", "", "bedroom")));
+        assertEquals(ResultProcessor.DEFAULT_LOCATION, processor.locationOf(new AnalysisResult("Normal", "", "", "", null)));
+
+        processor.setDefaultLocation(" 현관 ");
+        assertEquals("현관", processor.locationOf(new AnalysisResult("Normal", "", "", "", FlaskFetchEngine.DEFAULT_SOURCE)));
+    }
+
+    private static final class RecordingOutput implements ResultProcessor.Output, ResultProcessor.LogSink {
+        final List<AlertDispatcher.Alert> alerts = new ArrayList<>();
+        final List<String> statuses = new ArrayList<>();
+        final List<String> logged = new ArrayList<>();
+        private long nextId = 1;
+
+        @Override
+        public void showAlert(AlertDispatcher.Alert alert) {
+            alerts.add(alert);
+        }
+
+        @Override
+        public void showStatus(String notificationText) {
+            statuses.add(notificationText);
+        }
+
+        @Override
+        public void onLogged(long id, String behaviorType, String description, String isoTime, String location) {
+            logged.add(id + ":" + behaviorType + ":" + description + ":" + location);
+        }
+
+        @Override
+        public long append(String behaviorType, String description, String location, String isoTime, long timestampMs) {
+            return nextId++;
+        }
+    }
+}
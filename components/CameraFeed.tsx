@@ -3,13 +3,20 @@ import { useNavigate } from 'react-router-dom';
 import { VideoCameraIcon, ExclamationTriangleIcon, Cog6ToothIcon, ArrowPathIcon } from './icons';
 import { useCameraSettings } from '../contexts/CameraSettingsContext';
 import { useEsp32Config } from '../contexts/Esp32ConfigContext';
-import { DEFAULT_CAMERA_SOURCE, ROUTES } from '../constants';
+import { DEFAULT_ANALYSIS_LOCATION, DEFAULT_CAMERA_SOURCE, ROUTES } from '../constants';
+import {
+  ANALYSIS_FRAME_OPTIONS, FramePipelineStats, FramePreprocessOptions, FramePreprocessor, PreprocessedFrame, loadRoi,
+} from '../services/framePreprocessor';
 
 export interface CameraFeedHandles {
-  captureFrame: () => string | null;
+  // 저장된 방별 ROI로 자르고 options.maxEdge로 줄여 JPEG Blob으로 반환 (base64는 blobToBase64로 필요할 때만)
+  captureFrame: (options?: FramePreprocessOptions) => Promise<PreprocessedFrame | null>;
+  getFrameStats: () => FramePipelineStats;
 }
 
-interface CameraFeedProps {}
+interface CameraFeedProps {
+  room?: string; // ROI를 불러올 방 이름
+}
 
 type CameraStatus = 
   | 'idle' 
@@ -23,7 +30,8 @@ type CameraStatus =
 
 const CameraFeed = forwardRef<CameraFeedHandles, CameraFeedProps>((props, ref) => {
   const videoRef = useRef<HTMLVideoElement>(null);
-  const canvasRef = useRef<HTMLCanvasElement>(null);
+  const preprocessorRef = useRef<FramePreprocessor | null>(null);
+  const room = props.room || DEFAULT_ANALYSIS_LOCATION;
   const { cameraSource, isLoading: isLoadingSettings } = useCameraSettings();
   const { esp32Url, isLoading: isLoadingEsp32Config, isDefaultUrl } = useEsp32Config();
   const navigate = useNavigate();
@@ -153,19 +161,35 @@ const CameraFeed = forwardRef<CameraFeedHandles, CameraFeedProps>((props, ref) =
     }
   }, [setError, setStatus, setErrorMessageLocal]); // Added setStatus, setErrorMessageLocal
 
+  const getPreprocessor = useCallback(() => {
+    if (!preprocessorRef.current) {
+      preprocessorRef.current = new FramePreprocessor();
+    }
+    return preprocessorRef.current;
+  }, []);
+
+  useEffect(() => () => {
+    preprocessorRef.current?.dispose();
+    preprocessorRef.current = null;
+  }, []);
+
   useImperativeHandle(ref, () => ({
-    captureFrame: () => {
-      if (videoRef.current && canvasRef.current && status === 'streaming' && videoRef.current.readyState >= HTMLMediaElement.HAVE_CURRENT_DATA && videoRef.current.videoWidth > 0 && videoRef.current.videoHeight > 0) {
+    captureFrame: async (options: FramePreprocessOptions = ANALYSIS_FRAME_OPTIONS) => {
+      if (videoRef.current && status === 'streaming' && videoRef.current.readyState >= HTMLMediaElement.HAVE_CURRENT_DATA && videoRef.current.videoWidth > 0 && videoRef.current.videoHeight > 0) {
         const video = videoRef.current;
-        const canvas = canvasRef.current;
-        
-        canvas.width = video.videoWidth;
-        canvas.height = video.videoHeight;
-        
-        const context = canvas.getContext('2d');
-        if (context) {
-          context.drawImage(video, 0, 0, canvas.width, canvas.height);
-          return canvas.toDataURL('image/jpeg', 0.8).split(',')[1]; 
+        const preprocessor = getPreprocessor();
+        if (preprocessor.getStats().baselineBytes === 0) {
+          // 비교 기준: 예전처럼 원본 해상도 그대로 인코딩했을 때의 크기/시간
+          preprocessor.measureBaseline(video, video.videoWidth, video.videoHeight);
+        }
+        try {
+          return await preprocessor.process(video, video.videoWidth, video.videoHeight, {
+            ...options,
+            roi: options.roi !== undefined ? options.roi : loadRoi(room),
+          });
+        } catch (error) {
+          console.error("Frame preprocessing failed:", error);
+          return null;
         }
       }
       if (status !== 'streaming') {
@@ -176,8 +200,9 @@ const CameraFeed = forwardRef<CameraFeedHandles, CameraFeedProps>((props, ref) =
          console.warn("Capture frame called but video not ready (readyState).");
       }
       return null;
-    }
-  }), [status]);
+    },
+    getFrameStats: () => getPreprocessor().getStats(),
+  }), [status, room, getPreprocessor]);
 
   return (
     <div className="relative w-full aspect-[4/3] bg-gray-800 rounded-lg overflow-hidden shadow-lg">
@@ -189,7 +214,6 @@ const CameraFeed = forwardRef<CameraFeedHandles, CameraFeedProps>((props, ref) =
         className="w-full h-full object-cover"
         crossOrigin="anonymous" 
       />
-      <canvas ref={canvasRef} style={{ display: 'none' }} />
 
       {status === 'loadingSettings' && (
         <div className="absolute inset-0 flex flex-col items-center justify-center bg-gray-800 bg-opacity-85 text-white p-4 text-center">
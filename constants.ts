@@ -17,6 +17,12 @@ export const ROUTES = {
 
 export const GEMINI_TEXT_MODEL = 'gemini-2.5-flash-preview-04-17';
 
+// 행동 분석 캐시/할당량: 비슷한 장면(지각 해시)은 TTL 동안 재사용하고, 호출은 동시 2개·분당 10회 이내로
+export const GEMINI_ANALYSIS_CACHE_TTL_MS = 60 * 1000;
+export const GEMINI_ANALYSIS_CACHE_SIZE = 64;
+export const GEMINI_ANALYSIS_MAX_CONCURRENT = 2;
+export const GEMINI_ANALYSIS_RATE_PER_MINUTE = 10;
+
 export const DEFAULT_PATIENT_NAME = "환자 이름"; 
 
 export const LOCATIONS = ["Living Room", "Kitchen", "Hallway", "Utility Room", "Bedroom"];
@@ -1,11 +1,18 @@
-
-import React, { createContext, useState, useContext, ReactNode, useEffect, useCallback } from 'react';
+import React, { createContext, useState, useContext, ReactNode, useEffect, useCallback, useMemo, useRef } from 'react';
 import { BehaviorLogEntry, BehaviorType, LocationActivity, CategoryActivityData } from '../types';
-import { LOCATIONS, BEHAVIOR_CATEGORIES_MAP, DEFAULT_ABNORMAL_CATEGORY_NAME, DEFAULT_DANGEROUS_CATEGORY_NAME, BEHAVIOR_TYPE_KOREAN, mapDescriptionToCategory } from '../constants';
+import { LOCATIONS, DEFAULT_ANALYSIS_LOCATION } from '../constants';
+import type { NativeLogEntry } from '../plugins/ForegroundServicePlugin';
+import {
+  LogRollups, NewLog, WEEK_MS, emptyRollups, appendLogs, loadRecentLogs, loadRollups,
+  migrateLegacyLogs, nativeLogsToNew, applyInMemory, countSince,
+} from '../services/logStore';
 
 interface BehaviorLogContextType {
   logs: BehaviorLogEntry[];
   addLog: (logData: Omit<BehaviorLogEntry, 'id' | 'timestamp'>) => void;
+  // 네이티브 getLocalLogs 페이지를 원래 시각 그대로 한 번에 저장. 추가된 개수 반환 (이미 있는 id는 건너뜀)
+  importNativeLogs: (entries: NativeLogEntry[]) => Promise<number>;
+  totalLogCount: number;
   abnormalBehaviorCountLastWeek: number;
   dangerousBehaviorCountLastWeek: number;
   getLogsByType: (type: BehaviorType) => BehaviorLogEntry[];
@@ -15,115 +22,140 @@ interface BehaviorLogContextType {
 
 const BehaviorLogContext = createContext<BehaviorLogContextType | undefined>(undefined);
 
-// mapDescriptionToCategory is now imported from constants.ts
+// 화면에 들고 있는 최근 기록 수 (전체 / 종류별). 전체 기록은 IndexedDB에 있고 집계는 rollups로 계산
+const RECENT_LIMIT = 200;
+const LOG_TYPES = [BehaviorType.ABNORMAL, BehaviorType.DANGEROUS, BehaviorType.NORMAL];
+
+type RecentByType = { [type: string]: BehaviorLogEntry[] };
+
+const mergeRecent = (current: BehaviorLogEntry[], added: BehaviorLogEntry[]): BehaviorLogEntry[] => {
+  if (added.length === 0) return current;
+  return [...added, ...current]
+    .sort((a, b) => b.timestamp.getTime() - a.timestamp.getTime())
+    .slice(0, RECENT_LIMIT);
+};
+
+// 많은 순으로 정렬 (0개는 제외)
+const sortedTally = (tally: { [key: string]: number }): [string, number][] =>
+  Object.entries(tally)
+    .filter(([, count]) => count > 0)
+    .sort((a, b) => b[1] - a[1]);
 
 export const BehaviorLogProvider: React.FC<{ children: ReactNode }> = ({ children }) => {
-  const [logs, setLogs] = useState<BehaviorLogEntry[]>(() => {
-    try {
-      const savedLogs = localStorage.getItem('behaviorLogs');
-      if (savedLogs) {
-        const parsedLogs = JSON.parse(savedLogs);
-        return parsedLogs.map((log: any) => ({ ...log, timestamp: new Date(log.timestamp) }));
+  const [logs, setLogs] = useState<BehaviorLogEntry[]>([]);
+  const [recentByType, setRecentByType] = useState<RecentByType>({});
+  const [rollups, setRollups] = useState<LogRollups>(emptyRollups);
+  // 저장은 한 줄로 처리 (처음 불러오기가 끝난 뒤에 추가가 반영되도록)
+  const chainRef = useRef<Promise<unknown>>(Promise.resolve());
+  const persistentRef = useRef(true);
+  const rollupsRef = useRef<LogRollups>(rollups);
+
+  const applyAdded = useCallback((added: BehaviorLogEntry[], nextRollups: LogRollups) => {
+    rollupsRef.current = nextRollups;
+    setRollups(nextRollups);
+    if (added.length === 0) return;
+    setLogs(prev => mergeRecent(prev, added));
+    setRecentByType(prev => {
+      const next = { ...prev };
+      for (const type of LOG_TYPES) {
+        const ofType = added.filter(log => log.type === type);
+        if (ofType.length > 0) next[type] = mergeRecent(prev[type] || [], ofType);
       }
-    } catch (error) {
-      console.error("Failed to load logs from localStorage", error);
-    }
-    return [];
-  });
+      return next;
+    });
+  }, []);
+
+  const enqueue = useCallback(<T,>(task: () => Promise<T>): Promise<T> => {
+    const run = chainRef.current.then(task);
+    chainRef.current = run.catch(() => undefined);
+    return run;
+  }, []);
 
   useEffect(() => {
-    try {
-      localStorage.setItem('behaviorLogs', JSON.stringify(logs));
-    } catch (error) {
-      console.error("Failed to save logs to localStorage", error);
+    enqueue(async () => {
+      try {
+        const migrated = await migrateLegacyLogs();
+        if (migrated > 0) {
+          console.log('localStorage 기록을 IndexedDB로 옮김:', migrated, '개');
+        }
+        const [recent, loadedRollups, ...byType] = await Promise.all([
+          loadRecentLogs(RECENT_LIMIT),
+          loadRollups(),
+          ...LOG_TYPES.map(type => loadRecentLogs(RECENT_LIMIT, type)),
+        ]);
+        const loadedByType: RecentByType = {};
+        LOG_TYPES.forEach((type, i) => { loadedByType[type] = byType[i]; });
+        setLogs(recent);
+        setRecentByType(loadedByType);
+        rollupsRef.current = loadedRollups;
+        setRollups(loadedRollups);
+      } catch (error) {
+        // IndexedDB를 못 쓰면 이번 실행 동안만 메모리에 기록
+        persistentRef.current = false;
+        console.error("Failed to load logs from IndexedDB", error);
+      }
+    });
+  }, [enqueue]);
+
+  const persist = useCallback((newLogs: NewLog[]): Promise<number> => enqueue(async () => {
+    let result: { added: BehaviorLogEntry[]; rollups: LogRollups } | null = null;
+    if (persistentRef.current) {
+      try {
+        result = await appendLogs(newLogs);
+      } catch (error) {
+        console.error("Failed to save logs to IndexedDB", error);
+      }
+    }
+    if (!result) {
+      result = applyInMemory(rollupsRef.current, newLogs);
     }
-  }, [logs]);
+    applyAdded(result.added, result.rollups);
+    return result.added.length;
+  }), [enqueue, applyAdded]);
 
   const addLog = useCallback((log: Omit<BehaviorLogEntry, 'id' | 'timestamp'>) => {
-    const newLog: BehaviorLogEntry = {
-      ...log,
-      id: Date.now().toString() + Math.random().toString(36).substring(2,9), // More unique ID
-      timestamp: new Date(),
-    };
-    setLogs(prevLogs => [newLog, ...prevLogs].slice(0, 100)); // Keep max 100 logs
-  }, []);
+    persist([log]);
+  }, [persist]);
 
-  const getCountsLastWeek = useCallback(() => {
-    const oneWeekAgo = new Date();
-    oneWeekAgo.setDate(oneWeekAgo.getDate() - 7);
-    
-    let abnormalCount = 0;
-    let dangerousCount = 0;
-
-    logs.forEach(log => {
-      if (log.timestamp > oneWeekAgo) {
-        if (log.type === BehaviorType.ABNORMAL) abnormalCount++;
-        if (log.type === BehaviorType.DANGEROUS) dangerousCount++;
-      }
-    });
-    return { abnormalCount, dangerousCount };
-  }, [logs]);
+  const importNativeLogs = useCallback((entries: NativeLogEntry[]) => {
+    return persist(nativeLogsToNew(entries, DEFAULT_ANALYSIS_LOCATION));
+  }, [persist]);
 
-  const { abnormalCount: abnormalBehaviorCountLastWeek, dangerousCount: dangerousBehaviorCountLastWeek } = getCountsLastWeek();
+  const weekAgo = Date.now() - WEEK_MS;
+  const abnormalBehaviorCountLastWeek = countSince(rollups, BehaviorType.ABNORMAL, weekAgo);
+  const dangerousBehaviorCountLastWeek = countSince(rollups, BehaviorType.DANGEROUS, weekAgo);
 
-  const getLogsByType = useCallback((type: BehaviorType) => {
-    return logs.filter(log => log.type === type).sort((a,b) => b.timestamp.getTime() - a.timestamp.getTime());
-  }, [logs]);
+  const getLogsByType = useCallback((type: BehaviorType) => recentByType[type] || [], [recentByType]);
 
   const getLocationActivity = useCallback((type: BehaviorType) => {
+    // LOCATIONS 밖의 위치는 "Other" 로 합침
     const activityByLocation: { [key: string]: number } = {};
-    LOCATIONS.forEach(loc => activityByLocation[loc] = 0);
-
-    logs.filter(log => log.type === type).forEach(log => {
-      if (activityByLocation[log.location] !== undefined) {
-        activityByLocation[log.location]++;
-      } else {
-         if (!activityByLocation["Other"]) activityByLocation["Other"] = 0;
-         activityByLocation["Other"]++;
-      }
-    });
-    return Object.entries(activityByLocation)
-                 .map(([location, count]) => ({ location, count }))
-                 .filter(item => item.count > 0) 
-                 .sort((a,b) => b.count - a.count); 
-  }, [logs]);
+    for (const [location, count] of Object.entries(rollups.byLocation[type] || {})) {
+      const key = LOCATIONS.includes(location) ? location : "Other";
+      activityByLocation[key] = (activityByLocation[key] || 0) + count;
+    }
+    return sortedTally(activityByLocation).map(([location, count]) => ({ location, count }));
+  }, [rollups]);
 
   const getBehaviorCategoryActivity = useCallback((type: BehaviorType) => {
-    const activityByCategory: { [key: string]: number } = {};
-    
-    // Ensure all predefined categories for the type (including default) are initialized to 0
-    // This makes sure they appear in the chart even if count is 0, if desired (currently filtered by count > 0 below)
-    // const predefinedCategories = Object.keys(BEHAVIOR_CATEGORIES_MAP[type as BehaviorType.ABNORMAL | BehaviorType.DANGEROUS]);
-    // predefinedCategories.forEach(cat => activityByCategory[cat] = 0);
-
-
-    logs
-      .filter(log => log.type === type)
-      .forEach(log => {
-        const category = mapDescriptionToCategory(log.description, type as BehaviorType.ABNORMAL | BehaviorType.DANGEROUS);
-        if (activityByCategory[category]) {
-          activityByCategory[category]++;
-        } else {
-          activityByCategory[category] = 1;
-        }
-      });
-  
-    return Object.entries(activityByCategory)
-      .map(([category, count]) => ({ category, count }))
-      .filter(item => item.count > 0) // Optionally, include categories with 0 count if they should always be shown
-      .sort((a, b) => b.count - a.count); 
-  }, [logs]);
+    return sortedTally(rollups.byCategory[type] || {}).map(([category, count]) => ({ category, count }));
+  }, [rollups]);
+
+  const value = useMemo(() => ({
+    logs,
+    addLog,
+    importNativeLogs,
+    totalLogCount: rollups.total,
+    abnormalBehaviorCountLastWeek,
+    dangerousBehaviorCountLastWeek,
+    getLogsByType,
+    getLocationActivity,
+    getBehaviorCategoryActivity,
+  }), [logs, addLog, importNativeLogs, rollups, abnormalBehaviorCountLastWeek, dangerousBehaviorCountLastWeek,
+      getLogsByType, getLocationActivity, getBehaviorCategoryActivity]);
 
   return (
-    <BehaviorLogContext.Provider value={{ 
-        logs, 
-        addLog, 
-        abnormalBehaviorCountLastWeek, 
-        dangerousBehaviorCountLastWeek, 
-        getLogsByType, 
-        getLocationActivity,
-        getBehaviorCategoryActivity // Changed from getBehaviorDescriptionActivity
-      }}>
+    <BehaviorLogContext.Provider value={value}>
       {children}
     </BehaviorLogContext.Provider>
   );
@@ -135,4 +167,4 @@ export const useBehaviorLogs = (): BehaviorLogContextType => {
     throw new Error('useBehaviorLogs must be used within a BehaviorLogProvider');
   }
   return context;
-};
\ No newline at end of file
+};
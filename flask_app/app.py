@@ -1,10 +1,17 @@
-from flask import Flask, render_template, request, jsonify
+from flask import Flask, render_template, request, jsonify, Response, stream_with_context
 import os
 import base64
 import io
+import json
+import sqlite3
+import threading
+import time
+import zlib
 
 from typing import Any, Dict, List
 
+from event_store import KIND_ANALYSIS, KIND_DEVICE, EventStore
+
 try:
     from PIL import Image
 except ImportError:  # Pillow might not be installed in some environments
@@ -17,23 +24,328 @@ app = Flask(__name__)
 ESP32_HOST = os.environ.get('ESP32_HOST', '192.168.0.100')
 YOLO_MIN_CONF = float(os.environ.get('YOLO_MIN_CONF', '0.6'))
 
-latest_result = {}
+SSE_KEEPALIVE_SEC = float(os.environ.get('SSE_KEEPALIVE_SEC', '15'))
+
+DEFAULT_SOURCE = 'default'
+# 카메라/방 ID → 위치 이름 (예: SOURCE_LOCATIONS='{"livingroom": "거실", "bedroom": "침실"}')
+SOURCE_LOCATIONS: Dict[str, str] = json.loads(os.environ.get('SOURCE_LOCATIONS', '{}'))
+DEFAULT_LOCATION = os.environ.get('DEFAULT_LOCATION', '거실')
+CHANGES_MAX_WAIT_SEC = 30.0
+
+# 카메라/방(source)별 최신 결과: source -> {'result': dict, 'version': int}
+_sources: Dict[str, Dict[str, Any]] = {}
+# 가장 최근에 갱신된 source (source 없이 /latest_analysis 를 부르는 기존 클라이언트용)
+_last_source = None
+# 모든 source 공통의 증가 번호(커서). 구독자(SSE/long-poll)에게 새 결과를 알리기 위한 조건 변수
+_result_version = 0
+_result_cond = threading.Condition()
+
+# 분석 결과/기기 이벤트 기록 (재시작해도 유지). 버전(커서)은 저장소의 seq를 그대로 씀
+EVENT_DB_PATH = os.environ.get('EVENT_DB_PATH', os.path.join(os.path.dirname(os.path.abspath(__file__)), 'memoria_events.db'))
+EVENT_RETENTION_DAYS = float(os.environ.get('EVENT_RETENTION_DAYS', '7'))
+# /bulk_ingest 멱등 키는 이벤트가 지워진 뒤에도 이만큼 남겨 늦게 재전송된 이벤트를 걸러냄
+IDEMPOTENCY_KEY_RETENTION_DAYS = float(os.environ.get('IDEMPOTENCY_KEY_RETENTION_DAYS', '365'))
+EVENTS_DEFAULT_LIMIT = 100
+EVENTS_MAX_LIMIT = 1000
+_store = EventStore(EVENT_DB_PATH, EVENT_RETENTION_DAYS * 86400,
+                    key_retention_sec=IDEMPOTENCY_KEY_RETENTION_DAYS * 86400)
+# /changes 의 bootId 와 ETag 접두사. 버전(seq)은 재시작해도 이어지므로 부팅이 아니라 저장소마다 정해진 값을 쓰고,
+# DB를 새로 만들어 seq가 처음부터 다시 시작할 때만 바뀐다 (클라이언트는 이때만 커서를 0으로 되돌림)
+_boot_id = _store.store_id
+# 디스크 쓰기와 메모리 반영 순서를 맞추는 잠금. 읽기(_result_cond)는 디스크 쓰기를 기다리지 않음
+_publish_lock = threading.Lock()
+
+
+def _restore_sources() -> None:
+    """저장소에 남은 source별 마지막 결과로 메모리 상태 복원 (시작 시 한 번)"""
+    global _last_source, _result_version
+    for source, (seq, result) in _store.latest_by_source(KIND_ANALYSIS).items():
+        _sources[source] = {'result': result, 'version': seq}
+        if seq > _result_version:
+            _result_version = seq
+            _last_source = source
+
+
+_restore_sources()
+
+MOTION_GRID = (32, 24)
+MOTION_PIXEL_DELTA = int(os.environ.get('MOTION_PIXEL_DELTA', '25'))
+MOTION_CHANGE_RATIO = float(os.environ.get('MOTION_CHANGE_RATIO', '0.02'))
+MOTION_HEARTBEAT_SEC = float(os.environ.get('MOTION_HEARTBEAT_SEC', '30'))
+
+
+class MotionGate:
+    """클라이언트별로 마지막으로 추론한 프레임의 32x24 밝기 격자를 기억해,
+    바뀐 칸 비율이 change_ratio 미만이고 heartbeat 이내면 이전 검출 결과를 재사용한다."""
+
+    def __init__(self, pixel_delta: int, change_ratio: float, heartbeat_sec: float):
+        self.pixel_delta = pixel_delta
+        self.change_ratio = change_ratio
+        self.heartbeat_sec = heartbeat_sec
+        self._lock = threading.Lock()
+        self._refs: Dict[str, Dict[str, Any]] = {}
+        self.analyzed = 0
+        self.skipped = 0
+
+    def cached(self, key: str, grid: bytes, now: float):
+        """재사용할 수 있으면 이전 결과, 새로 추론해야 하면 None"""
+        with self._lock:
+            ref = self._refs.get(key)
+            if ref is not None and now - ref['at'] < self.heartbeat_sec:
+                prev = ref['grid']
+                changed = sum(1 for a, b in zip(grid, prev) if abs(a - b) >= self.pixel_delta)
+                if changed / len(grid) < self.change_ratio:
+                    self.skipped += 1
+                    return ref['result']
+            self.analyzed += 1
+            return None
+
+    def store(self, key: str, grid: bytes, result: Any, now: float) -> None:
+        with self._lock:
+            self._refs[key] = {'grid': grid, 'result': result, 'at': now}
+
+    def stats(self) -> Dict[str, Any]:
+        with self._lock:
+            total = self.analyzed + self.skipped
+            return {
+                'analyzed': self.analyzed,
+                'skipped': self.skipped,
+                'skipRatio': (self.skipped / total) if total else 0.0,
+                'sources': len(self._refs),
+            }
+
+
+_detect_gate = MotionGate(MOTION_PIXEL_DELTA, MOTION_CHANGE_RATIO, MOTION_HEARTBEAT_SEC)
+
+METRICS_BUCKETS_SEC = (0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0, 30.0)
+
+
+def _format_labels(labels: tuple, extra: str = '') -> str:
+    parts = ['%s="%s"' % (k, str(v).replace('\\', '\\\\').replace('"', '\\"').replace('\n', '\\n')) for k, v in labels]
+    if extra:
+        parts.append(extra)
+    return '{' + ','.join(parts) + '}' if parts else ''
+
+
+class Metrics:
+    """/metrics 로 내보내는 카운터/지연시간 히스토그램 (Prometheus 텍스트 형식).
+    레이블 조합마다 값을 따로 두며, 기록은 잠금 하나로 보호한다."""
+
+    def __init__(self, buckets: tuple):
+        self.buckets = buckets
+        self._lock = threading.Lock()
+        self._meta: Dict[str, tuple] = {}
+        self._counters: Dict[str, Dict[tuple, float]] = {}
+        # name -> labels -> [칸별 개수..., +Inf 개수, 합계]
+        self._histograms: Dict[str, Dict[tuple, List[float]]] = {}
+
+    def describe(self, name: str, kind: str, text: str) -> None:
+        self._meta[name] = (kind, text)
+        (self._counters if kind == 'counter' else self._histograms).setdefault(name, {})
+
+    def inc(self, name: str, amount: float = 1.0, **labels: Any) -> None:
+        key = tuple(sorted(labels.items()))
+        with self._lock:
+            series = self._counters.setdefault(name, {})
+            series[key] = series.get(key, 0.0) + amount
+
+    def observe(self, name: str, seconds: float, **labels: Any) -> None:
+        key = tuple(sorted(labels.items()))
+        with self._lock:
+            series = self._histograms.setdefault(name, {})
+            values = series.get(key)
+            if values is None:
+                values = series[key] = [0.0] * (len(self.buckets) + 2)
+            i = 0
+            while i < len(self.buckets) and seconds > self.buckets[i]:
+                i += 1
+            values[i] += 1
+            values[-1] += seconds
+
+    def render(self) -> List[str]:
+        lines: List[str] = []
+        with self._lock:
+            for name, series in self._counters.items():
+                text = self._meta.get(name, ('counter', ''))[1]
+                lines += [f'# HELP {name} {text}', f'# TYPE {name} counter']
+                lines += [f'{name}{_format_labels(key)} {value:g}' for key, value in series.items()]
+            for name, series in self._histograms.items():
+                text = self._meta.get(name, ('histogram', ''))[1]
+                lines += [f'# HELP {name} {text}', f'# TYPE {name} histogram']
+                for key, values in series.items():
+                    cumulative = 0.0
+                    for bound, n in zip(self.buckets, values):
+                        cumulative += n
+                        le = 'le="%g"' % bound
+                        lines.append(f'{name}_bucket{_format_labels(key, le)} {cumulative:g}')
+                    cumulative += values[len(self.buckets)]
+                    le = 'le="+Inf"'
+                    lines.append(f'{name}_bucket{_format_labels(key, le)} {cumulative:g}')
+                    lines.append(f'{name}_sum{_format_labels(key)} {values[-1]:.6f}')
+                    lines.append(f'{name}_count{_format_labels(key)} {cumulative:g}')
+        return lines
+
+
+_metrics = Metrics(METRICS_BUCKETS_SEC)
+_metrics.describe('memoria_detect_seconds', 'histogram', '/detect 요청 처리 시간 (디코드~응답)')
+_metrics.describe('memoria_detect_queue_wait_seconds', 'histogram', '/detect 배치 대기 시간')
+_metrics.describe('memoria_detect_inference_seconds', 'histogram', '/detect 배치 추론 시간')
+_metrics.describe('memoria_detect_requests_total', 'counter', '/detect 요청 수 (result=inferred|cached|bad_request|error)')
+_metrics.describe('memoria_analysis_seconds', 'histogram', '클라이언트가 보고한 캡처~Gemini 결과까지 시간 (source별)')
+_metrics.describe('memoria_frame_encode_seconds', 'histogram', '클라이언트 프레임 전처리(자르기/축소/JPEG) 시간 (source별)')
+_metrics.describe('memoria_analysis_frame_bytes_total', 'counter', 'Gemini 분석에 보낸 프레임 바이트 합계 (source별, update_analysis 수로 나누면 평균)')
+_metrics.describe('memoria_update_analysis_total', 'counter', '/update_analysis 로 받은 결과 수 (source, behaviorType별)')
+_metrics.describe('memoria_ingest_events_total', 'counter', '/bulk_ingest 이벤트 수 (result=accepted|duplicate|rejected)')
+
+def _location_for(source: str) -> str:
+    return SOURCE_LOCATIONS.get(source) or (DEFAULT_LOCATION if source == DEFAULT_SOURCE else source)
 
 @app.route('/')
 def index():
     # 쿼리 파라미터로 esp32url을 받으면 우선 사용, 없으면 환경변수/기본값 사용
     esp32_host = request.args.get('esp32url') or ESP32_HOST
-    return render_template('index.html', esp32_host=esp32_host)
+    # 카메라마다 ?source=<방ID>&location=<위치> 로 페이지를 열면 결과가 그 source로 올라감
+    source = request.args.get('source') or DEFAULT_SOURCE
+    location = request.args.get('location') or _location_for(source)
+    return render_template('index.html', esp32_host=esp32_host, source=source, location=location)
+
+def _is_non_negative_number(value: Any) -> bool:
+    return isinstance(value, (int, float)) and not isinstance(value, bool) and value >= 0
 
 @app.route('/update_analysis', methods=['POST'])
 def update_analysis():
-    global latest_result
-    latest_result = request.get_json()
-    return jsonify({'status': 'success'})
+    global _last_source, _result_version
+    payload = request.get_json(force=True, silent=True)
+    if not isinstance(payload, dict):
+        return jsonify({'status': 'error', 'error': 'JSON object body is required'}), 400
+    source = str(request.args.get('source') or payload.get('source') or DEFAULT_SOURCE)
+    result = dict(payload)
+    result['source'] = source
+    # 클라이언트가 잰 분석 시간은 지표로만 쓰고 결과에는 남기지 않음
+    analysis_ms = result.pop('analysisMs', None)
+    frame_bytes = result.pop('frameBytes', None)
+    encode_ms = result.pop('encodeMs', None)
+    if _is_non_negative_number(analysis_ms):
+        _metrics.observe('memoria_analysis_seconds', analysis_ms / 1000.0, source=source)
+    if _is_non_negative_number(encode_ms):
+        _metrics.observe('memoria_frame_encode_seconds', encode_ms / 1000.0, source=source)
+    if _is_non_negative_number(frame_bytes):
+        _metrics.inc('memoria_analysis_frame_bytes_total', frame_bytes, source=source)
+    _metrics.inc('memoria_update_analysis_total', source=source, behaviorType=str(result.get('behaviorType', '')))
+    if not result.get('location'):
+        result['location'] = _location_for(source)
+    with _publish_lock:
+        try:
+            seq = _store.append(source, KIND_ANALYSIS, result)
+        except sqlite3.Error as e:
+            return jsonify({'status': 'error', 'error': f'Failed to store result: {e}'}), 500
+        with _result_cond:
+            _result_version = seq
+            _sources[source] = {'result': result, 'version': seq}
+            _last_source = source
+            _result_cond.notify_all()
+    return jsonify({'status': 'success', 'version': seq})
+
+def _result_etag(version: int, source: str = '') -> str:
+    # 저장소 id 접두사: DB를 새로 만들어 seq가 다시 1부터 시작해도 이전 ETag와 겹치지 않음
+    return f'{_boot_id}-{source}-{version}' if source else f'{_boot_id}-{version}'
+
+def _conditional_json(etag: str, payload: Any) -> Response:
+    # ETag가 If-None-Match와 같으면 본문 없이 304
+    if request.if_none_match.contains(etag):
+        response = Response(status=304)
+    else:
+        response = jsonify(payload)
+    response.set_etag(etag)
+    response.headers['Cache-Control'] = 'no-cache'
+    return response
+
+def _changes_since(cursor: int) -> List[Dict[str, Any]]:
+    """cursor 이후 갱신된 source 들의 최신 결과 (버전 순). _result_cond 안에서 호출"""
+    changed = [
+        {'source': source, 'version': entry['version'], 'result': entry['result']}
+        for source, entry in _sources.items() if entry['version'] > cursor
+    ]
+    changed.sort(key=lambda c: c['version'])
+    return changed
 
 @app.route('/latest_analysis', methods=['GET'])
 def latest_analysis():
-    return jsonify(latest_result)
+    # ?source= 가 있으면 그 카메라/방의 결과, 없으면 가장 최근에 갱신된 결과 (기존 단일 카메라 동작)
+    source = request.args.get('source')
+    with _result_cond:
+        if source:
+            entry = _sources.get(source)
+            version = entry['version'] if entry else 0
+            payload = entry['result'] if entry else {}
+            etag = _result_etag(version, source)
+        else:
+            entry = _sources.get(_last_source) if _last_source else None
+            payload = entry['result'] if entry else {}
+            etag = _result_etag(_result_version)
+    return _conditional_json(etag, payload)
+
+@app.route('/changes', methods=['GET'])
+def changes():
+    # 커서(since) 이후 바뀐 모든 source의 최신 결과를 한 번에 반환. wait>0 이면 변경이 생길 때까지 최대 wait초 대기
+    try:
+        since = max(0, int(request.args.get('since', '0')))
+        wait = min(max(0.0, float(request.args.get('wait', '0'))), CHANGES_MAX_WAIT_SEC)
+    except ValueError:
+        return jsonify({'error': 'since/wait must be numbers'}), 400
+    with _result_cond:
+        if since > _result_version:
+            # 서버가 재시작되어 번호가 줄어든 경우: 처음부터
+            since = 0
+        if wait > 0 and _result_version == since:
+            _result_cond.wait(timeout=wait)
+        version = _result_version
+        payload = {'cursor': version, 'bootId': _boot_id, 'changes': _changes_since(since)}
+    return _conditional_json(_result_etag(version), payload)
+
+@app.route('/events', methods=['GET'])
+def events():
+    # 저장된 기록을 seq 순으로 이어 받기: 마지막으로 받은 seq를 since로 넘기면 놓친 결과부터 가져감
+    # kind=analysis(분석 결과) | device(기기에서 올라온 이벤트), source로 방을 거를 수 있음
+    try:
+        since = max(0, int(request.args.get('since', '0')))
+        limit = min(max(1, int(request.args.get('limit', str(EVENTS_DEFAULT_LIMIT)))), EVENTS_MAX_LIMIT)
+    except ValueError:
+        return jsonify({'error': 'since/limit must be integers'}), 400
+    items = _store.since(since, limit, request.args.get('source'), request.args.get('kind'))
+    return jsonify({
+        'events': items,
+        'nextSince': items[-1]['seq'] if items else since,
+        'hasMore': len(items) == limit,
+    })
+
+@app.route('/analysis_stream', methods=['GET'])
+def analysis_stream():
+    # Server-Sent Events: 어느 source든 새 분석 결과가 올라오는 즉시 전송, 유휴 시에는 keep-alive 주석만 전송
+    # 재연결 시 Last-Event-ID 이후 바뀐 source들을 모두 보내므로 끊긴 동안의 변경을 놓치지 않음
+    try:
+        cursor = int(request.headers.get('Last-Event-ID', '0'))
+    except ValueError:
+        cursor = 0
+
+    def generate():
+        nonlocal cursor
+        while True:
+            with _result_cond:
+                if cursor > _result_version:
+                    cursor = 0
+                if _result_version == cursor:
+                    _result_cond.wait(timeout=SSE_KEEPALIVE_SEC)
+                pending = _changes_since(cursor)
+            if not pending:
+                yield ': keep-alive\n\n'
+                continue
+            for change in pending:
+                cursor = change['version']
+                yield f"id: {cursor}\nevent: analysis\ndata: {json.dumps(change['result'], ensure_ascii=False)}\n\n"
+
+    headers = {'Cache-Control': 'no-cache', 'X-Accel-Buffering': 'no'}
+    return Response(stream_with_context(generate()), mimetype='text/event-stream', headers=headers)
 
 def _load_yolo_model() -> Any:
     global _yolo_model
@@ -67,67 +379,306 @@ def _load_yolo_model() -> Any:
     except Exception as e:
         raise RuntimeError(f"Failed to load YOLO model: {e}")
 
-def _run_yolo_detection(img: Image.Image) -> List[Dict[str, Any]]:
+def _parse_ultralytics_result(res: Any) -> List[Dict[str, Any]]:
+    detections: List[Dict[str, Any]] = []
+    names = getattr(res, 'names', {})
+    for b in res.boxes:  # type: ignore[attr-defined]
+        xyxy = b.xyxy[0].tolist()  # [x1,y1,x2,y2]
+        conf = float(b.conf[0].item())
+        cls_id = int(b.cls[0].item())
+        name = names.get(cls_id, str(cls_id))
+        if conf >= YOLO_MIN_CONF:
+            detections.append({
+                'bbox': [float(xyxy[0]), float(xyxy[1]), float(xyxy[2]), float(xyxy[3])],
+                'label': name,
+                'confidence': conf,
+            })
+    return detections
+
+def _parse_yolov5_rows(rows: Any, names: Any) -> List[Dict[str, Any]]:
+    # rows: Nx6 (x1,y1,x2,y2,conf,cls)
+    detections: List[Dict[str, Any]] = []
+    for x1, y1, x2, y2, conf, cls_id in rows.tolist():
+        label = names.get(int(cls_id), str(int(cls_id))) if isinstance(names, dict) else str(int(cls_id))
+        if float(conf) >= YOLO_MIN_CONF:
+            detections.append({
+                'bbox': [float(x1), float(y1), float(x2), float(y2)],
+                'label': label,
+                'confidence': float(conf),
+            })
+    return detections
+
+def _run_yolo_batch(imgs: List[Any]) -> List[List[Dict[str, Any]]]:
+    """여러 장을 한 번의 forward로 추론하고 이미지별 감지 목록을 반환"""
     model = _load_yolo_model()
     # Prefer faster inference with reasonable defaults where supported
     try:
-        results = model(img, verbose=False, conf=YOLO_MIN_CONF, iou=0.45)
+        results = model(imgs, verbose=False, conf=YOLO_MIN_CONF, iou=0.45)
     except Exception:
-        results = model(img)
-    detections: List[Dict[str, Any]] = []
+        results = model(imgs)
     try:
-        # ultralytics YOLO (v8) returns list with .boxes
-        if hasattr(results, 'boxes') or (isinstance(results, list) and hasattr(results[0], 'boxes')):
-            res = results[0] if isinstance(results, list) else results
-            for b in res.boxes:  # type: ignore[attr-defined]
-                xyxy = b.xyxy[0].tolist()  # [x1,y1,x2,y2]
-                conf = float(b.conf[0].item())
-                cls_id = int(b.cls[0].item())
-                name = getattr(res, 'names', {}).get(cls_id, str(cls_id))
-                if conf >= YOLO_MIN_CONF:
-                    detections.append({
-                        'bbox': [float(xyxy[0]), float(xyxy[1]), float(xyxy[2]), float(xyxy[3])],
-                        'label': name,
-                        'confidence': conf,
-                    })
-            return detections
+        # ultralytics YOLO (v8) returns one Results (with .boxes) per image
+        if isinstance(results, list) and results and hasattr(results[0], 'boxes'):
+            return [_parse_ultralytics_result(res) for res in results]
     except Exception:
         pass
 
-    # yolov5 torch hub format
+    # yolov5 torch hub format: results.xyxy[i] per image
     try:
-        # results.xyxy[0] is Nx6 tensor: x1,y1,x2,y2,conf,cls
-        xyxy = results.xyxy[0].tolist()  # type: ignore[attr-defined]
         names = results.names if hasattr(results, 'names') else {}  # type: ignore[attr-defined]
-        for x1, y1, x2, y2, conf, cls_id in xyxy:
-            label = names.get(int(cls_id), str(int(cls_id))) if isinstance(names, dict) else str(int(cls_id))
-            if float(conf) >= YOLO_MIN_CONF:
-                detections.append({
-                    'bbox': [float(x1), float(y1), float(x2), float(y2)],
-                    'label': label,
-                    'confidence': float(conf),
-                })
-        return detections
+        return [_parse_yolov5_rows(rows, names) for rows in results.xyxy]  # type: ignore[attr-defined]
     except Exception:
-        return detections
+        return [[] for _ in imgs]
+
+def _run_yolo_detection(img: Image.Image) -> List[Dict[str, Any]]:
+    return _run_yolo_batch([img])[0]
+
+
+DETECT_BATCH_MAX = int(os.environ.get('DETECT_BATCH_MAX', '8'))
+DETECT_BATCH_WAIT_MS = float(os.environ.get('DETECT_BATCH_WAIT_MS', '15'))
+DETECT_TIMEOUT_SEC = float(os.environ.get('DETECT_TIMEOUT_SEC', '30'))
+
+
+class _DetectJob:
+    __slots__ = ('img', 'enqueued_at', 'done', 'detections', 'error', 'queue_wait_ms', 'inference_ms', 'batch_size')
+
+    def __init__(self, img: Any):
+        self.img = img
+        self.enqueued_at = time.perf_counter()
+        self.done = threading.Event()
+        self.detections: List[Dict[str, Any]] = []
+        self.error: Any = None
+        self.queue_wait_ms = 0.0
+        self.inference_ms = 0.0
+        self.batch_size = 0
+
+
+class InferenceBatcher:
+    """/detect 요청을 모아 한 번에 추론하는 마이크로 배처.
+    워커 스레드 하나가 첫 요청을 받은 뒤 최대 max_wait_ms 동안 max_batch 장까지 모아
+    _run_yolo_batch 로 한 번에 돌리고, 각 요청 스레드는 자기 결과를 기다린다.
+    모델은 이 워커 스레드에서만 호출되므로 동시 호출로 인한 경합이 없다."""
+
+    def __init__(self, run_batch: Any, max_batch: int, max_wait_ms: float):
+        self._run_batch = run_batch
+        self.max_batch = max(1, max_batch)
+        self.max_wait_sec = max(0.0, max_wait_ms) / 1000.0
+        self._cond = threading.Condition()
+        self._pending: List[_DetectJob] = []
+        self._worker = None
+        self.batches = 0
+        self.images = 0
+
+    def submit(self, img: Any, timeout: float = DETECT_TIMEOUT_SEC) -> _DetectJob:
+        job = _DetectJob(img)
+        with self._cond:
+            if self._worker is None:
+                self._worker = threading.Thread(target=self._loop, name='detect-batcher', daemon=True)
+                self._worker.start()
+            self._pending.append(job)
+            self._cond.notify()
+        if not job.done.wait(timeout):
+            raise RuntimeError('Inference timed out')
+        if job.error is not None:
+            raise job.error
+        return job
+
+    def _take_batch(self) -> List[_DetectJob]:
+        with self._cond:
+            while not self._pending:
+                self._cond.wait()
+            # 첫 요청 기준으로 max_wait 동안 더 모음 (꽉 차면 바로 실행)
+            deadline = self._pending[0].enqueued_at + self.max_wait_sec
+            while len(self._pending) < self.max_batch:
+                remaining = deadline - time.perf_counter()
+                if remaining <= 0:
+                    break
+                self._cond.wait(remaining)
+            batch = self._pending[:self.max_batch]
+            del self._pending[:self.max_batch]
+            return batch
+
+    def _loop(self) -> None:
+        while True:
+            batch = self._take_batch()
+            started = time.perf_counter()
+            try:
+                outputs = self._run_batch([job.img for job in batch])
+                error = None
+            except Exception as e:  # 모델 로딩 실패 등은 배치의 모든 요청에 전달
+                outputs = [[] for _ in batch]
+                error = e
+            inference_ms = (time.perf_counter() - started) * 1000.0
+            self.batches += 1
+            self.images += len(batch)
+            for job, detections in zip(batch, outputs):
+                job.detections = detections
+                job.error = error
+                job.queue_wait_ms = (started - job.enqueued_at) * 1000.0
+                job.inference_ms = inference_ms
+                job.batch_size = len(batch)
+                job.done.set()
+
+    def stats(self) -> Dict[str, Any]:
+        with self._cond:
+            pending = len(self._pending)
+        return {
+            'batches': self.batches,
+            'images': self.images,
+            'avgBatchSize': (self.images / self.batches) if self.batches else 0.0,
+            'pending': pending,
+            'maxBatch': self.max_batch,
+            'maxWaitMs': self.max_wait_sec * 1000.0,
+        }
+
+
+_batcher = InferenceBatcher(_run_yolo_batch, DETECT_BATCH_MAX, DETECT_BATCH_WAIT_MS)
+
+def _read_detect_image() -> Any:
+    """원본 JPEG 바이트(image/jpeg, application/octet-stream) 또는 JSON base64 본문에서 이미지 바이트와 source 추출"""
+    content_type = (request.mimetype or '').lower()
+    if content_type in ('image/jpeg', 'image/jpg', 'application/octet-stream'):
+        return request.get_data(cache=False), request.args.get('source')
+    body = request.get_json(force=True, silent=False) or {}
+    b64 = body.get('image')
+    if not b64:
+        return None, None
+    return base64.b64decode(b64), body.get('source') or request.args.get('source')
 
 @app.route('/detect', methods=['POST'])
 def detect():
     try:
         if Image is None:
             return jsonify({'error': 'Pillow not installed on server'}), 500
-        body = request.get_json(force=True, silent=False) or {}
-        b64 = body.get('image')
-        if not b64:
-            return jsonify({'error': 'image is required (base64 JPEG without prefix)'}), 400
-        img_bytes = base64.b64decode(b64)
+        t0 = time.perf_counter()
+        img_bytes, source = _read_detect_image()
+        if not img_bytes:
+            _metrics.inc('memoria_detect_requests_total', result='bad_request')
+            return jsonify({'error': 'image is required (raw JPEG body or base64 JPEG without prefix)'}), 400
         img = Image.open(io.BytesIO(img_bytes)).convert('RGB')
-        detections = _run_yolo_detection(img)
-        return jsonify({'detections': detections})
+        decode_ms = (time.perf_counter() - t0) * 1000.0
+        # 장면이 그대로면 YOLO를 돌리지 않고 직전 결과 반환
+        gate_key = source or request.remote_addr or 'default'
+        grid = img.convert('L').resize(MOTION_GRID).tobytes()
+        now = time.monotonic()
+        cached = _detect_gate.cached(gate_key, grid, now)
+        if cached is not None:
+            _metrics.inc('memoria_detect_requests_total', result='cached')
+            _metrics.observe('memoria_detect_seconds', time.perf_counter() - t0, cached='true')
+            return jsonify({'detections': cached, 'cached': True, 'timings': {'decodeMs': decode_ms}})
+        job = _batcher.submit(img)
+        _detect_gate.store(gate_key, grid, job.detections, now)
+        _metrics.inc('memoria_detect_requests_total', result='inferred')
+        _metrics.observe('memoria_detect_queue_wait_seconds', job.queue_wait_ms / 1000.0)
+        _metrics.observe('memoria_detect_inference_seconds', job.inference_ms / 1000.0)
+        _metrics.observe('memoria_detect_seconds', time.perf_counter() - t0, cached='false')
+        return jsonify({
+            'detections': job.detections,
+            'cached': False,
+            'timings': {
+                'decodeMs': decode_ms,
+                'queueWaitMs': job.queue_wait_ms,
+                'inferenceMs': job.inference_ms,
+                'batchSize': job.batch_size,
+                'totalMs': (time.perf_counter() - t0) * 1000.0,
+            },
+        })
     except RuntimeError as e:
+        _metrics.inc('memoria_detect_requests_total', result='error')
         return jsonify({'error': str(e)}), 500
     except Exception as e:
+        _metrics.inc('memoria_detect_requests_total', result='error')
         return jsonify({'error': f'Unexpected error: {e}'}), 500
 
+INGEST_MAX_BODY_BYTES = int(os.environ.get('INGEST_MAX_BODY_BYTES', str(8 * 1024 * 1024)))
+
+# 기기에서 올라온 이벤트는 이벤트 저장소에 kind=device 로 기록 (멱등 키 UNIQUE 로 중복 제거)
+_ingest_lock = threading.Lock()
+_ingest_stats = {'batches': 0, 'accepted': 0, 'duplicates': 0, 'rejected': 0}
+
+
+def _read_ingest_body() -> bytes:
+    raw = request.get_data(cache=False)
+    if request.headers.get('Content-Encoding', '').lower() != 'gzip':
+        return raw
+    # 압축 폭탄 방지: 풀린 크기를 제한
+    inflater = zlib.decompressobj(16 + zlib.MAX_WBITS)
+    body = inflater.decompress(raw, INGEST_MAX_BODY_BYTES)
+    if inflater.unconsumed_tail:
+        raise ValueError('decompressed body too large')
+    return body
+
+
+@app.route('/bulk_ingest', methods=['POST'])
+def bulk_ingest():
+    # 기기의 오프라인 대기열이 묶어서 올리는 이벤트: {"deviceId": "...", "events": [{"key": "...", "event": {...}}]}
+    # 같은 key는 한 번만 반영하므로 기기는 응답을 못 받았을 때 그대로 재전송하면 됨
+    try:
+        payload = json.loads(_read_ingest_body())
+    except (ValueError, zlib.error) as e:
+        return jsonify({'error': f'Invalid body: {e}'}), 400
+    events = payload.get('events') if isinstance(payload, dict) else None
+    if not isinstance(events, list):
+        return jsonify({'error': 'events list is required'}), 400
+    device_id = str(payload.get('deviceId', ''))
+    rejected = 0
+    rows = []
+    for item in events:
+        key = item.get('key') if isinstance(item, dict) else None
+        event = item.get('event') if isinstance(item, dict) else None
+        if not isinstance(key, str) or not key or not isinstance(event, dict):
+            rejected += 1
+            continue
+        source = str(event.get('source') or device_id or DEFAULT_SOURCE)
+        rows.append((source, key, {**event, 'deviceId': device_id}))
+    try:
+        # 배치 전체를 한 트랜잭션으로 기록. 실패하면 기기가 그대로 재전송
+        seqs = _store.append_many(KIND_DEVICE, rows) if rows else []
+    except sqlite3.Error as e:
+        return jsonify({'error': f'Failed to store events: {e}'}), 503
+    accepted = sum(1 for seq in seqs if seq is not None)
+    duplicates = len(seqs) - accepted
+    with _ingest_lock:
+        _ingest_stats['batches'] += 1
+        _ingest_stats['accepted'] += accepted
+        _ingest_stats['duplicates'] += duplicates
+        _ingest_stats['rejected'] += rejected
+    _metrics.inc('memoria_ingest_events_total', accepted, result='accepted')
+    _metrics.inc('memoria_ingest_events_total', duplicates, result='duplicate')
+    _metrics.inc('memoria_ingest_events_total', rejected, result='rejected')
+    return jsonify({'accepted': accepted, 'duplicates': duplicates, 'rejected': rejected})
+
+@app.route('/gate_stats', methods=['GET'])
+def gate_stats():
+    # /detect 움직임 게이트의 추론/생략 횟수, 배치 통계, 기기 이벤트 수신 통계
+    with _ingest_lock:
+        ingest = dict(_ingest_stats)
+    ingest['stored'] = _store.count(KIND_DEVICE)
+    return jsonify({'detect': _detect_gate.stats(), 'batcher': _batcher.stats(), 'ingest': ingest,
+                    'store': _store.stats()})
+
+@app.route('/metrics', methods=['GET'])
+def metrics():
+    # Prometheus 스크레이프용. 게이지와 저장소 카운터는 여기서 현재 값을 읽어 붙임
+    with _result_cond:
+        gauges = [('memoria_sources', '결과를 올린 카메라/방 수', len(_sources)),
+                  ('memoria_result_version', '결과 커서 (저장소 seq, 재시작해도 이어짐)', _result_version)]
+    batcher = _batcher.stats()
+    gate = _detect_gate.stats()
+    stored = _store.count(KIND_DEVICE)
+    gauges += [('memoria_detect_batch_pending', '추론 대기 중인 /detect 요청 수', batcher['pending']),
+               ('memoria_detect_gate_sources', '움직임 게이트가 기억하는 source 수', gate['sources']),
+               ('memoria_ingested_events_stored', '보관 중인 기기 이벤트 수', stored),
+               ('memoria_event_store_rows', '이벤트 저장소 행 수 (보관 기간 적용 후)', _store.count())]
+    # 저장소가 직접 세는 누적 값은 카운터로 (재시작하면 0부터)
+    counters = [('memoria_event_store_pruned_total', '보관 기간이 지나 지운 이벤트 수 (시작 이후)', _store.pruned)]
+    lines = _metrics.render()
+    for name, text, value in counters:
+        lines += [f'# HELP {name} {text}', f'# TYPE {name} counter', f'{name} {value}']
+    for name, text, value in gauges:
+        lines += [f'# HELP {name} {text}', f'# TYPE {name} gauge', f'{name} {value}']
+    return Response('\n'.join(lines) + '\n', mimetype='text/plain; version=0.0.4')
+
 if __name__ == '__main__':
-    app.run(host='0.0.0.0', port=5000, debug=True) 
\ No newline at end of file
+    # debug 리로더는 프로세스를 둘 띄워 모델도 두 번 올리므로 기본은 끔 (FLASK_DEBUG=1 로 켬)
+    app.run(host='0.0.0.0', port=5000, debug=os.environ.get('FLASK_DEBUG') == '1', threaded=True) 
\ No newline at end of file
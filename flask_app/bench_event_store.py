@@ -0,0 +1,101 @@
+"""이벤트 저장소(event_store.py) 벤치마크.
+
+1) 쓰기 처리량: 쓰기 스레드 하나가 분석 결과 크기의 이벤트를 가능한 한 빨리 추가
+2) 읽기 지연: 쓰기가 계속되는 동안 읽기 스레드들이 /events 와 같은 범위 조회(since, limit)를 반복
+
+    python bench_event_store.py --events 20000 --readers 4 --limit 100
+
+임시 디렉터리에 DB를 만들고 끝나면 지운다. --db 로 실제 디스크 위치를 지정할 수 있다.
+"""
+import argparse
+import os
+import tempfile
+import threading
+import time
+from typing import List
+
+from event_store import KIND_ANALYSIS, EventStore
+
+
+def _percentile(values: List[float], pct: float) -> float:
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(len(ordered) * pct / 100.0))]
+
+
+def _result(i: int) -> dict:
+    # Gemini 분석 결과 + source/location 과 비슷한 크기 (~250 bytes)
+    return {
+        'behaviorType': 'Normal' if i % 10 else 'Abnormal',
+        'description': '환자가 거실 소파에 앉아 텔레비전을 보고 있음. 특이 사항 없음.',
+        'warningMessage': '',
+        'timestamp': 1718000000000 + i,
+        'source': f'cam-{i % 4}',
+        'location': '거실',
+    }
+
+
+def main() -> None:
+    parser = argparse.ArgumentParser(description='이벤트 저장소 벤치마크')
+    parser.add_argument('--events', type=int, default=20000)
+    parser.add_argument('--readers', type=int, default=4)
+    parser.add_argument('--limit', type=int, default=100)
+    parser.add_argument('--db', help='DB 파일 경로 (기본: 임시 파일)')
+    args = parser.parse_args()
+
+    tmpdir = None
+    path = args.db
+    if not path:
+        tmpdir = tempfile.mkdtemp(prefix='memoria-bench-')
+        path = os.path.join(tmpdir, 'events.db')
+    store = EventStore(path, retention_sec=7 * 86400)
+
+    write_latencies: List[float] = []
+    read_latencies: List[float] = []
+    lock = threading.Lock()
+    done = threading.Event()
+
+    def writer() -> None:
+        for i in range(args.events):
+            started = time.perf_counter()
+            store.append(f'cam-{i % 4}', KIND_ANALYSIS, _result(i))
+            write_latencies.append((time.perf_counter() - started) * 1000.0)
+        done.set()
+
+    def reader(idx: int) -> None:
+        cursor = 0
+        local: List[float] = []
+        while not done.is_set():
+            started = time.perf_counter()
+            items = store.since(cursor, args.limit)
+            local.append((time.perf_counter() - started) * 1000.0)
+            # 따라잡으면 처음부터 다시 읽어 항상 limit 개를 읽도록 함
+            cursor = items[-1]['seq'] if len(items) == args.limit else 0
+        with lock:
+            read_latencies.extend(local)
+
+    readers = [threading.Thread(target=reader, args=(i,)) for i in range(args.readers)]
+    for t in readers:
+        t.start()
+    started = time.perf_counter()
+    writer()
+    elapsed = time.perf_counter() - started
+    for t in readers:
+        t.join()
+
+    print(f'DB: {path}')
+    print(f'쓰기: {args.events}건 / {elapsed:.2f}s = {args.events / elapsed:.0f} events/s '
+          f'(p50 {_percentile(write_latencies, 50):.3f}ms, p99 {_percentile(write_latencies, 99):.3f}ms, '
+          f'max {max(write_latencies):.3f}ms)')
+    if read_latencies:
+        print(f'읽기 (since, limit={args.limit}, 동시 {args.readers}개): {len(read_latencies)}회 '
+              f'p50 {_percentile(read_latencies, 50):.3f}ms, p99 {_percentile(read_latencies, 99):.3f}ms, '
+              f'max {max(read_latencies):.3f}ms')
+
+    if tmpdir:
+        for name in os.listdir(tmpdir):
+            os.remove(os.path.join(tmpdir, name))
+        os.rmdir(tmpdir)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,199 @@
+"""분석 결과/기기 이벤트를 디스크에 쌓는 추가 전용(append-only) 이벤트 저장소.
+
+SQLite WAL 모드를 쓴다.
+- 쓰기는 연결 하나를 잠금으로 보호해 한 번에 하나씩 (카메라 속도의 쓰기에는 충분)
+- 읽기는 스레드마다 따로 연결을 열어 쓰기와 동시에 진행 (WAL이라 서로 막지 않음)
+- seq 는 단조 증가하므로 클라이언트는 마지막으로 받은 seq 이후만 이어서 가져갈 수 있다
+- 보관 기간이 지난 이벤트는 지우되, source/kind 별 마지막 이벤트는 남겨 재시작 시 최신 상태를 복원한다
+- 멱등 키는 따로 idempotency_keys 에 두고 이벤트보다 훨씬 오래(key_retention_sec) 남긴다.
+  오래 오프라인이던 기기가 이미 받아들인 이벤트를 다시 보내도, 이벤트가 지워진 뒤라서 다시 들어가는 일이 없도록
+- store_id 는 DB를 처음 만들 때 한 번 정해져, DB를 새로 만들 때만 바뀐다 (seq 계열이 이어지는지 판단용)
+"""
+import json
+import sqlite3
+import threading
+import time
+import uuid
+from typing import Any, Dict, List, Optional, Tuple
+
+KIND_ANALYSIS = 'analysis'
+KIND_DEVICE = 'device'
+# 멱등 키 기본 보관 기간. 기기가 오프라인으로 재전송을 미룰 수 있는 최대 기간보다 길어야 함
+DEFAULT_KEY_RETENTION_SEC = 365 * 86400
+
+_SCHEMA = """
+CREATE TABLE IF NOT EXISTS events (
+    seq INTEGER PRIMARY KEY AUTOINCREMENT,
+    source TEXT NOT NULL,
+    kind TEXT NOT NULL,
+    received_at INTEGER NOT NULL,
+    idempotency_key TEXT UNIQUE,
+    payload TEXT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS events_received_at ON events (received_at);
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key TEXT PRIMARY KEY,
+    received_at INTEGER NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idempotency_keys_received_at ON idempotency_keys (received_at);
+CREATE TABLE IF NOT EXISTS meta (
+    key TEXT PRIMARY KEY,
+    value TEXT NOT NULL
+);
+"""
+
+
+class EventStore:
+
+    def __init__(self, path: str, retention_sec: float, prune_interval_sec: float = 60.0,
+                 key_retention_sec: Optional[float] = None):
+        self.path = path
+        self.retention_sec = retention_sec
+        self.prune_interval_sec = prune_interval_sec
+        # 멱등 키는 이벤트보다 먼저 지워지면 안 됨
+        self.key_retention_sec = max(retention_sec, DEFAULT_KEY_RETENTION_SEC if key_retention_sec is None
+                                     else key_retention_sec)
+        self._write_lock = threading.Lock()
+        self._writer = self._connect()
+        self._writer.executescript(_SCHEMA)
+        # 키 테이블이 생기기 전의 DB: 남아 있는 이벤트의 키를 옮겨 둠 (이미 있으면 그대로)
+        self._writer.execute('INSERT INTO idempotency_keys (key, received_at) '
+                             'SELECT idempotency_key, received_at FROM events WHERE idempotency_key IS NOT NULL '
+                             'ON CONFLICT(key) DO NOTHING')
+        self._writer.execute("INSERT OR IGNORE INTO meta (key, value) VALUES ('store_id', ?)", (uuid.uuid4().hex[:8],))
+        self.store_id = self._writer.execute("SELECT value FROM meta WHERE key = 'store_id'").fetchone()[0]
+        self._local = threading.local()
+        self._last_prune = 0.0
+        self.appended = 0
+        self.pruned = 0
+        self.keys_pruned = 0
+
+    def _connect(self) -> sqlite3.Connection:
+        conn = sqlite3.connect(self.path, check_same_thread=False, isolation_level=None)
+        conn.execute('PRAGMA journal_mode=WAL')
+        # WAL에서는 NORMAL이어도 전원이 꺼질 때 마지막 커밋 몇 개만 잃고 DB는 깨지지 않음
+        conn.execute('PRAGMA synchronous=NORMAL')
+        conn.execute('PRAGMA busy_timeout=5000')
+        return conn
+
+    def _reader(self) -> sqlite3.Connection:
+        conn = getattr(self._local, 'conn', None)
+        if conn is None:
+            conn = self._local.conn = self._connect()
+        return conn
+
+    def append(self, source: str, kind: str, payload: Dict[str, Any], received_at_ms: Optional[int] = None) -> int:
+        """이벤트 하나를 추가하고 seq 반환"""
+        return self.append_many(kind, [(source, None, payload)], received_at_ms)[0]
+
+    def append_many(self, kind: str, items: List[Tuple[str, Optional[str], Dict[str, Any]]],
+                    received_at_ms: Optional[int] = None) -> List[Optional[int]]:
+        """(source, 멱등 키, payload) 목록을 한 트랜잭션으로 추가.
+        같은 멱등 키를 이미 받았으면 (이벤트가 보관 기간으로 지워졌어도) 건너뛰고 그 자리에 None.
+        키 충돌만 건너뛰고 다른 제약 위반은 그대로 예외로 올려 트랜잭션 전체를 되돌림"""
+        at = int(time.time() * 1000) if received_at_ms is None else received_at_ms
+        rows = [(source, key, json.dumps(payload, ensure_ascii=False, separators=(',', ':')))
+                for source, key, payload in items]
+        seqs: List[Optional[int]] = []
+        with self._write_lock:
+            cur = self._writer.cursor()
+            cur.execute('BEGIN IMMEDIATE')
+            try:
+                for source, key, text in rows:
+                    if key is not None:
+                        cur.execute('INSERT INTO idempotency_keys (key, received_at) VALUES (?, ?) '
+                                    'ON CONFLICT(key) DO NOTHING', (key, at))
+                        if cur.rowcount != 1:
+                            seqs.append(None)
+                            continue
+                    cur.execute('INSERT INTO events (source, kind, received_at, idempotency_key, payload) '
+                                'VALUES (?, ?, ?, ?, ?) ON CONFLICT(idempotency_key) DO NOTHING',
+                                (source, kind, at, key, text))
+                    seqs.append(cur.lastrowid if cur.rowcount == 1 else None)
+                cur.execute('COMMIT')
+            except BaseException:
+                cur.execute('ROLLBACK')
+                raise
+            self.appended += sum(1 for seq in seqs if seq is not None)
+            self._maybe_prune(time.monotonic())
+        return seqs
+
+    def _maybe_prune(self, now: float) -> None:
+        # 쓰기 잠금 안에서 호출. 매 쓰기마다가 아니라 prune_interval_sec 마다 한 번
+        if now - self._last_prune < self.prune_interval_sec:
+            return
+        self._last_prune = now
+        now_ms = int(time.time() * 1000)
+        self.prune(now_ms - int(self.retention_sec * 1000), locked=True)
+        self.prune_keys(now_ms - int(self.key_retention_sec * 1000), locked=True)
+
+    def prune(self, before_ms: int, locked: bool = False) -> int:
+        """before_ms 이전 이벤트 삭제 (source/kind 별 마지막 이벤트는 유지). 지운 개수 반환"""
+        sql = ('DELETE FROM events WHERE received_at < ? AND seq NOT IN '
+               '(SELECT MAX(seq) FROM events GROUP BY source, kind)')
+        if locked:
+            removed = self._writer.execute(sql, (before_ms,)).rowcount
+        else:
+            with self._write_lock:
+                removed = self._writer.execute(sql, (before_ms,)).rowcount
+        self.pruned += removed
+        return removed
+
+    def prune_keys(self, before_ms: int, locked: bool = False) -> int:
+        """before_ms 이전에 받은 멱등 키 삭제. 지운 개수 반환"""
+        sql = 'DELETE FROM idempotency_keys WHERE received_at < ?'
+        if locked:
+            removed = self._writer.execute(sql, (before_ms,)).rowcount
+        else:
+            with self._write_lock:
+                removed = self._writer.execute(sql, (before_ms,)).rowcount
+        self.keys_pruned += removed
+        return removed
+
+    def since(self, seq: int, limit: int, source: Optional[str] = None, kind: Optional[str] = None) -> List[Dict[str, Any]]:
+        """seq 이후 이벤트를 오래된 순으로 최대 limit 개"""
+        sql = 'SELECT seq, source, kind, received_at, payload FROM events WHERE seq > ?'
+        args: List[Any] = [seq]
+        if source:
+            sql += ' AND source = ?'
+            args.append(source)
+        if kind:
+            sql += ' AND kind = ?'
+            args.append(kind)
+        sql += ' ORDER BY seq LIMIT ?'
+        args.append(limit)
+        return [
+            {'seq': row[0], 'source': row[1], 'kind': row[2], 'receivedAt': row[3], 'event': json.loads(row[4])}
+            for row in self._reader().execute(sql, args)
+        ]
+
+    def latest_by_source(self, kind: str) -> Dict[str, Tuple[int, Dict[str, Any]]]:
+        """source -> (seq, payload): 재시작 시 최신 상태 복원용"""
+        rows = self._reader().execute(
+            'SELECT seq, source, payload FROM events WHERE seq IN '
+            '(SELECT MAX(seq) FROM events WHERE kind = ? GROUP BY source)', (kind,))
+        return {row[1]: (row[0], json.loads(row[2])) for row in rows}
+
+    def last_seq(self) -> int:
+        row = self._reader().execute('SELECT COALESCE(MAX(seq), 0) FROM events').fetchone()
+        return int(row[0])
+
+    def count(self, kind: Optional[str] = None) -> int:
+        if kind:
+            row = self._reader().execute('SELECT COUNT(*) FROM events WHERE kind = ?', (kind,)).fetchone()
+        else:
+            row = self._reader().execute('SELECT COUNT(*) FROM events').fetchone()
+        return int(row[0])
+
+    def stats(self) -> Dict[str, Any]:
+        return {
+            'path': self.path,
+            'storeId': self.store_id,
+            'retentionSec': self.retention_sec,
+            'keyRetentionSec': self.key_retention_sec,
+            'lastSeq': self.last_seq(),
+            'rows': self.count(),
+            'appended': self.appended,
+            'pruned': self.pruned,
+            'keysPruned': self.keys_pruned,
+        }
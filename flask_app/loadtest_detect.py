@@ -0,0 +1,102 @@
+"""/detect 부하 테스트.
+
+동시 클라이언트 여러 개가 같은 JPEG를 계속 보내며 처리량과 지연 시간을 잰다.
+배치 효과를 비교하려면 서버를 두 번 띄워 각각 측정한다.
+
+    DETECT_BATCH_MAX=1 python app.py     # 배치 없음 (요청마다 추론)
+    DETECT_BATCH_MAX=8 python app.py     # 기본값: 최대 8장, 15ms 대기
+
+    python loadtest_detect.py --url http://127.0.0.1:5000 --image frame.jpg --clients 8 --seconds 30
+
+움직임 게이트가 같은 프레임을 캐시 결과로 돌려주지 않도록 클라이언트마다 다른 source를 쓰고,
+매 요청마다 source 뒤에 번호를 붙인다.
+"""
+import argparse
+import base64
+import json
+import statistics
+import threading
+import time
+import urllib.request
+from typing import Any, Dict, List
+
+
+def _post(url: str, body: bytes, content_type: str) -> Dict[str, Any]:
+    req = urllib.request.Request(url, data=body, method='POST', headers={'Content-Type': content_type})
+    with urllib.request.urlopen(req, timeout=60) as res:
+        return json.loads(res.read().decode('utf-8'))
+
+
+def _client(idx: int, args: argparse.Namespace, image: bytes, deadline: float,
+            latencies: List[float], timings: List[Dict[str, Any]], errors: List[str], lock: threading.Lock) -> None:
+    b64 = base64.b64encode(image).decode('ascii')
+    n = 0
+    while time.perf_counter() < deadline:
+        source = f'load-{idx}-{n}'
+        n += 1
+        started = time.perf_counter()
+        try:
+            if args.mode == 'raw':
+                data = _post(f'{args.url}/detect?source={source}', image, 'image/jpeg')
+            else:
+                body = json.dumps({'image': b64, 'source': source}).encode('utf-8')
+                data = _post(f'{args.url}/detect', body, 'application/json')
+        except Exception as e:  # 연결 오류 등은 집계만 하고 계속
+            with lock:
+                errors.append(str(e))
+            continue
+        elapsed = (time.perf_counter() - started) * 1000.0
+        with lock:
+            if 'error' in data:
+                errors.append(data['error'])
+            else:
+                latencies.append(elapsed)
+                timings.append(data.get('timings', {}))
+
+
+def _percentile(values: List[float], pct: float) -> float:
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(len(ordered) * pct / 100.0))]
+
+
+def main() -> None:
+    parser = argparse.ArgumentParser(description='/detect 부하 테스트')
+    parser.add_argument('--url', default='http://127.0.0.1:5000')
+    parser.add_argument('--image', required=True, help='보낼 JPEG 파일')
+    parser.add_argument('--clients', type=int, default=8)
+    parser.add_argument('--seconds', type=float, default=30)
+    parser.add_argument('--mode', choices=['raw', 'base64'], default='raw')
+    args = parser.parse_args()
+
+    with open(args.image, 'rb') as f:
+        image = f.read()
+
+    latencies: List[float] = []
+    timings: List[Dict[str, Any]] = []
+    errors: List[str] = []
+    lock = threading.Lock()
+    deadline = time.perf_counter() + args.seconds
+    threads = [threading.Thread(target=_client, args=(i, args, image, deadline, latencies, timings, errors, lock))
+               for i in range(args.clients)]
+    started = time.perf_counter()
+    for t in threads:
+        t.start()
+    for t in threads:
+        t.join()
+    elapsed = time.perf_counter() - started
+
+    print(f'clients={args.clients} mode={args.mode} image={len(image)} bytes duration={elapsed:.1f}s')
+    print(f'requests ok={len(latencies)} errors={len(errors)} throughput={len(latencies) / elapsed:.2f} req/s')
+    if latencies:
+        print(f'latency ms: p50={_percentile(latencies, 50):.1f} p95={_percentile(latencies, 95):.1f} '
+              f'p99={_percentile(latencies, 99):.1f} max={max(latencies):.1f}')
+    for key in ('decodeMs', 'queueWaitMs', 'inferenceMs', 'batchSize'):
+        values = [t[key] for t in timings if key in t]
+        if values:
+            print(f'server {key}: mean={statistics.mean(values):.1f} p95={_percentile(values, 95):.1f}')
+    if errors:
+        print('first error:', errors[0])
+
+
+if __name__ == '__main__':
+    main()
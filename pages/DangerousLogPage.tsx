@@ -6,27 +6,13 @@ import { useBehaviorLogs } from '../contexts/BehaviorLogContext';
 import { BehaviorType, CategoryActivityData } from '../types';
 import { BarChart, Bar, XAxis, YAxis, CartesianGrid, Tooltip, Legend, ResponsiveContainer } from 'recharts';
 import { ROUTES } from '../constants';
-import { addAnalysisResultListener } from '../plugins/ForegroundServicePlugin';
 
 const DangerousLogPage: React.FC = () => {
   const navigate = useNavigate();
-  const { getLogsByType, getBehaviorCategoryActivity, addLog } = useBehaviorLogs();
+  const { getLogsByType, getBehaviorCategoryActivity } = useBehaviorLogs();
   const dangerousLogs = getLogsByType(BehaviorType.DANGEROUS);
   const categoryData: CategoryActivityData[] = getBehaviorCategoryActivity(BehaviorType.DANGEROUS);
 
-  React.useEffect(() => {
-    const remove = addAnalysisResultListener((data: any) => {
-      if (data.behaviorType && data.behaviorType === 'Dangerous') {
-        addLog({
-          type: data.behaviorType,
-          description: data.description,
-          location: 'ESP32',
-        });
-      }
-    });
-    return () => { remove.remove(); };
-  }, [addLog]);
-
   const formatXAxisTick = (tick: string) => {
     const maxLength = 10; 
     if (tick.length > maxLength) {
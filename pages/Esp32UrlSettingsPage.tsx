@@ -20,6 +20,8 @@ const Esp32UrlSettingsPage: React.FC = () => {
   const [isSaving, setIsSaving] = useState(false);
   const [saveSuccess, setSaveSuccess] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [nativeInference, setNativeInference] = useState(false);
+  const [savedNativeInference, setSavedNativeInference] = useState(false);
 
   useEffect(() => {
     if (!isLoadingConfig) {
@@ -28,6 +30,15 @@ const Esp32UrlSettingsPage: React.FC = () => {
     }
   }, [currentEsp32Url, currentFlaskUrl, isLoadingConfig]);
 
+  useEffect(() => {
+    ForegroundService.getNativeInferenceStatus()
+      .then(status => {
+        setNativeInference(status.enabled);
+        setSavedNativeInference(status.enabled);
+      })
+      .catch(() => {}); // 웹 환경에서는 네이티브 플러그인 없음
+  }, []);
+
   const isValidHttpUrl = (string: string) => {
     let url;
     try {
@@ -61,6 +72,12 @@ const Esp32UrlSettingsPage: React.FC = () => {
     } catch (e) {
       console.error('ForegroundService setFlaskUrl error:', e);
     }
+    try {
+      await ForegroundService.configureNativeInference({ enabled: nativeInference, esp32Url: esp32UrlInput.trim() });
+      setSavedNativeInference(nativeInference);
+    } catch (e) {
+      console.error('ForegroundService configureNativeInference error:', e);
+    }
     await new Promise(resolve => setTimeout(resolve, 700));
     setIsSaving(false);
     setSaveSuccess(true);
@@ -114,12 +131,21 @@ const Esp32UrlSettingsPage: React.FC = () => {
               disabled={isSaving}
             />
           </div>
+          <label className="flex items-center gap-2 text-sm text-gray-700">
+            <input
+              type="checkbox"
+              checked={nativeInference}
+              onChange={(e) => setNativeInference(e.target.checked)}
+              disabled={isSaving}
+            />
+            기기에서 직접 분석 (앱을 닫아도, Flask 서버 없이 ESP32 영상 분석)
+          </label>
           {error && (
             <p className="text-sm text-red-600" role="alert">{error}</p>
           )}
           <button
             onClick={handleSave}
-            disabled={isSaving || isLoadingConfig || (esp32UrlInput === currentEsp32Url && flaskUrlInput === currentFlaskUrl)}
+            disabled={isSaving || isLoadingConfig || (esp32UrlInput === currentEsp32Url && flaskUrlInput === currentFlaskUrl && nativeInference === savedNativeInference)}
             className="w-full bg-sky-500 hover:bg-sky-600 text-white font-semibold py-3 px-4 rounded-lg shadow-md hover:shadow-lg transition-all duration-200 ease-in-out disabled:opacity-60 disabled:cursor-not-allowed flex items-center justify-center"
             aria-live="polite"
           >
@@ -138,7 +164,7 @@ const Esp32UrlSettingsPage: React.FC = () => {
           {saveSuccess && (
             <p className="text-sm text-green-600 text-center mt-2" role="status">ESP32/Flask 서버 주소가 성공적으로 저장되었습니다!</p>
           )}
-          {!isSaving && !saveSuccess && !error && esp32UrlInput === currentEsp32Url && flaskUrlInput === currentFlaskUrl && (
+          {!isSaving && !saveSuccess && !error && esp32UrlInput === currentEsp32Url && flaskUrlInput === currentFlaskUrl && nativeInference === savedNativeInference && (
              <p className="text-sm text-gray-500 text-center mt-2">현재 저장된 주소와 동일합니다.</p>
           )}
         </div>
@@ -1,6 +1,140 @@
-import { registerPlugin } from '@capacitor/core';
+import { registerPlugin, PluginListenerHandle } from '@capacitor/core';
 import { BehaviorLogEntry, BehaviorType } from '../types';
 
+export interface PollingConfig {
+  minIntervalMs?: number;
+  baseIntervalMs?: number;
+  maxIntervalMs?: number;
+  alertHoldMs?: number; // 이상/위험 감지 후 최소 간격을 유지하는 시간
+}
+
+export interface PollingStatus {
+  streamConnected: boolean; // SSE 연결 중이면 폴링은 쉬고 있음
+  polling: boolean;
+  currentIntervalMs: number;
+  reason: 'alert' | 'changed' | 'unchanged' | 'failure' | 'power_save' | 'idle' | 'default';
+  powerSaveMode: boolean;
+  deviceIdle: boolean;
+  lastPollAt: number;
+  minIntervalMs: number;
+  baseIntervalMs: number;
+  maxIntervalMs: number;
+  alertHoldMs: number;
+  sourceCount: number; // 결과를 받은 카메라/방 수
+  changesCursor: number; // 서버 /changes 커서 (마지막으로 받은 변경 번호)
+}
+
+export interface AlertConfig {
+  dedupeWindowMs?: number; // 같은 (유형, 설명, 위치) 알림을 다시 보내지 않는 시간
+  escalationIntervalMs?: number; // 위험 상태가 계속되면 이 간격마다 재알림 (최소 1000)
+  defaultLocation?: string; // 위치/카메라 정보가 없는 결과를 기록할 위치 (기본 DEFAULT_ANALYSIS_LOCATION)
+}
+
+export interface AlertStatus {
+  dedupeWindowMs: number;
+  escalationIntervalMs: number;
+  defaultLocation: string;
+  activeDangerCount: number; // 위험 상태가 진행 중인 위치 수
+  sent: number;
+  suppressed: number; // 중복으로 억제된 알림 수
+  escalated: number; // 위험 지속으로 다시 보낸 알림 수
+}
+
+export interface SyncStatus {
+  pending: number; // 서버로 아직 올리지 못한 이벤트 수 (기기에 보관 중)
+  pendingBytes: number;
+  evicted: number; // 보관 한도를 넘어 오래된 순으로 버린 수
+  uploaded: number;
+  batches: number;
+  failedBatches: number;
+  dropped: number; // 반복 거부되어 버린 수
+  compressedBytesSent: number;
+  lastUploadAt: number;
+  lastError: string;
+}
+
+export interface MetricsHistogram {
+  count: number;
+  sumMs: number;
+  maxMs: number;
+  p50Ms: number; // 버킷 경계로 어림한 값
+  p95Ms: number;
+  p99Ms: number;
+  boundsMs: number[];
+  buckets: number[]; // 칸별 개수 (누적 아님, 마지막 칸은 +Inf)
+}
+
+export interface Metrics {
+  uptimeMs: number;
+  counters: Record<string, number>; // 예: poll_http_status_200, results_duplicate_suppressed
+  gauges: Record<string, number>; // 예: log_store_rows, outbox_pending (-1은 계산 실패)
+  histograms: Record<string, MetricsHistogram>; // 예: poll_latency_ms, native_detect_ms
+}
+
+export interface NativeInferenceConfig {
+  enabled?: boolean; // ESP32 스트림을 서비스에서 직접 읽어 기기에서 분석
+  esp32Url?: string; // ESP32 웹 서버 주소 (스트림은 81번 포트 /stream)
+  intervalMs?: number; // 분석 간격, 그 사이 프레임은 디코딩하지 않고 버림
+  minScore?: number; // 사람 검출 최소 신뢰도 (0~1)
+  motionGate?: boolean; // 장면 변화가 없으면 추론 생략 (기본 켜짐)
+  motionChangeRatio?: number; // 바뀐 칸 비율이 이 값 이상이면 분석 (0~1)
+  motionHeartbeatMs?: number; // 변화가 없어도 이 간격마다 한 번은 분석
+  location?: string; // 이 카메라가 있는 방 이름 (알림/로그 위치, 기본 '거실')
+}
+
+export interface NativeInferenceStatus {
+  enabled: boolean;
+  esp32Url: string;
+  intervalMs: number;
+  location: string;
+  running: boolean;
+  receivedFrames: number;
+  analyzedFrames: number;
+  droppedFrames: number; // 분석이 따라가지 못해 최신 프레임으로 대체된 수
+  streamFps: number;
+  streamBytesPerSecond: number;
+  motionGateEnabled: boolean;
+  motionAnalyzed: number; // 게이트를 통과해 추론한 프레임 수
+  motionSkipped: number; // 변화가 없어 추론을 건너뛴 프레임 수
+  motionLastChange: number;
+}
+
+export interface NativeLogEntry {
+  id: number; // 증가하는 로그 id (동기화 커서)
+  type: string;
+  description: string;
+  location: string;
+  timestamp: string;
+  timestampMs: number;
+}
+
+export interface NativeLogPage {
+  logs: NativeLogEntry[];
+  nextSinceId: number; // 다음 getLocalLogs 호출에 넘길 sinceId
+  hasMore: boolean;
+}
+
+export interface NativeLogSummary {
+  count: number;
+  firstId: number;
+  lastId: number;
+  oldestTimestampMs: number;
+  newestTimestampMs: number;
+  byType: { [type: string]: number };
+}
+
+// 'analysisResults' 이벤트로 묶여 오는 개별 이벤트
+export interface NativeAnalysisEvent {
+  id: number; // 네이티브 로그 id (getLocalLogs 커서와 같은 값), 중복 제거 기준
+  firstId: number; // 연속된 동일 이벤트가 합쳐졌을 때 첫 id
+  behaviorType: string;
+  description: string;
+  timestamp: string;
+  location: string;
+  repeatCount: number;
+  warningMessage?: string;
+}
+
 export interface ForegroundServicePlugin {
   startForegroundService(logData?: {
     behaviorType?: string;
@@ -10,14 +144,27 @@ export interface ForegroundServicePlugin {
   }): Promise<void>;
   stopForegroundService(): Promise<void>;
   setFlaskUrl(options: { flask_url: string }): Promise<void>;
-  getLocalLogs(): Promise<{ logs: string[] }>;
-  clearLocalLogs(): Promise<void>;
-  addListener(eventName: string, listenerFunc: (data: any) => void): Promise<void>;
+  configurePolling(options: PollingConfig): Promise<void>;
+  getPollingStatus(): Promise<PollingStatus>;
+  configureAlerts(options: AlertConfig): Promise<void>;
+  getAlertStatus(): Promise<AlertStatus>;
+  getSyncStatus(): Promise<SyncStatus>;
+  getMetrics(): Promise<Metrics>;
+  configureNativeInference(options: NativeInferenceConfig): Promise<void>;
+  getNativeInferenceStatus(): Promise<NativeInferenceStatus>;
+  getLocalLogs(options?: { sinceId?: number; limit?: number }): Promise<NativeLogPage>;
+  getLogCount(options?: { sinceId?: number }): Promise<{ count: number }>;
+  getLogSummary(): Promise<NativeLogSummary>;
+  // beforeId 미지정 시 전체 삭제
+  clearLocalLogs(options?: { beforeId?: number }): Promise<{ removed?: number }>;
+  // 리스너 등록 후 호출하면 그동안 대기열에 쌓인 이벤트를 바로 전달받음
+  flushAnalysisResults(): Promise<void>;
+  addListener(eventName: string, listenerFunc: (data: any) => void): Promise<PluginListenerHandle>;
 }
 
 const ForegroundService = registerPlugin<ForegroundServicePlugin>('ForegroundServicePlugin');
 
 export default ForegroundService;
 
-export const addAnalysisResultListener = (callback: (data: any) => void) =>
-  ForegroundService.addListener('analysisResult', callback);
+export const addAnalysisResultsListener = (callback: (data: { events: NativeAnalysisEvent[] }) => void) =>
+  ForegroundService.addListener('analysisResults', callback);
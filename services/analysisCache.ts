@@ -0,0 +1,269 @@
+// Gemini 행동 분석 결과 캐시
+// - 키: 프레임의 지각 해시(dHash 64비트) + 위치. 해시가 거의 같으면(해밍 거리 maxDistance 이하) 같은 장면으로 봄
+// - TTL이 지나거나 maxEntries를 넘으면 오래 안 쓴 것부터 제거 (LRU)
+// - 같은 키로 이미 요청 중이면 새로 호출하지 않고 그 결과를 같이 기다림 (요청 합치기)
+// - 실제 호출은 동시 실행 수 제한 + 토큰 버킷(분당 호출 수)으로 API 할당량을 넘지 않게 함
+
+export interface AnalysisCacheOptions {
+  ttlMs: number;
+  maxEntries: number;
+  maxDistance: number; // 같은 장면으로 볼 최대 해밍 거리 (0~64)
+  maxConcurrent: number;
+  ratePerMinute: number;
+  burst: number;
+}
+
+export interface AnalysisCacheStats {
+  lookups: number;
+  hits: number; // 해시가 같은 항목
+  nearHits: number; // 해시가 거의 같은 항목
+  coalesced: number; // 진행 중인 같은 요청에 합쳐진 수
+  apiCalls: number;
+  savedCalls: number; // hits + nearHits + coalesced + 대기 중에 캐시가 채워진 수
+  hitRate: number; // savedCalls / lookups
+  quotaWaits: number; // 토큰이 없어 기다린 횟수
+  quotaWaitMs: number;
+  entries: number;
+  inFlight: number;
+}
+
+export class TokenBucket {
+  private tokens: number;
+  private lastRefill = Date.now();
+
+  constructor(private readonly capacity: number, private readonly refillPerSec: number) {
+    this.tokens = capacity;
+  }
+
+  /** 토큰 하나를 쓸 때까지 기다림. 기다린 시간(ms) 반환 */
+  async take(): Promise<number> {
+    let waited = 0;
+    for (;;) {
+      const now = Date.now();
+      this.tokens = Math.min(this.capacity, this.tokens + ((now - this.lastRefill) / 1000) * this.refillPerSec);
+      this.lastRefill = now;
+      if (this.tokens >= 1) {
+        this.tokens -= 1;
+        return waited;
+      }
+      const waitMs = Math.ceil(((1 - this.tokens) / this.refillPerSec) * 1000);
+      await new Promise(resolve => setTimeout(resolve, waitMs));
+      waited += waitMs;
+    }
+  }
+}
+
+export class ConcurrencyLimiter {
+  private active = 0;
+  private waiting: (() => void)[] = [];
+
+  constructor(private readonly max: number) {}
+
+  async run<T>(task: () => Promise<T>): Promise<T> {
+    if (this.active >= this.max) {
+      await new Promise<void>(resolve => this.waiting.push(resolve));
+    } else {
+      this.active++;
+    }
+    try {
+      return await task();
+    } finally {
+      const next = this.waiting.shift();
+      if (next) {
+        next(); // 자리를 그대로 넘김
+      } else {
+        this.active--;
+      }
+    }
+  }
+}
+
+interface CacheEntry<T> {
+  hash: string;
+  location: string;
+  value: T;
+  expiresAt: number;
+}
+
+const popcount32 = (n: number) => {
+  n = n - ((n >>> 1) & 0x55555555);
+  n = (n & 0x33333333) + ((n >>> 2) & 0x33333333);
+  return Math.imul((n + (n >>> 4)) & 0x0f0f0f0f, 0x01010101) >>> 24;
+};
+
+/** 16자리 16진수 해시 사이의 해밍 거리 */
+export const hammingDistance = (a: string, b: string): number =>
+  popcount32(parseInt(a.slice(0, 8), 16) ^ parseInt(b.slice(0, 8), 16)) +
+  popcount32(parseInt(a.slice(8, 16), 16) ^ parseInt(b.slice(8, 16), 16));
+
+let hashCanvas: HTMLCanvasElement | null = null;
+let hashContext: CanvasRenderingContext2D | null = null;
+
+/**
+ * base64 JPEG의 dHash(9x8 흑백으로 줄인 뒤 가로로 이웃한 밝기 비교, 64비트).
+ * 조명 노이즈/재인코딩 정도의 차이에는 거의 그대로이고, 사람이 움직이면 여러 비트가 바뀜.
+ * 브라우저가 아니라 계산할 수 없으면 null
+ */
+export const computePerceptualHash = async (base64Jpeg: string): Promise<string | null> => {
+  if (typeof document === 'undefined' || typeof createImageBitmap !== 'function') return null;
+  try {
+    const bytes = Uint8Array.from(atob(base64Jpeg), c => c.charCodeAt(0));
+    const bitmap = await createImageBitmap(new Blob([bytes], { type: 'image/jpeg' }), {
+      resizeWidth: 9, resizeHeight: 8, resizeQuality: 'low',
+    });
+    if (!hashCanvas) {
+      hashCanvas = document.createElement('canvas');
+      hashCanvas.width = 9;
+      hashCanvas.height = 8;
+      hashContext = hashCanvas.getContext('2d', { willReadFrequently: true });
+    }
+    if (!hashContext) return null;
+    hashContext.drawImage(bitmap, 0, 0, 9, 8);
+    bitmap.close();
+    const rgba = hashContext.getImageData(0, 0, 9, 8).data;
+    const luma = new Array<number>(72);
+    for (let i = 0, p = 0; i < 72; i++, p += 4) {
+      luma[i] = rgba[p] * 77 + rgba[p + 1] * 150 + rgba[p + 2] * 29;
+    }
+    const words = [0, 0];
+    for (let row = 0; row < 8; row++) {
+      for (let col = 0; col < 8; col++) {
+        const bit = row * 8 + col;
+        if (luma[row * 9 + col] < luma[row * 9 + col + 1]) {
+          words[bit >> 5] |= 1 << (bit & 31);
+        }
+      }
+    }
+    return words.map(w => (w >>> 0).toString(16).padStart(8, '0')).join('');
+  } catch (error) {
+    console.warn("프레임 해시 계산 실패:", error);
+    return null;
+  }
+};
+
+export class AnalysisCache<T> {
+  private entries = new Map<string, CacheEntry<T>>(); // 삽입 순서 = 최근 사용 순서
+  private inFlight = new Map<string, Promise<T>>();
+  private readonly limiter: ConcurrencyLimiter;
+  private readonly bucket: TokenBucket;
+  private counters = { lookups: 0, hits: 0, nearHits: 0, coalesced: 0, apiCalls: 0, lateHits: 0, quotaWaits: 0, quotaWaitMs: 0 };
+
+  constructor(private readonly options: AnalysisCacheOptions) {
+    this.limiter = new ConcurrencyLimiter(options.maxConcurrent);
+    this.bucket = new TokenBucket(options.burst, options.ratePerMinute / 60);
+  }
+
+  /**
+   * 캐시/진행 중 요청에서 찾고, 없으면 할당량 안에서 compute 호출.
+   * hash가 null이면 캐시 없이 할당량 제한만 적용. shouldCache가 false인 결과(오류 응답 등)는 저장하지 않음
+   */
+  async getOrCompute(hash: string | null, location: string, compute: () => Promise<T>, shouldCache: (value: T) => boolean): Promise<T> {
+    this.counters.lookups++;
+    if (!hash) {
+      return this.callLimited(null, location, compute);
+    }
+    const cached = this.lookup(hash, location, true);
+    if (cached !== undefined) return cached;
+
+    const key = `${location}|${hash}`;
+    const pending = this.inFlight.get(key);
+    if (pending) {
+      this.counters.coalesced++;
+      return pending;
+    }
+    const request = this.callLimited(hash, location, compute)
+      .then(value => {
+        if (shouldCache(value)) this.store(hash, location, value);
+        return value;
+      })
+      .finally(() => this.inFlight.delete(key));
+    this.inFlight.set(key, request);
+    return request;
+  }
+
+  stats(): AnalysisCacheStats {
+    const c = this.counters;
+    const savedCalls = c.hits + c.nearHits + c.coalesced + c.lateHits;
+    return {
+      lookups: c.lookups,
+      hits: c.hits,
+      nearHits: c.nearHits,
+      coalesced: c.coalesced,
+      apiCalls: c.apiCalls,
+      savedCalls,
+      hitRate: c.lookups ? savedCalls / c.lookups : 0,
+      quotaWaits: c.quotaWaits,
+      quotaWaitMs: c.quotaWaitMs,
+      entries: this.entries.size,
+      inFlight: this.inFlight.size,
+    };
+  }
+
+  clear() {
+    this.entries.clear();
+  }
+
+  private async callLimited(hash: string | null, location: string, compute: () => Promise<T>): Promise<T> {
+    return this.limiter.run(async () => {
+      const waited = await this.bucket.take();
+      if (waited > 0) {
+        this.counters.quotaWaits++;
+        this.counters.quotaWaitMs += waited;
+      }
+      if (hash) {
+        // 기다리는 동안 비슷한 장면의 결과가 들어왔으면 호출하지 않음 (토큰은 이미 썼음)
+        const cached = this.lookup(hash, location, false);
+        if (cached !== undefined) {
+          this.counters.lateHits++;
+          return cached;
+        }
+      }
+      this.counters.apiCalls++;
+      return compute();
+    });
+  }
+
+  private lookup(hash: string, location: string, count: boolean): T | undefined {
+    const now = Date.now();
+    const key = `${location}|${hash}`;
+    const exact = this.entries.get(key);
+    if (exact && exact.expiresAt > now) {
+      if (count) this.counters.hits++;
+      this.touch(key, exact);
+      return exact.value;
+    }
+    let best: [string, CacheEntry<T>] | null = null;
+    let bestDistance = this.options.maxDistance + 1;
+    for (const [entryKey, entry] of this.entries) {
+      if (entry.expiresAt <= now) {
+        this.entries.delete(entryKey);
+        continue;
+      }
+      if (entry.location !== location) continue;
+      const distance = hammingDistance(hash, entry.hash);
+      if (distance < bestDistance) {
+        best = [entryKey, entry];
+        bestDistance = distance;
+      }
+    }
+    if (!best) return undefined;
+    if (count) this.counters.nearHits++;
+    this.touch(best[0], best[1]);
+    return best[1].value;
+  }
+
+  private touch(key: string, entry: CacheEntry<T>) {
+    this.entries.delete(key);
+    this.entries.set(key, entry);
+  }
+
+  private store(hash: string, location: string, value: T) {
+    const key = `${location}|${hash}`;
+    this.entries.delete(key);
+    this.entries.set(key, { hash, location, value, expiresAt: Date.now() + this.options.ttlMs });
+    while (this.entries.size > this.options.maxEntries) {
+      const oldest = this.entries.keys().next().value as string;
+      this.entries.delete(oldest);
+    }
+  }
+}
@@ -0,0 +1,258 @@
+// 분석용 프레임 전처리: 관심 영역(ROI) 자르기 → 모델 입력 크기로 축소 → JPEG 인코딩
+// - 캔버스는 한 번만 만들어 재사용 (캡처마다 <canvas>를 새로 만들지 않음)
+// - OffscreenCanvas를 쓸 수 있으면 인코딩을 워커 하나에서 처리해 메인 스레드를 막지 않음
+// - 결과는 Blob(바이너리)으로 주고, base64가 꼭 필요한 곳(Gemini inline_data)에서만 변환
+
+export interface RegionOfInterest {
+  // 원본 프레임 대비 비율 (0~1)
+  x: number;
+  y: number;
+  width: number;
+  height: number;
+}
+
+export interface FramePreprocessOptions {
+  maxEdge: number; // 긴 변 최대 픽셀 (모델 입력 크기)
+  quality: number; // JPEG 품질 (0~1)
+  roi?: RegionOfInterest | null;
+}
+
+export interface PreprocessedFrame {
+  blob: Blob;
+  width: number;
+  height: number;
+  // 전처리된 프레임 좌표 → 원본 좌표: x * scaleX + offsetX
+  scaleX: number;
+  scaleY: number;
+  offsetX: number;
+  offsetY: number;
+  encodeMs: number;
+}
+
+export interface FramePipelineStats {
+  frames: number;
+  lastBytes: number;
+  avgBytes: number;
+  avgEncodeMs: number;
+  avgAnalysisMs: number;
+  // 전처리 전 방식(원본 해상도, 품질 0.8)으로 한 번 잰 값. 아직 재지 않았으면 0
+  baselineBytes: number;
+  baselineEncodeMs: number;
+}
+
+// Gemini는 긴 변 768px 안쪽이면 타일 하나로 처리하므로 그 이상은 토큰/전송만 늘어남
+export const ANALYSIS_FRAME_OPTIONS: FramePreprocessOptions = { maxEdge: 768, quality: 0.7 };
+// /detect(YOLO 640 입력)용
+export const DETECT_FRAME_OPTIONS: FramePreprocessOptions = { maxEdge: 640, quality: 0.5 };
+const BASELINE_QUALITY = 0.8;
+
+const ROI_STORAGE_PREFIX = 'frameRoi:';
+
+export const loadRoi = (room: string): RegionOfInterest | null => {
+  try {
+    const saved = localStorage.getItem(ROI_STORAGE_PREFIX + room);
+    return saved ? JSON.parse(saved) : null;
+  } catch {
+    return null;
+  }
+};
+
+export const saveRoi = (room: string, roi: RegionOfInterest | null) => {
+  if (roi) {
+    localStorage.setItem(ROI_STORAGE_PREFIX + room, JSON.stringify(roi));
+  } else {
+    localStorage.removeItem(ROI_STORAGE_PREFIX + room);
+  }
+};
+
+const clamp01 = (value: number) => Math.min(1, Math.max(0, value));
+
+/** 원본 크기 기준 자를 영역과 출력 크기 계산 */
+const computeGeometry = (sourceWidth: number, sourceHeight: number, options: FramePreprocessOptions) => {
+  const roi = options.roi;
+  const sx = roi ? Math.round(clamp01(roi.x) * sourceWidth) : 0;
+  const sy = roi ? Math.round(clamp01(roi.y) * sourceHeight) : 0;
+  const sw = roi ? Math.max(1, Math.min(sourceWidth - sx, Math.round(clamp01(roi.width) * sourceWidth))) : sourceWidth;
+  const sh = roi ? Math.max(1, Math.min(sourceHeight - sy, Math.round(clamp01(roi.height) * sourceHeight))) : sourceHeight;
+  const scale = Math.min(1, options.maxEdge / Math.max(sw, sh));
+  const width = Math.max(1, Math.round(sw * scale));
+  const height = Math.max(1, Math.round(sh * scale));
+  return { sx, sy, sw, sh, width, height };
+};
+
+// 워커: 받은 ImageBitmap을 재사용하는 OffscreenCanvas에 그려 JPEG Blob으로 돌려줌
+const WORKER_SOURCE = `
+let canvas = null;
+let ctx = null;
+self.onmessage = async (event) => {
+  const { id, bitmap, quality } = event.data;
+  try {
+    if (!canvas) {
+      canvas = new OffscreenCanvas(bitmap.width, bitmap.height);
+      ctx = canvas.getContext('2d');
+    }
+    if (canvas.width !== bitmap.width || canvas.height !== bitmap.height) {
+      canvas.width = bitmap.width;
+      canvas.height = bitmap.height;
+    }
+    ctx.drawImage(bitmap, 0, 0);
+    bitmap.close();
+    const blob = await canvas.convertToBlob({ type: 'image/jpeg', quality });
+    self.postMessage({ id, blob });
+  } catch (error) {
+    self.postMessage({ id, error: String(error) });
+  }
+};
+`;
+
+const canUseWorker = () =>
+  typeof Worker !== 'undefined' && typeof OffscreenCanvas !== 'undefined' && typeof createImageBitmap === 'function';
+
+export class FramePreprocessor {
+  private canvas: HTMLCanvasElement | null = null;
+  private context: CanvasRenderingContext2D | null = null;
+  private worker: Worker | null = null;
+  private workerUrl: string | null = null;
+  private nextRequestId = 1;
+  private pending = new Map<number, { resolve: (blob: Blob) => void; reject: (error: Error) => void }>();
+  private stats: FramePipelineStats = {
+    frames: 0, lastBytes: 0, avgBytes: 0, avgEncodeMs: 0, avgAnalysisMs: 0, baselineBytes: 0, baselineEncodeMs: 0,
+  };
+  private analysisSamples = 0;
+
+  async process(
+    source: CanvasImageSource,
+    sourceWidth: number,
+    sourceHeight: number,
+    options: FramePreprocessOptions,
+  ): Promise<PreprocessedFrame> {
+    const started = performance.now();
+    const { sx, sy, sw, sh, width, height } = computeGeometry(sourceWidth, sourceHeight, options);
+    let blob: Blob | null = null;
+    if (canUseWorker()) {
+      try {
+        // 자르기/축소는 createImageBitmap이 처리하고, 인코딩만 워커에서
+        const bitmap = await createImageBitmap(source as ImageBitmapSource, sx, sy, sw, sh, {
+          resizeWidth: width, resizeHeight: height, resizeQuality: 'medium',
+        });
+        blob = await this.encodeInWorker(bitmap, options.quality);
+      } catch (error) {
+        console.warn('워커 인코딩 실패, 캔버스로 처리:', error);
+        this.disposeWorker();
+      }
+    }
+    if (!blob) {
+      blob = await this.encodeOnCanvas(source, sx, sy, sw, sh, width, height, options.quality);
+    }
+    const encodeMs = performance.now() - started;
+    this.recordFrame(blob.size, encodeMs);
+    return {
+      blob, width, height,
+      scaleX: sw / width, scaleY: sh / height,
+      offsetX: sx, offsetY: sy,
+      encodeMs,
+    };
+  }
+
+  /** 전처리 전 방식(원본 해상도, 품질 0.8, base64)의 크기/시간을 한 번 재서 비교 기준으로 보관 */
+  measureBaseline(source: CanvasImageSource, sourceWidth: number, sourceHeight: number) {
+    const started = performance.now();
+    const context = this.ensureCanvas(sourceWidth, sourceHeight);
+    if (!context || !this.canvas) return;
+    context.drawImage(source, 0, 0, sourceWidth, sourceHeight);
+    const base64 = this.canvas.toDataURL('image/jpeg', BASELINE_QUALITY).split(',')[1];
+    this.stats.baselineEncodeMs = performance.now() - started;
+    this.stats.baselineBytes = base64.length;
+  }
+
+  /** 캡처부터 분석 결과까지 걸린 시간 기록 */
+  recordAnalysisLatency(ms: number) {
+    this.analysisSamples++;
+    this.stats.avgAnalysisMs += (ms - this.stats.avgAnalysisMs) / this.analysisSamples;
+  }
+
+  getStats(): FramePipelineStats {
+    return { ...this.stats };
+  }
+
+  dispose() {
+    this.disposeWorker();
+    this.canvas = null;
+    this.context = null;
+  }
+
+  private recordFrame(bytes: number, encodeMs: number) {
+    const s = this.stats;
+    s.frames++;
+    s.lastBytes = bytes;
+    s.avgBytes += (bytes - s.avgBytes) / s.frames;
+    s.avgEncodeMs += (encodeMs - s.avgEncodeMs) / s.frames;
+  }
+
+  private ensureCanvas(width: number, height: number): CanvasRenderingContext2D | null {
+    if (!this.canvas) {
+      this.canvas = document.createElement('canvas');
+      this.context = this.canvas.getContext('2d');
+    }
+    if (this.canvas.width !== width || this.canvas.height !== height) {
+      this.canvas.width = width;
+      this.canvas.height = height;
+    }
+    return this.context;
+  }
+
+  private encodeOnCanvas(
+    source: CanvasImageSource, sx: number, sy: number, sw: number, sh: number,
+    width: number, height: number, quality: number,
+  ): Promise<Blob> {
+    const context = this.ensureCanvas(width, height);
+    const canvas = this.canvas;
+    if (!context || !canvas) {
+      return Promise.reject(new Error('2D canvas is not available'));
+    }
+    context.drawImage(source, sx, sy, sw, sh, 0, 0, width, height);
+    return new Promise((resolve, reject) => {
+      canvas.toBlob(blob => (blob ? resolve(blob) : reject(new Error('JPEG encoding failed'))), 'image/jpeg', quality);
+    });
+  }
+
+  private encodeInWorker(bitmap: ImageBitmap, quality: number): Promise<Blob> {
+    if (!this.worker) {
+      this.workerUrl = URL.createObjectURL(new Blob([WORKER_SOURCE], { type: 'text/javascript' }));
+      this.worker = new Worker(this.workerUrl);
+      this.worker.onmessage = (event: MessageEvent) => {
+        const { id, blob, error } = event.data;
+        const request = this.pending.get(id);
+        if (!request) return;
+        this.pending.delete(id);
+        if (blob) request.resolve(blob);
+        else request.reject(new Error(error || 'JPEG encoding failed'));
+      };
+    }
+    const id = this.nextRequestId++;
+    return new Promise((resolve, reject) => {
+      this.pending.set(id, { resolve, reject });
+      this.worker!.postMessage({ id, bitmap, quality }, [bitmap]);
+    });
+  }
+
+  private disposeWorker() {
+    this.worker?.terminate();
+    this.worker = null;
+    if (this.workerUrl) {
+      URL.revokeObjectURL(this.workerUrl);
+      this.workerUrl = null;
+    }
+    this.pending.forEach(request => request.reject(new Error('worker disposed')));
+    this.pending.clear();
+  }
+}
+
+/** Gemini inline_data 처럼 base64가 필요한 곳에서만 변환 */
+export const blobToBase64 = (blob: Blob): Promise<string> =>
+  new Promise((resolve, reject) => {
+    const reader = new FileReader();
+    reader.onload = () => resolve(String(reader.result).split(',')[1] || '');
+    reader.onerror = () => reject(reader.error);
+    reader.readAsDataURL(blob);
+  });
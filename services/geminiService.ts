@@ -1,7 +1,11 @@
 
 import { GoogleGenAI, GenerateContentResponse, Chat, Content } from "@google/genai";
-import { GEMINI_TEXT_MODEL, GEMINI_ANALYSIS_PROMPT_TEMPLATE } from '../constants';
+import {
+  GEMINI_TEXT_MODEL, GEMINI_ANALYSIS_PROMPT_TEMPLATE, GEMINI_ANALYSIS_CACHE_TTL_MS, GEMINI_ANALYSIS_CACHE_SIZE,
+  GEMINI_ANALYSIS_MAX_CONCURRENT, GEMINI_ANALYSIS_RATE_PER_MINUTE,
+} from '../constants';
 import { AnalysisResponse, BehaviorType } from "../types";
+import { AnalysisCache, AnalysisCacheStats, computePerceptualHash } from './analysisCache';
 
 const API_KEY = process.env.API_KEY;
 
@@ -11,6 +15,22 @@ if (!API_KEY) {
 
 const ai = API_KEY ? new GoogleGenAI({ apiKey: API_KEY }) : null;
 
+// 같은/비슷한 장면의 분석 결과 재사용 + 요청 합치기 + API 할당량 제한
+const analysisCache = new AnalysisCache<AnalysisResponse>({
+  ttlMs: GEMINI_ANALYSIS_CACHE_TTL_MS,
+  maxEntries: GEMINI_ANALYSIS_CACHE_SIZE,
+  maxDistance: 4,
+  maxConcurrent: GEMINI_ANALYSIS_MAX_CONCURRENT,
+  ratePerMinute: GEMINI_ANALYSIS_RATE_PER_MINUTE,
+  burst: GEMINI_ANALYSIS_MAX_CONCURRENT,
+});
+
+// 오류 시 돌려주는 응답은 캐시하지 않음
+const UNEXPECTED_FORMAT_RESPONSE: AnalysisResponse = { behaviorType: BehaviorType.NORMAL, description: "AI로부터 예상치 못한 데이터 형식을 받았습니다." };
+const ANALYSIS_ERROR_RESPONSE: AnalysisResponse = { behaviorType: BehaviorType.NORMAL, description: "AI 분석 중 오류가 발생했습니다. 네트워크 연결을 확인하거나 잠시 후 다시 시도해주세요." };
+
+export const getAnalysisCacheStats = (): AnalysisCacheStats => analysisCache.stats();
+
 export const analyzeBehaviorFromImage = async (
   base64ImageData: string, // Expects base64 string without data:image/jpeg;base64,
   location: string
@@ -27,6 +47,20 @@ export const analyzeBehaviorFromImage = async (
     return mockResponses[Math.floor(Math.random() * mockResponses.length)];
   }
 
+  const hash = await computePerceptualHash(base64ImageData);
+  return analysisCache.getOrCompute(
+    hash,
+    location,
+    () => requestBehaviorAnalysis(base64ImageData, location),
+    result => result !== UNEXPECTED_FORMAT_RESPONSE && result !== ANALYSIS_ERROR_RESPONSE,
+  );
+};
+
+const requestBehaviorAnalysis = async (base64ImageData: string, location: string): Promise<AnalysisResponse> => {
+  if (!ai) {
+    return ANALYSIS_ERROR_RESPONSE;
+  }
+
   const imagePart = {
     inlineData: {
       mimeType: 'image/jpeg',
@@ -61,14 +95,14 @@ export const analyzeBehaviorFromImage = async (
         return parsedData;
     } else {
         console.error("Gemini로부터 예상치 못한 JSON 구조:", parsedData);
-        return { behaviorType: BehaviorType.NORMAL, description: "AI로부터 예상치 못한 데이터 형식을 받았습니다." };
+        return UNEXPECTED_FORMAT_RESPONSE;
     }
   } catch (error) {
     console.error("Gemini 이미지 분석 오류:", error);
     if (error instanceof Error) {
         // errorMessage = `AI 분석 오류: ${error.message}`; // For developer logging if needed
     }
-    return { behaviorType: BehaviorType.NORMAL, description: "AI 분석 중 오류가 발생했습니다. 네트워크 연결을 확인하거나 잠시 후 다시 시도해주세요." };
+    return ANALYSIS_ERROR_RESPONSE;
   }
 };
 
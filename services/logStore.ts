@@ -0,0 +1,262 @@
+import { BehaviorLogEntry, BehaviorType } from '../types';
+import { mapDescriptionToCategory } from '../constants';
+import type { NativeLogEntry } from '../plugins/ForegroundServicePlugin';
+
+// 행동 기록 저장소 (IndexedDB).
+// - logs: 기록 원본. 시간(timestamp) / 종류+시간(type_timestamp) 인덱스로 최근 기록만 잘라 읽음
+// - rollups: 기록을 넣을 때 함께 갱신하는 집계 (시간대별 종류 수, 종류별 위치/분류 수)
+//   화면은 집계만 읽으므로 기록이 몇 달치로 늘어도 전체를 훑지 않음
+// 기록 추가와 집계 갱신은 같은 트랜잭션이라 둘이 어긋나지 않음
+
+const DB_NAME = 'memoria_logs';
+const DB_VERSION = 1;
+const LOG_STORE = 'logs';
+const ROLLUP_STORE = 'rollups';
+const ROLLUP_KEY = 'summary';
+const LEGACY_STORAGE_KEY = 'behaviorLogs';
+
+const HOUR_MS = 60 * 60 * 1000;
+export const WEEK_MS = 7 * 24 * HOUR_MS;
+// 주간 집계용 시간 버킷은 8일치만 유지
+const HOURLY_RETENTION_HOURS = 8 * 24;
+
+type Tally = { [key: string]: number };
+
+export interface LogRollups {
+  hourly: { [hour: string]: Tally }; // 시간 번호(ms / 1시간) -> 종류 -> 개수
+  byLocation: { [type: string]: Tally }; // 종류 -> 위치 -> 개수 (전체 기간)
+  byCategory: { [type: string]: Tally }; // 종류 -> 분류 -> 개수 (전체 기간, 이상/위험만)
+  total: number;
+}
+
+interface StoredLog {
+  id: string;
+  timestampMs: number;
+  type: BehaviorType;
+  description: string;
+  location: string;
+  warningMessage?: string;
+  category?: string; // 넣을 때 한 번만 계산
+}
+
+export type NewLog = Omit<BehaviorLogEntry, 'id' | 'timestamp'> & { id?: string; timestamp?: Date };
+
+export const emptyRollups = (): LogRollups => ({ hourly: {}, byLocation: {}, byCategory: {}, total: 0 });
+
+const newLogId = () => Date.now().toString() + Math.random().toString(36).substring(2, 9);
+
+const categoryOf = (type: BehaviorType, description: string): string | undefined =>
+  type === BehaviorType.ABNORMAL || type === BehaviorType.DANGEROUS
+    ? mapDescriptionToCategory(description, type)
+    : undefined;
+
+const toStored = (log: NewLog): StoredLog => ({
+  id: log.id || newLogId(),
+  timestampMs: (log.timestamp || new Date()).getTime(),
+  type: log.type,
+  description: log.description,
+  location: log.location,
+  warningMessage: log.warningMessage,
+  category: categoryOf(log.type, log.description),
+});
+
+const toEntry = (log: StoredLog): BehaviorLogEntry => ({
+  id: log.id,
+  timestamp: new Date(log.timestampMs),
+  type: log.type,
+  description: log.description,
+  location: log.location,
+  warningMessage: log.warningMessage,
+});
+
+const bump = (tally: Tally, key: string) => {
+  tally[key] = (tally[key] || 0) + 1;
+};
+
+/** 집계에 기록들을 더한 새 객체 반환 (바뀐 부분만 복사) */
+const addToRollups = (rollups: LogRollups, logs: StoredLog[]): LogRollups => {
+  if (logs.length === 0) return rollups;
+  const next: LogRollups = {
+    hourly: { ...rollups.hourly },
+    byLocation: { ...rollups.byLocation },
+    byCategory: { ...rollups.byCategory },
+    total: rollups.total + logs.length,
+  };
+  const touched = new Set<object>();
+  const own = <T extends object>(holder: { [key: string]: T }, key: string, empty: T): T => {
+    const current = holder[key];
+    if (current && touched.has(current)) return current;
+    const copy = { ...(current || empty) } as T;
+    touched.add(copy);
+    holder[key] = copy;
+    return copy;
+  };
+  for (const log of logs) {
+    bump(own(next.hourly, String(Math.floor(log.timestampMs / HOUR_MS)), {}), log.type);
+    bump(own(next.byLocation, log.type, {}), log.location);
+    if (log.category) {
+      bump(own(next.byCategory, log.type, {}), log.category);
+    }
+  }
+  const oldestHour = Math.floor(Date.now() / HOUR_MS) - HOURLY_RETENTION_HOURS;
+  for (const hour of Object.keys(next.hourly)) {
+    if (Number(hour) < oldestHour) delete next.hourly[hour];
+  }
+  return next;
+};
+
+/** sinceMs 이후 type 기록 수 (시간 단위로 어림, 최대 1시간 오차) */
+export const countSince = (rollups: LogRollups, type: BehaviorType, sinceMs: number): number => {
+  const fromHour = Math.floor(sinceMs / HOUR_MS);
+  let count = 0;
+  for (const [hour, tally] of Object.entries(rollups.hourly)) {
+    if (Number(hour) >= fromHour) count += tally[type] || 0;
+  }
+  return count;
+};
+
+let dbPromise: Promise<IDBDatabase> | null = null;
+
+const requestToPromise = <T>(request: IDBRequest<T>): Promise<T> =>
+  new Promise((resolve, reject) => {
+    request.onsuccess = () => resolve(request.result);
+    request.onerror = () => reject(request.error);
+  });
+
+const openDb = (): Promise<IDBDatabase> => {
+  if (dbPromise) return dbPromise;
+  dbPromise = new Promise<IDBDatabase>((resolve, reject) => {
+    if (typeof indexedDB === 'undefined') {
+      reject(new Error('IndexedDB is not available'));
+      return;
+    }
+    const request = indexedDB.open(DB_NAME, DB_VERSION);
+    request.onupgradeneeded = () => {
+      const db = request.result;
+      const logs = db.createObjectStore(LOG_STORE, { keyPath: 'id' });
+      logs.createIndex('timestamp', 'timestampMs');
+      logs.createIndex('type_timestamp', ['type', 'timestampMs']);
+      db.createObjectStore(ROLLUP_STORE);
+    };
+    request.onsuccess = () => resolve(request.result);
+    request.onerror = () => reject(request.error);
+  });
+  dbPromise.catch(() => {
+    dbPromise = null;
+  });
+  return dbPromise;
+};
+
+/**
+ * 기록을 한 트랜잭션으로 추가하고 집계를 갱신.
+ * 같은 id가 이미 있으면 건너뜀 (네이티브 로그를 다시 가져와도 두 번 세지 않음).
+ * @returns 실제로 추가된 기록(최신순)과 갱신된 집계
+ */
+export const appendLogs = async (logs: NewLog[]): Promise<{ added: BehaviorLogEntry[]; rollups: LogRollups }> => {
+  const db = await openDb();
+  const byId = new Map<string, StoredLog>();
+  for (const log of logs.map(toStored)) byId.set(log.id, log);
+  const candidates = Array.from(byId.values());
+  return new Promise((resolve, reject) => {
+    const tx = db.transaction([LOG_STORE, ROLLUP_STORE], 'readwrite');
+    const logStore = tx.objectStore(LOG_STORE);
+    const rollupStore = tx.objectStore(ROLLUP_STORE);
+    const added: StoredLog[] = [];
+    let rollups: LogRollups = emptyRollups();
+    let pending = candidates.length + 1;
+    const finish = () => {
+      if (--pending > 0) return;
+      rollups = addToRollups(rollups, added);
+      rollupStore.put(rollups, ROLLUP_KEY);
+    };
+    const rollupRequest = rollupStore.get(ROLLUP_KEY);
+    rollupRequest.onsuccess = () => {
+      rollups = (rollupRequest.result as LogRollups | undefined) || emptyRollups();
+      finish();
+    };
+    for (const log of candidates) {
+      const existing = logStore.getKey(log.id);
+      existing.onsuccess = () => {
+        if (existing.result === undefined) {
+          logStore.add(log);
+          added.push(log);
+        }
+        finish();
+      };
+    }
+    tx.oncomplete = () => {
+      added.sort((a, b) => b.timestampMs - a.timestampMs);
+      resolve({ added: added.map(toEntry), rollups });
+    };
+    tx.onerror = () => reject(tx.error);
+    tx.onabort = () => reject(tx.error);
+  });
+};
+
+/** 최근 기록 limit개 (최신순). type을 주면 그 종류만 */
+export const loadRecentLogs = async (limit: number, type?: BehaviorType): Promise<BehaviorLogEntry[]> => {
+  const db = await openDb();
+  return new Promise((resolve, reject) => {
+    const store = db.transaction(LOG_STORE, 'readonly').objectStore(LOG_STORE);
+    const request = type
+      ? store.index('type_timestamp').openCursor(IDBKeyRange.bound([type, -Infinity], [type, Infinity]), 'prev')
+      : store.index('timestamp').openCursor(null, 'prev');
+    const out: BehaviorLogEntry[] = [];
+    request.onsuccess = () => {
+      const cursor = request.result;
+      if (!cursor || out.length >= limit) {
+        resolve(out);
+        return;
+      }
+      out.push(toEntry(cursor.value as StoredLog));
+      cursor.continue();
+    };
+    request.onerror = () => reject(request.error);
+  });
+};
+
+export const loadRollups = async (): Promise<LogRollups> => {
+  const db = await openDb();
+  const store = db.transaction(ROLLUP_STORE, 'readonly').objectStore(ROLLUP_STORE);
+  const rollups = await requestToPromise(store.get(ROLLUP_KEY));
+  return (rollups as LogRollups | undefined) || emptyRollups();
+};
+
+/** 예전 localStorage 기록(최대 100개)을 한 번만 옮기고 지움 */
+export const migrateLegacyLogs = async (): Promise<number> => {
+  const saved = localStorage.getItem(LEGACY_STORAGE_KEY);
+  if (!saved) return 0;
+  const parsed: any[] = JSON.parse(saved);
+  const { added } = await appendLogs(parsed.map(log => ({ ...log, timestamp: new Date(log.timestamp) })));
+  localStorage.removeItem(LEGACY_STORAGE_KEY);
+  return added.length;
+};
+
+const toBehaviorType = (type: string): BehaviorType => {
+  switch (type) {
+    case 'Abnormal':
+      return BehaviorType.ABNORMAL;
+    case 'Dangerous':
+      return BehaviorType.DANGEROUS;
+    default:
+      return BehaviorType.NORMAL;
+  }
+};
+
+/** 네이티브 getLocalLogs 한 페이지를 원래 시각 그대로 한 번에 추가. id는 네이티브 id로 고정해 중복 제거 */
+export const nativeLogsToNew = (entries: NativeLogEntry[], defaultLocation: string): NewLog[] =>
+  entries
+    .filter(entry => entry.type && entry.description)
+    .map(entry => ({
+      id: `native-${entry.id}`,
+      timestamp: entry.timestampMs ? new Date(entry.timestampMs) : undefined,
+      type: toBehaviorType(entry.type),
+      description: entry.description,
+      location: entry.location || defaultLocation,
+    }));
+
+/** IndexedDB를 쓸 수 없을 때(시크릿 모드 등) 이번 실행 동안만 메모리에 반영 */
+export const applyInMemory = (rollups: LogRollups, logs: NewLog[]): { added: BehaviorLogEntry[]; rollups: LogRollups } => {
+  const stored = logs.map(toStored).sort((a, b) => b.timestampMs - a.timestampMs);
+  return { added: stored.map(toEntry), rollups: addToRollups(rollups, stored) };
+};